@@ -0,0 +1,189 @@
+package edu.unc.mapseq.commands.ncgenes.baseline;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.karaf.shell.api.action.Action;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Reference;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.jgrapht.DirectedGraph;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.renci.jlrm.condor.CondorJob;
+import org.renci.jlrm.condor.CondorJobEdge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.dao.MaPSeqDAOBeanService;
+import edu.unc.mapseq.dao.MaPSeqDAOException;
+import edu.unc.mapseq.dao.model.Job;
+import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
+import edu.unc.mapseq.workflow.WorkflowBeanService;
+import edu.unc.mapseq.workflow.ncgenes.baseline.NCGenesBaselineWorkflow;
+import edu.unc.mapseq.workflow.ncgenes.baseline.WorkflowGraphAnalyzer;
+
+@Command(scope = "ncgenes-baseline", name = "graph-stats", description = "Print NCGenes DAG statistics without submitting")
+@Service
+public class GraphStatisticsAction implements Action {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphStatisticsAction.class);
+
+    private static final String WORKFLOW_BEAN_SERVICE_FILTER = "(osgi.service.blueprint.compname=NCGenesBaselineWorkflowBeanService)";
+
+    @Reference
+    private MaPSeqDAOBeanService maPSeqDAOBeanService;
+
+    @Option(name = "--workflowRunAttemptId", description = "WorkflowRunAttempt Identifier", required = true, multiValued = false)
+    private Long workflowRunAttemptId;
+
+    @Option(name = "--durationsFrom", description = "WorkflowRunAttempt Identifiers to average job durations over", required = false,
+            multiValued = true)
+    private List<Long> durationsFrom;
+
+    public GraphStatisticsAction() {
+        super();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object execute() throws Exception {
+        logger.debug("ENTERING execute()");
+
+        WorkflowRunAttempt attempt = maPSeqDAOBeanService.getWorkflowRunAttemptDAO().findById(workflowRunAttemptId);
+        if (attempt == null) {
+            System.out.println(String.format("WorkflowRunAttempt not found: %d", workflowRunAttemptId));
+            return null;
+        }
+
+        BundleContext bundleContext = FrameworkUtil.getBundle(getClass()).getBundleContext();
+        Collection<ServiceReference<WorkflowBeanService>> references = bundleContext.getServiceReferences(WorkflowBeanService.class,
+                WORKFLOW_BEAN_SERVICE_FILTER);
+        if (CollectionUtils.isEmpty(references)) {
+            System.out.println("NCGenesBaselineWorkflowBeanService is not available");
+            return null;
+        }
+        ServiceReference<WorkflowBeanService> reference = references.iterator().next();
+
+        DirectedGraph<CondorJob, CondorJobEdge> graph = null;
+        try {
+            NCGenesBaselineWorkflow workflow = new NCGenesBaselineWorkflow();
+            workflow.setWorkflowBeanService(bundleContext.getService(reference));
+            workflow.setWorkflowRunAttempt(attempt);
+            // nothing is handed to Condor & nothing is written, not even the output directory or the interval shards
+            graph = (DirectedGraph<CondorJob, CondorJobEdge>) workflow.createGraph(true);
+        } finally {
+            bundleContext.ungetService(reference);
+        }
+
+        WorkflowGraphAnalyzer<CondorJob, CondorJobEdge> analyzer = new WorkflowGraphAnalyzer<CondorJob, CondorJobEdge>(graph);
+
+        int totalProcessors = 0;
+        for (CondorJob job : graph.vertexSet()) {
+            totalProcessors += job.getNumberOfProcessors() != null ? job.getNumberOfProcessors() : 1;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Jobs: %d%n", graph.vertexSet().size()));
+        sb.append(String.format("Edges: %d%n", graph.edgeSet().size()));
+        sb.append(String.format("Maximum width: %d%n", analyzer.getMaximumWidth()));
+        sb.append(String.format("Total CPU requested: %d%n", totalProcessors));
+
+        List<CondorJob> criticalPath = analyzer.getCriticalPath();
+        sb.append(String.format("Critical path (%d jobs):%n", criticalPath.size()));
+        for (CondorJob job : criticalPath) {
+            sb.append(String.format("  %s%n", job.getName()));
+        }
+
+        Map<String, Long> durations = getAverageDurations();
+        if (!durations.isEmpty()) {
+            long knownTotal = 0;
+            for (Long duration : durations.values()) {
+                knownTotal += duration;
+            }
+            // jobs that never ran before weigh the average of those that did
+            long defaultDuration = knownTotal / durations.size();
+            Map<CondorJob, Long> weights = new HashMap<CondorJob, Long>();
+            for (CondorJob job : graph.vertexSet()) {
+                Long duration = durations.get(getModuleName(job));
+                if (duration != null) {
+                    weights.put(job, duration);
+                }
+            }
+            long makespan = analyzer.getMakespan(weights, defaultDuration);
+            sb.append(String.format("Estimated makespan: %d s (%d of %d jobs with history)%n", makespan / 1000, weights.size(),
+                    graph.vertexSet().size()));
+            sb.append("Weighted critical path:\n");
+            for (CondorJob job : analyzer.getCriticalPath(weights, defaultDuration)) {
+                Long duration = weights.get(job);
+                sb.append(String.format("  %s %d s%n", job.getName(), (duration != null ? duration : defaultDuration) / 1000));
+            }
+        }
+
+        System.out.print(sb.toString());
+        return null;
+    }
+
+    // mean finished - started in ms, keyed by module simple name, i.e. BWAAlign for both BWAAlignCLI_4 & ...bwa.BWAAlign
+    private Map<String, Long> getAverageDurations() {
+        List<Long> attemptIds = CollectionUtils.isNotEmpty(durationsFrom) ? durationsFrom : Arrays.asList(workflowRunAttemptId);
+
+        Map<String, Long> totals = new HashMap<String, Long>();
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (Long attemptId : attemptIds) {
+            List<Job> jobs = null;
+            try {
+                jobs = maPSeqDAOBeanService.getJobDAO().findByWorkflowRunAttemptId(attemptId);
+            } catch (MaPSeqDAOException e) {
+                logger.warn("Could not find jobs for WorkflowRunAttempt: {}", attemptId);
+                continue;
+            }
+            if (CollectionUtils.isEmpty(jobs)) {
+                continue;
+            }
+            for (Job job : jobs) {
+                if (job.getStarted() == null || job.getFinished() == null) {
+                    continue;
+                }
+                String name = job.getName().substring(job.getName().lastIndexOf(".") + 1);
+                long duration = job.getFinished().getTime() - job.getStarted().getTime();
+                totals.put(name, totals.containsKey(name) ? totals.get(name) + duration : duration);
+                counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+            }
+        }
+
+        Map<String, Long> averages = new HashMap<String, Long>();
+        for (String name : totals.keySet()) {
+            averages.put(name, totals.get(name) / counts.get(name));
+        }
+        return averages;
+    }
+
+    private String getModuleName(CondorJob job) {
+        String name = job.getName().replaceAll("_\\d+$", "");
+        return name.endsWith("CLI") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    public Long getWorkflowRunAttemptId() {
+        return workflowRunAttemptId;
+    }
+
+    public void setWorkflowRunAttemptId(Long workflowRunAttemptId) {
+        this.workflowRunAttemptId = workflowRunAttemptId;
+    }
+
+    public List<Long> getDurationsFrom() {
+        return durationsFrom;
+    }
+
+    public void setDurationsFrom(List<Long> durationsFrom) {
+        this.durationsFrom = durationsFrom;
+    }
+
+}
@@ -9,11 +9,13 @@ import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
+import javax.jms.TextMessage;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.apache.karaf.shell.api.action.Action;
 import org.apache.karaf.shell.api.action.Argument;
 import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
 import org.apache.karaf.shell.api.action.lifecycle.Reference;
 import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.slf4j.Logger;
@@ -22,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunPriority;
 import edu.unc.mapseq.config.MaPSeqConfigurationService;
 import edu.unc.mapseq.dao.MaPSeqDAOBeanService;
 
@@ -37,6 +40,9 @@ public class RunWorkflowAction implements Action {
     @Argument(index = 1, name = "sampleId", description = "sampleId", required = true, multiValued = false)
     private Long sampleId;
 
+    @Option(name = "--priority", description = "Condor & dequeue priority, higher runs first", required = false, multiValued = false)
+    private Integer priority;
+
     @Reference
     private MaPSeqDAOBeanService maPSeqDAOBeanService;
 
@@ -87,7 +93,11 @@ public class RunWorkflowAction implements Action {
             sw.flush();
             sw.close();
 
-            producer.send(session.createTextMessage(sw.toString()));
+            TextMessage message = session.createTextMessage(sw.toString());
+            if (priority != null) {
+                message.setStringProperty(WorkflowRunPriority.ATTRIBUTE_NAME, priority.toString());
+            }
+            producer.send(message);
 
         } catch (JMSException | IOException e) {
             e.printStackTrace();
@@ -111,6 +121,14 @@ public class RunWorkflowAction implements Action {
         this.sampleId = sampleId;
     }
 
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
     public String getWorkflowRunName() {
         return workflowRunName;
     }
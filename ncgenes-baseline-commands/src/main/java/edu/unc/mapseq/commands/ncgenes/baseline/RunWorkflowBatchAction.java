@@ -0,0 +1,209 @@
+package edu.unc.mapseq.commands.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.karaf.shell.api.action.Action;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Reference;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunPriority;
+import edu.unc.mapseq.config.MaPSeqConfigurationService;
+import edu.unc.mapseq.dao.MaPSeqDAOBeanService;
+import edu.unc.mapseq.dao.MaPSeqDAOException;
+import edu.unc.mapseq.dao.model.Sample;
+
+@Command(scope = "ncgenes-baseline", name = "run-workflow-batch", description = "Run NCGenes Workflow for many samples in one message")
+@Service
+public class RunWorkflowBatchAction implements Action {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunWorkflowBatchAction.class);
+
+    @Option(name = "--flowcellId", description = "Flowcell Identifier, every sample on it is run", required = false, multiValued = false)
+    private Long flowcellId;
+
+    @Option(name = "--sampleList", description = "File of Sample Identifiers, one per line", required = false, multiValued = false)
+    private String sampleList;
+
+    @Option(name = "--workflowRunName", description = "WorkflowRun.name format, %s is the Sample.name", required = false,
+            multiValued = false)
+    private String workflowRunName = "%s_Baseline";
+
+    @Option(name = "--priority", description = "Condor & dequeue priority, higher runs first", required = false, multiValued = false)
+    private Integer priority;
+
+    @Reference
+    private MaPSeqDAOBeanService maPSeqDAOBeanService;
+
+    @Reference
+    private MaPSeqConfigurationService maPSeqConfigurationService;
+
+    public RunWorkflowBatchAction() {
+        super();
+    }
+
+    @Override
+    public Object execute() throws Exception {
+        logger.debug("ENTERING execute()");
+
+        if ((flowcellId == null) == (sampleList == null)) {
+            System.out.println("One of --flowcellId or --sampleList is required");
+            return null;
+        }
+
+        List<Sample> samples = null;
+        try {
+            samples = flowcellId != null ? maPSeqDAOBeanService.getSampleDAO().findByFlowcellId(flowcellId) : readSampleList();
+        } catch (MaPSeqDAOException | IOException e) {
+            logger.error(e.getMessage(), e);
+            return null;
+        }
+
+        if (CollectionUtils.isEmpty(samples)) {
+            System.out.println("No samples found");
+            return null;
+        }
+
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(
+                String.format("nio://%s:61616", maPSeqConfigurationService.getWebServiceHost("localhost")));
+
+        Connection connection = null;
+        Session session = null;
+        try {
+            connection = connectionFactory.createConnection();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Destination destination = session.createQueue("queue/ncgenes.baseline");
+            MessageProducer producer = session.createProducer(destination);
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            StringWriter sw = new StringWriter();
+
+            JsonGenerator generator = new JsonFactory().createGenerator(sw);
+
+            // {"workflowRuns":[{"entities":[Sample, WorkflowRun]}, ...]}, one WorkflowRun per sample
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("workflowRuns");
+
+            for (Sample sample : samples) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("entities");
+
+                generator.writeStartObject();
+                generator.writeStringField("entityType", "Sample");
+                generator.writeStringField("id", sample.getId().toString());
+                generator.writeEndObject();
+
+                generator.writeStartObject();
+                generator.writeStringField("entityType", "WorkflowRun");
+                generator.writeStringField("name", String.format(workflowRunName, sample.getName()));
+                generator.writeEndObject();
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+
+            generator.flush();
+            generator.close();
+
+            sw.flush();
+            sw.close();
+
+            TextMessage message = session.createTextMessage(sw.toString());
+            if (priority != null) {
+                message.setStringProperty(WorkflowRunPriority.ATTRIBUTE_NAME, priority.toString());
+            }
+            producer.send(message);
+            System.out.println(String.format("Sent %d WorkflowRuns", samples.size()));
+
+        } catch (JMSException | IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (session != null) {
+                    session.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (JMSException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return null;
+    }
+
+    // blank lines & lines starting with # are skipped
+    private List<Sample> readSampleList() throws IOException, MaPSeqDAOException {
+        List<Sample> samples = new ArrayList<Sample>();
+        for (String line : Files.readAllLines(new File(sampleList).toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Sample sample = maPSeqDAOBeanService.getSampleDAO().findById(Long.valueOf(line));
+            if (sample == null) {
+                throw new IOException(String.format("Sample not found: %s", line));
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    public Long getFlowcellId() {
+        return flowcellId;
+    }
+
+    public void setFlowcellId(Long flowcellId) {
+        this.flowcellId = flowcellId;
+    }
+
+    public String getSampleList() {
+        return sampleList;
+    }
+
+    public void setSampleList(String sampleList) {
+        this.sampleList = sampleList;
+    }
+
+    public String getWorkflowRunName() {
+        return workflowRunName;
+    }
+
+    public void setWorkflowRunName(String workflowRunName) {
+        this.workflowRunName = workflowRunName;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+}
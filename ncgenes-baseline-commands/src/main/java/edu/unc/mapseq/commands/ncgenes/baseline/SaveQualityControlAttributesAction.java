@@ -11,15 +11,15 @@ import org.apache.karaf.shell.api.action.lifecycle.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.unc.mapseq.commons.ncgenes.baseline.SaveFlagstatAttributesRunnable;
+import edu.unc.mapseq.commons.ncgenes.baseline.SaveQualityControlAttributesRunnable;
 import edu.unc.mapseq.dao.MaPSeqDAOBeanService;
 import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
 
-@Command(scope = "ncgenes-baseline", name = "save-flagstat-attributes", description = "Save Flagstat Attributes")
+@Command(scope = "ncgenes-baseline", name = "save-quality-control-attributes", description = "Save Flagstat, MarkDuplicates & DOC Attributes")
 @Service
-public class SaveFlagstatAttributesAction implements Action {
+public class SaveQualityControlAttributesAction implements Action {
 
-    private static final Logger logger = LoggerFactory.getLogger(SaveFlagstatAttributesAction.class);
+    private static final Logger logger = LoggerFactory.getLogger(SaveQualityControlAttributesAction.class);
 
     @Reference
     private MaPSeqDAOBeanService maPSeqDAOBeanService;
@@ -27,7 +27,7 @@ public class SaveFlagstatAttributesAction implements Action {
     @Option(name = "--workflowRunAttemptId", description = "WorkflowRunAttempt Identifier", required = true, multiValued = false)
     private Long workflowRunAttemptId;
 
-    public SaveFlagstatAttributesAction() {
+    public SaveQualityControlAttributesAction() {
         super();
     }
 
@@ -36,7 +36,7 @@ public class SaveFlagstatAttributesAction implements Action {
         logger.debug("ENTERING execute()");
         ExecutorService es = Executors.newSingleThreadExecutor();
         WorkflowRunAttempt attempt = maPSeqDAOBeanService.getWorkflowRunAttemptDAO().findById(workflowRunAttemptId);
-        SaveFlagstatAttributesRunnable runnable = new SaveFlagstatAttributesRunnable(maPSeqDAOBeanService, attempt);
+        SaveQualityControlAttributesRunnable runnable = new SaveQualityControlAttributesRunnable(maPSeqDAOBeanService, attempt);
         es.submit(runnable);
         es.shutdown();
         return null;
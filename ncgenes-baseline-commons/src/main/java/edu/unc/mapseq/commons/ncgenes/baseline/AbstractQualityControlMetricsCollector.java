@@ -0,0 +1,51 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Set;
+
+import edu.unc.mapseq.dao.MaPSeqDAOException;
+import edu.unc.mapseq.dao.model.Attribute;
+import edu.unc.mapseq.dao.model.Sample;
+import edu.unc.mapseq.workflow.WorkflowException;
+
+public abstract class AbstractQualityControlMetricsCollector {
+
+    public AbstractQualityControlMetricsCollector() {
+        super();
+    }
+
+    public abstract void collect(Sample sample, File[] files, Map<String, String> metrics)
+            throws MaPSeqDAOException, WorkflowException, IOException;
+
+    // a sample past its deadline is only interrupted & bam reads don't notice, nothing is written for it after that
+    protected void checkInterrupted(File file) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException(String.format("deadline passed, not writing %s", file.getAbsolutePath()));
+        }
+    }
+
+    protected File findFileBySuffix(File[] files, String suffix) {
+        for (File file : files) {
+            if (file.getName().endsWith(suffix)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    protected String findAttributeValue(Set<Attribute> attributeSet, String name) {
+        if (attributeSet == null) {
+            return null;
+        }
+        for (Attribute attribute : attributeSet) {
+            if (name.equals(attribute.getName())) {
+                return attribute.getValue();
+            }
+        }
+        return null;
+    }
+
+}
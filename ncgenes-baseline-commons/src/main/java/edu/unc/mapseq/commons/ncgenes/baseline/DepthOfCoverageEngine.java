@@ -0,0 +1,374 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import htsjdk.samtools.AlignmentBlock;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.IntervalList;
+
+public class DepthOfCoverageEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DepthOfCoverageEngine.class);
+
+    // unmapped, secondary, QC failure & duplicate, GATK's default locus walker filters
+    private static final int EXCLUDED_FLAGS = 0x4 | 0x100 | 0x200 | 0x400;
+
+    private static final int MAX_DEPTH = 10000;
+
+    // the last bin of the statistics & cumulative coverage files, GATK's default --stop
+    private static final int STATISTICS_MAX_DEPTH = 500;
+
+    private final File bam;
+
+    private final File intervalList;
+
+    private Integer threads = Runtime.getRuntime().availableProcessors();
+
+    private Integer intervalsPerShard = 256;
+
+    private Integer summaryCoverageThreshold = 15;
+
+    private List<Interval> intervals;
+
+    private long[] intervalTotalCoverage;
+
+    private int[] intervalFirstQuartile;
+
+    private int[] intervalMedian;
+
+    private int[] intervalThirdQuartile;
+
+    private double[] intervalPercentAboveThreshold;
+
+    // loci per depth, everything at or above MAX_DEPTH lands in the last bin
+    private long[] depthHistogram;
+
+    public DepthOfCoverageEngine(File bam, File intervalList) {
+        super();
+        this.bam = bam;
+        this.intervalList = intervalList;
+    }
+
+    public void calculate() throws IOException {
+        logger.info("ENTERING calculate()");
+        long start = System.currentTimeMillis();
+
+        try (SamReader reader = newReader()) {
+            if (!reader.hasIndex()) {
+                throw new IOException("bam index is required: " + bam.getAbsolutePath());
+            }
+        }
+
+        // overlapping & abutting targets are merged, the same as GATK's default interval merging
+        intervals = IntervalList.fromFile(intervalList).uniqued().getIntervals();
+        int count = intervals.size();
+        intervalTotalCoverage = new long[count];
+        intervalFirstQuartile = new int[count];
+        intervalMedian = new int[count];
+        intervalThirdQuartile = new int[count];
+        intervalPercentAboveThreshold = new double[count];
+        depthHistogram = new long[MAX_DEPTH + 1];
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new ShardAction(0, count));
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        logger.info("depth of coverage of {} over {} targets took {} ms", bam.getName(), count, System.currentTimeMillis() - start);
+    }
+
+    // writes the six <prefix>.sample_* files GATK DepthOfCoverage writes, in its layout
+    public void write(String outputPrefix) throws IOException {
+        String sampleName = getSampleName();
+
+        File intervalSummaryFile = new File(outputPrefix + ".sample_interval_summary");
+        File tmpFile = new File(intervalSummaryFile.getAbsolutePath() + ".tmp");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(tmpFile))) {
+            bw.write(String.format("Target\ttotal_coverage\taverage_coverage\t%1$s_total_cvg\t%1$s_mean_cvg\t%1$s_granular_Q1"
+                    + "\t%1$s_granular_median\t%1$s_granular_Q3\t%1$s_%%_above_%2$d", sampleName, summaryCoverageThreshold));
+            bw.newLine();
+            for (int i = 0; i < intervals.size(); i++) {
+                Interval interval = intervals.get(i);
+                String target = interval.getStart() == interval.getEnd() ? String.format("%s:%d", interval.getContig(), interval.getStart())
+                        : String.format("%s:%d-%d", interval.getContig(), interval.getStart(), interval.getEnd());
+                String average = String.format(Locale.US, "%.2f", (double) intervalTotalCoverage[i] / interval.length());
+                bw.write(String.format(Locale.US, "%s\t%d\t%s\t%d\t%s\t%d\t%d\t%d\t%.1f", target, intervalTotalCoverage[i], average,
+                        intervalTotalCoverage[i], average, intervalFirstQuartile[i], intervalMedian[i], intervalThirdQuartile[i],
+                        intervalPercentAboveThreshold[i]));
+                bw.newLine();
+            }
+        }
+        Files.move(tmpFile.toPath(), intervalSummaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long loci = 0;
+        long aboveThreshold = 0;
+        for (int depth = 0; depth < depthHistogram.length; depth++) {
+            loci += depthHistogram[depth];
+            if (depth >= summaryCoverageThreshold) {
+                aboveThreshold += depthHistogram[depth];
+            }
+        }
+        // summed from the intervals since the histogram's last bin is capped
+        long total = 0;
+        for (long intervalTotal : intervalTotalCoverage) {
+            total += intervalTotal;
+        }
+        String mean = String.format(Locale.US, "%.2f", loci > 0 ? (double) total / loci : 0D);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("sample_id\ttotal\tmean\tgranular_third_quartile\tgranular_median\tgranular_first_quartile"
+                + "\t%%_bases_above_%d%n", summaryCoverageThreshold));
+        sb.append(String.format(Locale.US, "%s\t%d\t%s\t%d\t%d\t%d\t%.1f%n", sampleName, total, mean,
+                quantile(depthHistogram, loci, 0.75), quantile(depthHistogram, loci, 0.5), quantile(depthHistogram, loci, 0.25),
+                loci > 0 ? (double) aboveThreshold / loci * 100D : 0D));
+        sb.append(String.format("Total\t%d\t%s\tN/A\tN/A\tN/A%n", total, mean));
+        write(new File(outputPrefix + ".sample_summary"), sb.toString());
+
+        // GATK's default bins, 0 then one per depth up to STATISTICS_MAX_DEPTH & everything above it
+        long[] lociAtDepth = new long[STATISTICS_MAX_DEPTH + 1];
+        for (int depth = 0; depth < depthHistogram.length; depth++) {
+            lociAtDepth[Math.min(depth, STATISTICS_MAX_DEPTH)] += depthHistogram[depth];
+        }
+        long[] lociAtLeastDepth = new long[STATISTICS_MAX_DEPTH + 1];
+        long cumulative = 0;
+        for (int depth = STATISTICS_MAX_DEPTH; depth >= 0; depth--) {
+            cumulative += lociAtDepth[depth];
+            lociAtLeastDepth[depth] = cumulative;
+        }
+
+        sb = new StringBuilder("Source_of_reads\tfrom_0_to_1)");
+        for (int depth = 2; depth <= STATISTICS_MAX_DEPTH; depth++) {
+            sb.append(String.format("\tfrom_%d_to_%d)", depth - 1, depth));
+        }
+        sb.append(String.format("\tfrom_%d_to_inf%n", STATISTICS_MAX_DEPTH));
+        sb.append(String.format("sample_%s", sampleName));
+        for (long count : lociAtDepth) {
+            sb.append('\t').append(count);
+        }
+        sb.append(String.format("%n"));
+        write(new File(outputPrefix + ".sample_statistics"), sb.toString());
+
+        String cumulativeHeader = getCumulativeHeader("\tgte_%d");
+        sb = new StringBuilder(cumulativeHeader).append("NSamples_1");
+        for (long count : lociAtLeastDepth) {
+            sb.append('\t').append(count);
+        }
+        sb.append(String.format("%n"));
+        write(new File(outputPrefix + ".sample_cumulative_coverage_counts"), sb.toString());
+
+        sb = new StringBuilder(cumulativeHeader).append(sampleName);
+        for (long count : lociAtLeastDepth) {
+            sb.append(String.format(Locale.US, "\t%.2f", loci > 0 ? (double) count / loci : 0D));
+        }
+        sb.append(String.format("%n"));
+        write(new File(outputPrefix + ".sample_cumulative_coverage_proportions"), sb.toString());
+
+        // targets whose mean coverage is at least each depth
+        long[] intervalsAtLeastDepth = new long[STATISTICS_MAX_DEPTH + 1];
+        for (int i = 0; i < intervals.size(); i++) {
+            int meanDepth = (int) Math.min(intervalTotalCoverage[i] / intervals.get(i).length(), STATISTICS_MAX_DEPTH);
+            for (int depth = 0; depth <= meanDepth; depth++) {
+                intervalsAtLeastDepth[depth]++;
+            }
+        }
+        sb = new StringBuilder("Number_of_sources").append(getCumulativeHeader("\tdepth>=%d")).append("At_least_1_samples");
+        for (long count : intervalsAtLeastDepth) {
+            sb.append('\t').append(count);
+        }
+        sb.append(String.format("%n"));
+        write(new File(outputPrefix + ".sample_interval_statistics"), sb.toString());
+    }
+
+    private static String getCumulativeHeader(String columnFormat) {
+        StringBuilder sb = new StringBuilder();
+        for (int depth = 0; depth <= STATISTICS_MAX_DEPTH; depth++) {
+            sb.append(String.format(columnFormat, depth));
+        }
+        return sb.append(String.format("%n")).toString();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(tmpFile))) {
+            bw.write(content);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String getSampleName() throws IOException {
+        try (SamReader reader = newReader()) {
+            List<SAMReadGroupRecord> readGroups = reader.getFileHeader().getReadGroups();
+            if (!readGroups.isEmpty() && readGroups.get(0).getSample() != null) {
+                return readGroups.get(0).getSample();
+            }
+        }
+        return bam.getName().substring(0, bam.getName().indexOf("."));
+    }
+
+    private SamReader newReader() {
+        return SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(bam);
+    }
+
+    private static int quantile(long[] histogram, long count, double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int depth = 0; depth < histogram.length; depth++) {
+            seen += histogram[depth];
+            if (seen >= rank) {
+                return depth;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    private void computeShard(int from, int to) throws IOException {
+        long[] histogram = new long[MAX_DEPTH + 1];
+        try (SamReader reader = newReader()) {
+            for (int i = from; i < to; i++) {
+                Interval interval = intervals.get(i);
+                int[] depths = new int[interval.length()];
+
+                SAMRecordIterator iter = reader.queryOverlapping(interval.getContig(), interval.getStart(), interval.getEnd());
+                try {
+                    while (iter.hasNext()) {
+                        SAMRecord record = iter.next();
+                        if ((record.getFlags() & EXCLUDED_FLAGS) != 0) {
+                            continue;
+                        }
+                        // M/=/X blocks only, deletions & skips don't count toward depth
+                        for (AlignmentBlock block : record.getAlignmentBlocks()) {
+                            int blockStart = Math.max(block.getReferenceStart(), interval.getStart());
+                            int blockEnd = Math.min(block.getReferenceStart() + block.getLength() - 1, interval.getEnd());
+                            for (int position = blockStart; position <= blockEnd; position++) {
+                                depths[position - interval.getStart()]++;
+                            }
+                        }
+                    }
+                } finally {
+                    iter.close();
+                }
+
+                long total = 0;
+                int aboveThreshold = 0;
+                for (int depth : depths) {
+                    total += depth;
+                    histogram[Math.min(depth, MAX_DEPTH)]++;
+                    if (depth >= summaryCoverageThreshold) {
+                        aboveThreshold++;
+                    }
+                }
+                Arrays.sort(depths);
+                intervalTotalCoverage[i] = total;
+                intervalFirstQuartile[i] = depths[(int) Math.ceil(depths.length * 0.25) - 1];
+                intervalMedian[i] = depths[(int) Math.ceil(depths.length * 0.5) - 1];
+                intervalThirdQuartile[i] = depths[(int) Math.ceil(depths.length * 0.75) - 1];
+                intervalPercentAboveThreshold[i] = (double) aboveThreshold / depths.length * 100D;
+            }
+        }
+        synchronized (depthHistogram) {
+            for (int depth = 0; depth < histogram.length; depth++) {
+                depthHistogram[depth] += histogram[depth];
+            }
+        }
+    }
+
+    class ShardAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+
+        private final int to;
+
+        public ShardAction(int from, int to) {
+            super();
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= intervalsPerShard) {
+                try {
+                    computeShard(from, to);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ShardAction(from, middle), new ShardAction(middle, to));
+        }
+
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public Integer getIntervalsPerShard() {
+        return intervalsPerShard;
+    }
+
+    public void setIntervalsPerShard(Integer intervalsPerShard) {
+        this.intervalsPerShard = intervalsPerShard;
+    }
+
+    public Integer getSummaryCoverageThreshold() {
+        return summaryCoverageThreshold;
+    }
+
+    public void setSummaryCoverageThreshold(Integer summaryCoverageThreshold) {
+        this.summaryCoverageThreshold = summaryCoverageThreshold;
+    }
+
+    public File getBam() {
+        return bam;
+    }
+
+    public File getIntervalList() {
+        return intervalList;
+    }
+
+    public long[] getIntervalTotalCoverage() {
+        return intervalTotalCoverage;
+    }
+
+    public long[] getDepthHistogram() {
+        return depthHistogram;
+    }
+
+}
@@ -0,0 +1,100 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.dao.model.Sample;
+
+public class DepthOfCoverageMetricsCollector extends AbstractQualityControlMetricsCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(DepthOfCoverageMetricsCollector.class);
+
+    private Boolean nativeDepthOfCoverage = Boolean.FALSE;
+
+    private Integer threads = 4;
+
+    private File intervalList;
+
+    public DepthOfCoverageMetricsCollector() {
+        super();
+    }
+
+    @Override
+    public void collect(Sample sample, File[] files, Map<String, String> metrics) throws IOException {
+
+        File sampleSummaryFile = null;
+        File sampleIntervalSummaryFile = null;
+
+        if (nativeDepthOfCoverage) {
+            File recalibratedBAM = findFileBySuffix(files, ".recal.bam");
+            if (recalibratedBAM != null && intervalList != null) {
+                // same prefix GATKDepthOfCoverage is given, so the iRODS registration finds the files
+                String outputPrefix = new File(recalibratedBAM.getParentFile(), recalibratedBAM.getName().replace(".bam", ".coverage"))
+                        .getAbsolutePath();
+                DepthOfCoverageEngine engine = new DepthOfCoverageEngine(recalibratedBAM, intervalList);
+                engine.setThreads(threads);
+                engine.calculate();
+                checkInterrupted(recalibratedBAM);
+                engine.write(outputPrefix);
+                sampleSummaryFile = new File(outputPrefix + ".sample_summary");
+                sampleIntervalSummaryFile = new File(outputPrefix + ".sample_interval_summary");
+            } else {
+                logger.warn("recalibrated bam or interval list was not found...checking for existing coverage files");
+            }
+        }
+
+        if (sampleSummaryFile == null) {
+            sampleSummaryFile = findFileBySuffix(files, ".coverage.sample_summary");
+            sampleIntervalSummaryFile = findFileBySuffix(files, ".coverage.sample_interval_summary");
+        }
+        if (sampleSummaryFile == null) {
+            return;
+        }
+
+        DepthOfCoverageSummaryParser parser = new DepthOfCoverageSummaryParser();
+
+        DepthOfCoverageSummary sampleSummary = parser.parseSampleSummary(sampleSummaryFile);
+        if (sampleSummary != null) {
+            metrics.put("GATKDepthOfCoverage.totalCoverage", Long.toString(sampleSummary.getTotalCoverage()));
+            // GATK writes the mean with two decimals & a point whatever the default locale
+            metrics.put("GATKDepthOfCoverage.mean", String.format(Locale.US, "%.2f", sampleSummary.getMean()));
+        }
+
+        if (sampleIntervalSummaryFile == null) {
+            return;
+        }
+
+        long totalCoverageCount = parser.parseIntervalSummary(sampleIntervalSummaryFile).getTotalCoverage();
+        metrics.put("GATKDepthOfCoverage.totalCoverageCount", totalCoverageCount + "");
+    }
+
+    public Boolean getNativeDepthOfCoverage() {
+        return nativeDepthOfCoverage;
+    }
+
+    public void setNativeDepthOfCoverage(Boolean nativeDepthOfCoverage) {
+        this.nativeDepthOfCoverage = nativeDepthOfCoverage;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public File getIntervalList() {
+        return intervalList;
+    }
+
+    public void setIntervalList(File intervalList) {
+        this.intervalList = intervalList;
+    }
+
+}
@@ -0,0 +1,65 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+public class DepthOfCoverageSummary {
+
+    private long totalCoverage;
+
+    private double mean = Double.NaN;
+
+    private int intervalCount;
+
+    private long[] intervalTotalCoverage = new long[0];
+
+    private double[] intervalAverageCoverage = new double[0];
+
+    public DepthOfCoverageSummary() {
+        super();
+    }
+
+    public long getTotalCoverage() {
+        return totalCoverage;
+    }
+
+    public void setTotalCoverage(long totalCoverage) {
+        this.totalCoverage = totalCoverage;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public int getIntervalCount() {
+        return intervalCount;
+    }
+
+    public void setIntervalCount(int intervalCount) {
+        this.intervalCount = intervalCount;
+    }
+
+    public long[] getIntervalTotalCoverage() {
+        return intervalTotalCoverage;
+    }
+
+    public void setIntervalTotalCoverage(long[] intervalTotalCoverage) {
+        this.intervalTotalCoverage = intervalTotalCoverage;
+    }
+
+    public double[] getIntervalAverageCoverage() {
+        return intervalAverageCoverage;
+    }
+
+    public void setIntervalAverageCoverage(double[] intervalAverageCoverage) {
+        this.intervalAverageCoverage = intervalAverageCoverage;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DepthOfCoverageSummary [totalCoverage=%s, mean=%s, intervalCount=%s, intervalTotalCoverage.length=%s]",
+                totalCoverage, mean, intervalCount, intervalTotalCoverage.length);
+    }
+
+}
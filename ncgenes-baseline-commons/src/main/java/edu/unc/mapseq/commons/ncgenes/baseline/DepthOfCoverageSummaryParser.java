@@ -0,0 +1,235 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class DepthOfCoverageSummaryParser {
+
+    private static final long MAPPING_SIZE = 64L * 1024 * 1024;
+
+    private static final byte[] TOTAL_ROW = { 'T', 'o', 't', 'a', 'l' };
+
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+            1e15, 1e16, 1e17, 1e18 };
+
+    private final boolean keepIntervals;
+
+    public DepthOfCoverageSummaryParser() {
+        this(false);
+    }
+
+    public DepthOfCoverageSummaryParser(boolean keepIntervals) {
+        super();
+        this.keepIntervals = keepIntervals;
+    }
+
+    // *.sample_interval_summary: sums total_coverage over every target, optionally keeping each target's total &
+    // average coverage in file order
+    public DepthOfCoverageSummary parseIntervalSummary(File file) throws IOException {
+        Scanner scanner = new Scanner(false, keepIntervals);
+        scan(file, scanner);
+        DepthOfCoverageSummary summary = new DepthOfCoverageSummary();
+        summary.setTotalCoverage(scanner.totalCoverage);
+        summary.setIntervalCount(scanner.intervalCount);
+        if (keepIntervals) {
+            summary.setIntervalTotalCoverage(Arrays.copyOf(scanner.intervalTotalCoverage, scanner.intervalCount));
+            summary.setIntervalAverageCoverage(Arrays.copyOf(scanner.intervalAverageCoverage, scanner.intervalCount));
+        }
+        return summary;
+    }
+
+    // *.sample_summary: total & mean from the "Total" row, null if the file has none
+    public DepthOfCoverageSummary parseSampleSummary(File file) throws IOException {
+        Scanner scanner = new Scanner(true, false);
+        scan(file, scanner);
+        if (!scanner.foundTotalRow) {
+            return null;
+        }
+        DepthOfCoverageSummary summary = new DepthOfCoverageSummary();
+        summary.setTotalCoverage(scanner.totalCoverage);
+        summary.setMean(scanner.mean);
+        return summary;
+    }
+
+    private void scan(File file, Scanner scanner) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAPPING_SIZE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_SIZE, size - position));
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    scanner.accept(buffer.get(i));
+                }
+            }
+            scanner.finish();
+        }
+    }
+
+    // byte-at-a-time state machine over tab/space separated columns: 0 = target/sample, 1 = total, 2 = average/mean
+    static class Scanner {
+
+        private final boolean sampleSummary;
+
+        private final boolean keepIntervals;
+
+        private int lineNumber;
+
+        private int column;
+
+        private boolean inField;
+
+        private long mantissa;
+
+        private int scale;
+
+        private boolean numeric;
+
+        private int totalRowMatch;
+
+        private boolean totalRow;
+
+        private boolean hasLineTotal;
+
+        private long lineTotal;
+
+        private double lineAverage = Double.NaN;
+
+        private long totalCoverage;
+
+        private double mean = Double.NaN;
+
+        private boolean foundTotalRow;
+
+        private int intervalCount;
+
+        private long[] intervalTotalCoverage;
+
+        private double[] intervalAverageCoverage;
+
+        Scanner(boolean sampleSummary, boolean keepIntervals) {
+            super();
+            this.sampleSummary = sampleSummary;
+            this.keepIntervals = keepIntervals;
+            if (keepIntervals) {
+                this.intervalTotalCoverage = new long[1024];
+                this.intervalAverageCoverage = new double[1024];
+            }
+        }
+
+        void accept(byte b) throws IOException {
+            switch (b) {
+                case '\n':
+                    endField();
+                    endLine();
+                    return;
+                case '\r':
+                    return;
+                case '\t':
+                case ' ':
+                    endField();
+                    return;
+            }
+
+            if (!inField) {
+                inField = true;
+                mantissa = 0;
+                scale = -1;
+                numeric = true;
+                totalRowMatch = 0;
+            }
+
+            if (column == 0) {
+                if (totalRowMatch >= 0 && totalRowMatch < TOTAL_ROW.length && TOTAL_ROW[totalRowMatch] == b) {
+                    totalRowMatch++;
+                } else {
+                    totalRowMatch = -1;
+                }
+            } else if (column <= 2 && numeric) {
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else {
+                    numeric = false;
+                }
+            }
+        }
+
+        private void endField() {
+            if (!inField) {
+                return;
+            }
+            inField = false;
+            switch (column) {
+                case 0:
+                    totalRow = totalRowMatch == TOTAL_ROW.length;
+                    break;
+                case 1:
+                    hasLineTotal = numeric && scale < 0;
+                    lineTotal = mantissa;
+                    break;
+                case 2:
+                    lineAverage = numeric ? toDouble(mantissa, scale) : Double.NaN;
+                    break;
+            }
+            column++;
+        }
+
+        private void endLine() throws IOException {
+            // first non-blank line is the header
+            if (lineNumber > 0 && column > 0) {
+                if (sampleSummary) {
+                    if (totalRow && hasLineTotal) {
+                        totalCoverage = lineTotal;
+                        mean = lineAverage;
+                        foundTotalRow = true;
+                    }
+                } else {
+                    if (!hasLineTotal) {
+                        throw new IOException(String.format("malformed total_coverage in row %d", lineNumber));
+                    }
+                    totalCoverage += lineTotal;
+                    if (keepIntervals) {
+                        if (intervalCount == intervalTotalCoverage.length) {
+                            intervalTotalCoverage = Arrays.copyOf(intervalTotalCoverage, intervalCount * 2);
+                            intervalAverageCoverage = Arrays.copyOf(intervalAverageCoverage, intervalCount * 2);
+                        }
+                        intervalTotalCoverage[intervalCount] = lineTotal;
+                        intervalAverageCoverage[intervalCount] = lineAverage;
+                    }
+                    intervalCount++;
+                }
+            }
+            if (column > 0) {
+                lineNumber++;
+            }
+            column = 0;
+            totalRow = false;
+            hasLineTotal = false;
+            lineAverage = Double.NaN;
+        }
+
+        void finish() throws IOException {
+            if (inField || column > 0) {
+                endField();
+                endLine();
+            }
+        }
+
+        private static double toDouble(long mantissa, int scale) {
+            if (scale <= 0) {
+                return mantissa;
+            }
+            return scale < POWERS_OF_TEN.length ? mantissa / POWERS_OF_TEN[scale] : mantissa / Math.pow(10, scale);
+        }
+
+    }
+
+}
@@ -0,0 +1,207 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public class FlagstatCounts {
+
+    private static final int PAIRED = 0x1;
+
+    private static final int PROPER_PAIR = 0x2;
+
+    private static final int UNMAPPED = 0x4;
+
+    private static final int MATE_UNMAPPED = 0x8;
+
+    private static final int READ1 = 0x40;
+
+    private static final int READ2 = 0x80;
+
+    private static final int QC_FAIL = 0x200;
+
+    private static final int DUPLICATE = 0x400;
+
+    // index 0 is QC-passed, 1 is QC-failed, as in samtools
+    private final long[] reads = new long[2];
+
+    private final long[] duplicates = new long[2];
+
+    private final long[] mapped = new long[2];
+
+    private final long[] pairedInSequencing = new long[2];
+
+    private final long[] read1 = new long[2];
+
+    private final long[] read2 = new long[2];
+
+    private final long[] properlyPaired = new long[2];
+
+    private final long[] withItselfAndMateMapped = new long[2];
+
+    private final long[] singletons = new long[2];
+
+    private final long[] mateOnDifferentChr = new long[2];
+
+    private final long[] mateOnDifferentChrMapQ5 = new long[2];
+
+    public FlagstatCounts() {
+        super();
+    }
+
+    // same tallies as samtools 0.1.18 bam_stat.c
+    public void add(int flags, int referenceIndex, int mateReferenceIndex, int mappingQuality) {
+        int w = (flags & QC_FAIL) != 0 ? 1 : 0;
+        ++reads[w];
+        if ((flags & PAIRED) != 0) {
+            ++pairedInSequencing[w];
+            if ((flags & PROPER_PAIR) != 0) {
+                ++properlyPaired[w];
+            }
+            if ((flags & READ1) != 0) {
+                ++read1[w];
+            }
+            if ((flags & READ2) != 0) {
+                ++read2[w];
+            }
+            if ((flags & MATE_UNMAPPED) != 0 && (flags & UNMAPPED) == 0) {
+                ++singletons[w];
+            }
+            if ((flags & UNMAPPED) == 0 && (flags & MATE_UNMAPPED) == 0) {
+                ++withItselfAndMateMapped[w];
+                if (mateReferenceIndex != referenceIndex) {
+                    ++mateOnDifferentChr[w];
+                    if (mappingQuality >= 5) {
+                        ++mateOnDifferentChrMapQ5[w];
+                    }
+                }
+            }
+        }
+        if ((flags & UNMAPPED) == 0) {
+            ++mapped[w];
+        }
+        if ((flags & DUPLICATE) != 0) {
+            ++duplicates[w];
+        }
+    }
+
+    public void add(FlagstatCounts other) {
+        for (int w = 0; w < 2; w++) {
+            reads[w] += other.reads[w];
+            duplicates[w] += other.duplicates[w];
+            mapped[w] += other.mapped[w];
+            pairedInSequencing[w] += other.pairedInSequencing[w];
+            read1[w] += other.read1[w];
+            read2[w] += other.read2[w];
+            properlyPaired[w] += other.properlyPaired[w];
+            withItselfAndMateMapped[w] += other.withItselfAndMateMapped[w];
+            singletons[w] += other.singletons[w];
+            mateOnDifferentChr[w] += other.mateOnDifferentChr[w];
+            mateOnDifferentChrMapQ5[w] += other.mateOnDifferentChrMapQ5[w];
+        }
+    }
+
+    // byte for byte what `samtools flagstat` 0.1.18 prints, harvester & web service parse this
+    public String toSAMToolsFormat() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d + %d in total (QC-passed reads + QC-failed reads)\n", reads[0], reads[1]));
+        sb.append(String.format("%d + %d duplicates\n", duplicates[0], duplicates[1]));
+        sb.append(String.format("%d + %d mapped (%s%%:%s%%)\n", mapped[0], mapped[1], samtoolsPercentage(mapped[0], reads[0]),
+                samtoolsPercentage(mapped[1], reads[1])));
+        sb.append(String.format("%d + %d paired in sequencing\n", pairedInSequencing[0], pairedInSequencing[1]));
+        sb.append(String.format("%d + %d read1\n", read1[0], read1[1]));
+        sb.append(String.format("%d + %d read2\n", read2[0], read2[1]));
+        sb.append(String.format("%d + %d properly paired (%s%%:%s%%)\n", properlyPaired[0], properlyPaired[1],
+                samtoolsPercentage(properlyPaired[0], pairedInSequencing[0]), samtoolsPercentage(properlyPaired[1], pairedInSequencing[1])));
+        sb.append(String.format("%d + %d with itself and mate mapped\n", withItselfAndMateMapped[0], withItselfAndMateMapped[1]));
+        sb.append(String.format("%d + %d singletons (%s%%:%s%%)\n", singletons[0], singletons[1],
+                samtoolsPercentage(singletons[0], pairedInSequencing[0]), samtoolsPercentage(singletons[1], pairedInSequencing[1])));
+        sb.append(String.format("%d + %d with mate mapped to a different chr\n", mateOnDifferentChr[0], mateOnDifferentChr[1]));
+        sb.append(String.format("%d + %d with mate mapped to a different chr (mapQ>=5)\n", mateOnDifferentChrMapQ5[0],
+                mateOnDifferentChrMapQ5[1]));
+        return sb.toString();
+    }
+
+    // GATK FlagStat style, percentages are of all reads
+    public String toGATKFormat() {
+        long total = reads[0] + reads[1];
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d in total\n", total));
+        sb.append(String.format("%d QC failure\n", reads[1]));
+        sb.append(String.format("%d duplicates\n", duplicates[0] + duplicates[1]));
+        sb.append(String.format("%d mapped (%s%%)\n", mapped[0] + mapped[1], gatkPercentage(mapped[0] + mapped[1], total)));
+        sb.append(String.format("%d paired in sequencing\n", pairedInSequencing[0] + pairedInSequencing[1]));
+        sb.append(String.format("%d read1\n", read1[0] + read1[1]));
+        sb.append(String.format("%d read2\n", read2[0] + read2[1]));
+        sb.append(String.format("%d properly paired (%s%%)\n", properlyPaired[0] + properlyPaired[1],
+                gatkPercentage(properlyPaired[0] + properlyPaired[1], total)));
+        sb.append(String.format("%d with itself and mate mapped\n", withItselfAndMateMapped[0] + withItselfAndMateMapped[1]));
+        sb.append(String.format("%d singletons (%s%%)\n", singletons[0] + singletons[1], gatkPercentage(singletons[0] + singletons[1], total)));
+        sb.append(String.format("%d with mate mapped to a different chr\n", mateOnDifferentChr[0] + mateOnDifferentChr[1]));
+        sb.append(String.format("%d with mate mapped to a different chr (mapQ>=5)\n", mateOnDifferentChrMapQ5[0] + mateOnDifferentChrMapQ5[1]));
+        return sb.toString();
+    }
+
+    // samtools divides in single precision, prints with "%.2f" (exact value, ties to even) & glibc renders 0/0 as "-nan"
+    private static String samtoolsPercentage(long numerator, long denominator) {
+        float ratio = (float) numerator / (float) denominator;
+        if (Float.isNaN(ratio)) {
+            return "-nan";
+        }
+        if (Float.isInfinite(ratio)) {
+            return "inf";
+        }
+        return new BigDecimal(ratio * 100.0).setScale(2, RoundingMode.HALF_EVEN).toPlainString();
+    }
+
+    private static String gatkPercentage(long numerator, long denominator) {
+        if (denominator == 0) {
+            return "0.00";
+        }
+        return new BigDecimal((double) numerator / denominator * 100.0).setScale(2, RoundingMode.HALF_EVEN).toPlainString();
+    }
+
+    public long[] getReads() {
+        return reads;
+    }
+
+    public long[] getDuplicates() {
+        return duplicates;
+    }
+
+    public long[] getMapped() {
+        return mapped;
+    }
+
+    public long[] getPairedInSequencing() {
+        return pairedInSequencing;
+    }
+
+    public long[] getRead1() {
+        return read1;
+    }
+
+    public long[] getRead2() {
+        return read2;
+    }
+
+    public long[] getProperlyPaired() {
+        return properlyPaired;
+    }
+
+    public long[] getWithItselfAndMateMapped() {
+        return withItselfAndMateMapped;
+    }
+
+    public long[] getSingletons() {
+        return singletons;
+    }
+
+    public long[] getMateOnDifferentChr() {
+        return mateOnDifferentChr;
+    }
+
+    public long[] getMateOnDifferentChrMapQ5() {
+        return mateOnDifferentChrMapQ5;
+    }
+
+}
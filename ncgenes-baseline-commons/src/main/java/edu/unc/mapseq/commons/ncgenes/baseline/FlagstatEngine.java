@@ -0,0 +1,230 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.IntervalList;
+
+public class FlagstatEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlagstatEngine.class);
+
+    private final File bam;
+
+    private Integer threads = Runtime.getRuntime().availableProcessors();
+
+    private File intervalList;
+
+    private FlagstatCounts counts;
+
+    private FlagstatCounts onTargetCounts;
+
+    public FlagstatEngine(File bam) {
+        super();
+        this.bam = bam;
+    }
+
+    public void calculate() throws IOException {
+        logger.info("ENTERING calculate()");
+        long start = System.currentTimeMillis();
+
+        Map<String, int[][]> targets = intervalList != null ? loadTargets(intervalList) : null;
+
+        List<SAMSequenceRecord> sequences;
+        boolean indexed;
+        try (SamReader reader = newReader()) {
+            indexed = reader.hasIndex();
+            sequences = reader.getFileHeader().getSequenceDictionary().getSequences();
+        }
+
+        counts = new FlagstatCounts();
+        onTargetCounts = targets != null ? new FlagstatCounts() : null;
+
+        if (!indexed || threads < 2 || sequences.isEmpty()) {
+            // no index to shard on, one sequential pass
+            logger.warn("reading {} sequentially", bam.getAbsolutePath());
+            Shard shard = new Shard(null, targets);
+            shard.call();
+            merge(shard);
+            return;
+        }
+
+        // every contig is decoded on its own reader/thread, unplaced unmapped reads at the end of the file are the last shard
+        List<Shard> shards = new ArrayList<Shard>(sequences.size() + 1);
+        for (SAMSequenceRecord sequence : sequences) {
+            shards.add(new Shard(sequence, targets));
+        }
+        shards.add(new Shard(null, null));
+
+        ExecutorService es = Executors.newFixedThreadPool(Math.min(threads, shards.size()));
+        try {
+            List<Future<Shard>> futures = es.invokeAll(shards);
+            for (Future<Shard> future : futures) {
+                merge(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted reading " + bam.getAbsolutePath(), e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed reading " + bam.getAbsolutePath(), e.getCause());
+        } finally {
+            es.shutdownNow();
+        }
+
+        logger.info("flagstat of {} took {} ms", bam.getName(), System.currentTimeMillis() - start);
+    }
+
+    private void merge(Shard shard) {
+        counts.add(shard.counts);
+        if (onTargetCounts != null && shard.onTargetCounts != null) {
+            onTargetCounts.add(shard.onTargetCounts);
+        }
+    }
+
+    private SamReader newReader() {
+        return SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(bam);
+    }
+
+    // merged & sorted 1-based closed intervals per contig: [0] = starts, [1] = ends
+    private static Map<String, int[][]> loadTargets(File intervalList) {
+        Map<String, List<Interval>> byContig = new HashMap<String, List<Interval>>();
+        for (Interval interval : IntervalList.fromFile(intervalList).uniqued().getIntervals()) {
+            List<Interval> intervals = byContig.get(interval.getContig());
+            if (intervals == null) {
+                intervals = new ArrayList<Interval>();
+                byContig.put(interval.getContig(), intervals);
+            }
+            intervals.add(interval);
+        }
+        Map<String, int[][]> targets = new HashMap<String, int[][]>();
+        for (Map.Entry<String, List<Interval>> entry : byContig.entrySet()) {
+            List<Interval> intervals = entry.getValue();
+            int[][] bounds = new int[2][intervals.size()];
+            for (int i = 0; i < intervals.size(); i++) {
+                bounds[0][i] = intervals.get(i).getStart();
+                bounds[1][i] = intervals.get(i).getEnd();
+            }
+            targets.put(entry.getKey(), bounds);
+        }
+        return targets;
+    }
+
+    private static boolean overlaps(int[][] bounds, int start, int end) {
+        // last target starting at or before the read's end
+        int low = 0;
+        int high = bounds[0].length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (bounds[0][mid] <= end) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 && bounds[1][found] >= start;
+    }
+
+    class Shard implements Callable<Shard> {
+
+        private final SAMSequenceRecord sequence;
+
+        private final Map<String, int[][]> targets;
+
+        private final FlagstatCounts counts = new FlagstatCounts();
+
+        private FlagstatCounts onTargetCounts;
+
+        public Shard(SAMSequenceRecord sequence, Map<String, int[][]> targets) {
+            super();
+            this.sequence = sequence;
+            this.targets = targets;
+            if (targets != null) {
+                this.onTargetCounts = new FlagstatCounts();
+            }
+        }
+
+        @Override
+        public Shard call() throws IOException {
+            try (SamReader reader = newReader()) {
+                SAMRecordIterator iter;
+                if (sequence != null) {
+                    iter = reader.queryOverlapping(sequence.getSequenceName(), 0, 0);
+                } else if (reader.hasIndex()) {
+                    iter = reader.queryUnmapped();
+                } else {
+                    iter = reader.iterator();
+                }
+                try {
+                    while (iter.hasNext()) {
+                        SAMRecord record = iter.next();
+                        int flags = record.getFlags();
+                        int referenceIndex = record.getReferenceIndex();
+                        int mateReferenceIndex = record.getMateReferenceIndex();
+                        int mappingQuality = record.getMappingQuality();
+                        counts.add(flags, referenceIndex, mateReferenceIndex, mappingQuality);
+                        if (onTargetCounts != null && !record.getReadUnmappedFlag()) {
+                            int[][] bounds = targets.get(record.getReferenceName());
+                            if (bounds != null && overlaps(bounds, record.getAlignmentStart(), record.getAlignmentEnd())) {
+                                onTargetCounts.add(flags, referenceIndex, mateReferenceIndex, mappingQuality);
+                            }
+                        }
+                    }
+                } finally {
+                    iter.close();
+                }
+            }
+            return this;
+        }
+
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public File getIntervalList() {
+        return intervalList;
+    }
+
+    public void setIntervalList(File intervalList) {
+        this.intervalList = intervalList;
+    }
+
+    public File getBam() {
+        return bam;
+    }
+
+    public FlagstatCounts getCounts() {
+        return counts;
+    }
+
+    public FlagstatCounts getOnTargetCounts() {
+        return onTargetCounts;
+    }
+
+}
@@ -0,0 +1,161 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.dao.MaPSeqDAOBeanService;
+import edu.unc.mapseq.dao.MaPSeqDAOException;
+import edu.unc.mapseq.dao.model.MimeType;
+import edu.unc.mapseq.dao.model.Sample;
+import edu.unc.mapseq.dao.model.Workflow;
+import edu.unc.mapseq.module.sequencing.samtools.SAMToolsFlagstat;
+import edu.unc.mapseq.workflow.WorkflowException;
+import edu.unc.mapseq.workflow.core.WorkflowUtil;
+
+public class FlagstatMetricsCollector extends AbstractQualityControlMetricsCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlagstatMetricsCollector.class);
+
+    private static final Pattern PERCENTAGE_PATTERN = Pattern.compile("^.+\\((.+)\\)");
+
+    private final MaPSeqDAOBeanService mapseqDAOBeanService;
+
+    private final Workflow workflow;
+
+    private Boolean nativeFlagstat = Boolean.FALSE;
+
+    private Integer threads = 4;
+
+    private File intervalList;
+
+    public FlagstatMetricsCollector(MaPSeqDAOBeanService mapseqDAOBeanService, Workflow workflow) {
+        super();
+        this.mapseqDAOBeanService = mapseqDAOBeanService;
+        this.workflow = workflow;
+    }
+
+    @Override
+    public void collect(Sample sample, File[] files, Map<String, String> metrics)
+            throws MaPSeqDAOException, WorkflowException, IOException {
+
+        if (nativeFlagstat) {
+            File recalibratedBAM = findFileBySuffix(files, ".recal.bam");
+            if (recalibratedBAM != null) {
+                calculate(recalibratedBAM, metrics);
+                return;
+            }
+            logger.warn("recalibrated bam was not found...checking for an existing flagstat file");
+        }
+
+        File flagstatFile = WorkflowUtil.findFileByJobAndMimeTypeAndWorkflowId(mapseqDAOBeanService, sample.getFileDatas(),
+                SAMToolsFlagstat.class, MimeType.TEXT_STAT_SUMMARY, workflow.getId());
+        if (flagstatFile == null) {
+            logger.warn("flagstat file to process was not found...checking FS");
+            flagstatFile = findFileBySuffix(files, "samtools.flagstat");
+        }
+        if (flagstatFile == null) {
+            logger.error("flagstat file to process was still not found");
+            return;
+        }
+
+        parseFlagstat(FileUtils.readLines(flagstatFile), metrics);
+    }
+
+    // one read of the bam replaces the samtools & GATK flagstat jobs, files are written where those jobs wrote them
+    private void calculate(File recalibratedBAM, Map<String, String> metrics) throws IOException {
+        FlagstatEngine engine = new FlagstatEngine(recalibratedBAM);
+        engine.setThreads(threads);
+        engine.setIntervalList(intervalList);
+        engine.calculate();
+
+        String samtoolsFlagstat = engine.getCounts().toSAMToolsFormat();
+        write(new File(recalibratedBAM.getParentFile(), recalibratedBAM.getName().replace(".bam", ".samtools.flagstat")),
+                samtoolsFlagstat);
+        if (engine.getOnTargetCounts() != null) {
+            write(new File(recalibratedBAM.getParentFile(), recalibratedBAM.getName().replace(".bam", ".gatk.flagstat")),
+                    engine.getOnTargetCounts().toGATKFormat());
+        }
+
+        parseFlagstat(Arrays.asList(StringUtils.split(samtoolsFlagstat, "\n")), metrics);
+    }
+
+    private void write(File file, String content) throws IOException {
+        checkInterrupted(file);
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        FileUtils.writeStringToFile(tmpFile, content);
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void parseFlagstat(List<String> lines, Map<String, String> metrics) {
+        if (CollectionUtils.isEmpty(lines)) {
+            return;
+        }
+        for (String line : lines) {
+
+            if (line.contains("in total")) {
+                metrics.put("SAMToolsFlagstat.totalPassedReads", line.substring(0, line.indexOf(" ")).trim());
+            }
+
+            if (line.contains("mapped (")) {
+                String value = parsePercentage(line);
+                if (StringUtils.isNotEmpty(value)) {
+                    metrics.put("SAMToolsFlagstat.aligned", value);
+                }
+            }
+
+            if (line.contains("properly paired (")) {
+                String value = parsePercentage(line);
+                if (StringUtils.isNotEmpty(value)) {
+                    metrics.put("SAMToolsFlagstat.paired", value);
+                }
+            }
+        }
+    }
+
+    private String parsePercentage(String line) {
+        Matcher matcher = PERCENTAGE_PATTERN.matcher(line);
+        if (matcher.matches()) {
+            String value = matcher.group(1);
+            return value.substring(0, value.indexOf("%")).trim();
+        }
+        return null;
+    }
+
+    public Boolean getNativeFlagstat() {
+        return nativeFlagstat;
+    }
+
+    public void setNativeFlagstat(Boolean nativeFlagstat) {
+        this.nativeFlagstat = nativeFlagstat;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public File getIntervalList() {
+        return intervalList;
+    }
+
+    public void setIntervalList(File intervalList) {
+        this.intervalList = intervalList;
+    }
+
+}
@@ -0,0 +1,163 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+// the ic_snps genotypes packed 2 bits a site, 32 sites a word, so comparing two samples is a few xors & popcounts
+public class ICSNPFingerprint {
+
+    public static final int NO_CALL = 0;
+
+    public static final int HOM_REF = 1;
+
+    public static final int HET = 2;
+
+    public static final int HOM_ALT = 3;
+
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    private final String[] sites;
+
+    private final long[] genotypes;
+
+    private final int panelHash;
+
+    public ICSNPFingerprint(String[] sites, long[] genotypes) {
+        super();
+        if (genotypes.length != getWordCount(sites.length)) {
+            throw new IllegalArgumentException(String.format("%d sites need %d words, not %d", sites.length,
+                    getWordCount(sites.length), genotypes.length));
+        }
+        this.sites = sites;
+        this.genotypes = genotypes;
+        this.panelHash = Arrays.hashCode(sites);
+    }
+
+    public static int getWordCount(int siteCount) {
+        return (siteCount + 31) / 32;
+    }
+
+    // sites are chrom:pos in file order, the first sample column is the one genotyped
+    public static ICSNPFingerprint parse(File vcfFile) throws IOException {
+        List<String> sites = new ArrayList<String>();
+        List<Integer> calls = new ArrayList<Integer>();
+        try (BufferedReader br = new BufferedReader(new FileReader(vcfFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("#") || StringUtils.isBlank(line)) {
+                    continue;
+                }
+                String[] columns = StringUtils.splitPreserveAllTokens(line, '\t');
+                if (columns.length < 10) {
+                    continue;
+                }
+                sites.add(String.format("%s:%s", columns[0], columns[1]));
+                int index = Arrays.asList(StringUtils.split(columns[8], ':')).indexOf("GT");
+                String[] values = StringUtils.splitPreserveAllTokens(columns[9], ':');
+                calls.add(index >= 0 && index < values.length ? toGenotype(values[index]) : NO_CALL);
+            }
+        }
+        long[] genotypes = new long[getWordCount(sites.size())];
+        for (int i = 0; i < calls.size(); i++) {
+            genotypes[i >>> 5] |= (long) calls.get(i) << ((i & 31) << 1);
+        }
+        return new ICSNPFingerprint(sites.toArray(new String[sites.size()]), genotypes);
+    }
+
+    // any two different alt alleles are a het, 1/1 & 2/2 are both a hom alt
+    public static int toGenotype(String gt) {
+        String[] alleles = StringUtils.split(gt, "/|");
+        if (alleles == null || alleles.length != 2 || !StringUtils.isNumeric(alleles[0]) || !StringUtils.isNumeric(alleles[1])
+                || alleles[0].isEmpty() || alleles[1].isEmpty()) {
+            return NO_CALL;
+        }
+        if (!alleles[0].equals(alleles[1])) {
+            return HET;
+        }
+        return "0".equals(alleles[0]) ? HOM_REF : HOM_ALT;
+    }
+
+    public int getGenotype(int site) {
+        return (int) (genotypes[site >>> 5] >>> ((site & 31) << 1)) & 3;
+    }
+
+    // only sites called in both samples count, a pair with no such sites has a null concordance
+    public Concordance compare(ICSNPFingerprint other) {
+        long[] otherGenotypes = isSamePanel(other) ? other.genotypes : other.project(sites);
+        int sitesCompared = 0;
+        int concordantSites = 0;
+        for (int i = 0; i < genotypes.length; i++) {
+            long a = genotypes[i];
+            long b = otherGenotypes[i];
+            long called = (a | (a >>> 1)) & (b | (b >>> 1)) & LOW_BITS;
+            long same = ~(a ^ b);
+            sitesCompared += Long.bitCount(called);
+            concordantSites += Long.bitCount(same & (same >>> 1) & called);
+        }
+        return new Concordance(sitesCompared, concordantSites);
+    }
+
+    private boolean isSamePanel(ICSNPFingerprint other) {
+        return sites == other.sites || (panelHash == other.panelHash && Arrays.equals(sites, other.sites));
+    }
+
+    // this sample's genotypes laid out on another panel's sites, sites missing here are no calls
+    private long[] project(String[] panel) {
+        Map<String, Integer> siteIndex = new HashMap<String, Integer>();
+        for (int i = 0; i < sites.length; i++) {
+            siteIndex.put(sites[i], i);
+        }
+        long[] ret = new long[getWordCount(panel.length)];
+        for (int i = 0; i < panel.length; i++) {
+            Integer site = siteIndex.get(panel[i]);
+            if (site != null) {
+                ret[i >>> 5] |= (long) getGenotype(site) << ((i & 31) << 1);
+            }
+        }
+        return ret;
+    }
+
+    public String[] getSites() {
+        return sites;
+    }
+
+    public long[] getGenotypes() {
+        return genotypes;
+    }
+
+    public static class Concordance {
+
+        private final int sitesCompared;
+
+        private final int concordantSites;
+
+        public Concordance(int sitesCompared, int concordantSites) {
+            super();
+            this.sitesCompared = sitesCompared;
+            this.concordantSites = concordantSites;
+        }
+
+        public int getSitesCompared() {
+            return sitesCompared;
+        }
+
+        public int getConcordantSites() {
+            return concordantSites;
+        }
+
+        public Double getConcordance() {
+            return sitesCompared > 0 ? (double) concordantSites / sitesCompared : null;
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// the fingerprint kept next to the ic_snps VCF, a few hundred bytes that are read back without parsing the VCF
+public class ICSNPFingerprintStore {
+
+    public static final String SUFFIX = ".fingerprint";
+
+    private static final int MAGIC = 0x49435350;
+
+    private static final int VERSION = 1;
+
+    private ICSNPFingerprintStore() {
+        super();
+    }
+
+    public static File getFingerprintFile(File vcfFile) {
+        return new File(vcfFile.getParentFile(), vcfFile.getName() + SUFFIX);
+    }
+
+    // null when there is no stored fingerprint or the VCF was rewritten after it
+    public static ICSNPFingerprint read(File vcfFile) throws IOException {
+        File fingerprintFile = getFingerprintFile(vcfFile);
+        if (!fingerprintFile.exists() || fingerprintFile.lastModified() < vcfFile.lastModified()) {
+            return null;
+        }
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(fingerprintFile)))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION) {
+                return null;
+            }
+            String[] sites = new String[dis.readInt()];
+            for (int i = 0; i < sites.length; i++) {
+                sites[i] = dis.readUTF();
+            }
+            long[] genotypes = new long[dis.readInt()];
+            for (int i = 0; i < genotypes.length; i++) {
+                genotypes[i] = dis.readLong();
+            }
+            return new ICSNPFingerprint(sites, genotypes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Could not read %s", fingerprintFile.getAbsolutePath()), e);
+        }
+    }
+
+    public static void write(File vcfFile, ICSNPFingerprint fingerprint) throws IOException {
+        File fingerprintFile = getFingerprintFile(vcfFile);
+        File tmpFile = new File(fingerprintFile.getParentFile(), fingerprintFile.getName() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeInt(fingerprint.getSites().length);
+            for (String site : fingerprint.getSites()) {
+                dos.writeUTF(site);
+            }
+            dos.writeInt(fingerprint.getGenotypes().length);
+            for (long word : fingerprint.getGenotypes()) {
+                dos.writeLong(word);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmpFile.toPath());
+            throw e;
+        }
+        Files.move(tmpFile.toPath(), fingerprintFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
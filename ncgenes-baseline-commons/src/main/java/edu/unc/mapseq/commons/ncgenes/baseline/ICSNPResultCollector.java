@@ -0,0 +1,32 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.renci.vcf.VCFParser;
+import org.renci.vcf.VCFResult;
+
+import edu.unc.mapseq.dao.model.Sample;
+
+// parses the ic_snps VCF once at harvest time, so the web service reads the stored result & fingerprint instead
+public class ICSNPResultCollector extends AbstractQualityControlMetricsCollector {
+
+    public ICSNPResultCollector() {
+        super();
+    }
+
+    @Override
+    public void collect(Sample sample, File[] files, Map<String, String> metrics) throws IOException {
+        File vcfFile = findFileBySuffix(files, ".ic_snps.vcf");
+        if (vcfFile == null) {
+            return;
+        }
+        VCFResult result = VCFParser.getInstance().parse(vcfFile);
+        if (result != null) {
+            ICSNPResultStore.write(vcfFile, result);
+        }
+        ICSNPFingerprintStore.write(vcfFile, ICSNPFingerprint.parse(vcfFile));
+    }
+
+}
@@ -0,0 +1,69 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.stream.StreamSource;
+
+import org.renci.vcf.VCFResult;
+
+// the parsed ic_snps VCF kept next to it as gzipped xml, a few KB that read back without parsing the VCF
+public class ICSNPResultStore {
+
+    public static final String SUFFIX = ".result.xml.gz";
+
+    private static JAXBContext context;
+
+    private ICSNPResultStore() {
+        super();
+    }
+
+    public static File getResultFile(File vcfFile) {
+        return new File(vcfFile.getParentFile(), vcfFile.getName() + SUFFIX);
+    }
+
+    // null when there is no stored result or the VCF was rewritten after it
+    public static VCFResult read(File vcfFile) throws IOException {
+        File resultFile = getResultFile(vcfFile);
+        if (!resultFile.exists() || resultFile.lastModified() < vcfFile.lastModified()) {
+            return null;
+        }
+        try (InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(resultFile)))) {
+            return getContext().createUnmarshaller().unmarshal(new StreamSource(is), VCFResult.class).getValue();
+        } catch (JAXBException e) {
+            throw new IOException(String.format("Could not read %s", resultFile.getAbsolutePath()), e);
+        }
+    }
+
+    public static void write(File vcfFile, VCFResult result) throws IOException {
+        File resultFile = getResultFile(vcfFile);
+        File tmpFile = new File(resultFile.getParentFile(), resultFile.getName() + ".tmp");
+        try (OutputStream os = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            getContext().createMarshaller().marshal(result, os);
+        } catch (JAXBException e) {
+            Files.deleteIfExists(tmpFile.toPath());
+            throw new IOException(String.format("Could not write %s", resultFile.getAbsolutePath()), e);
+        }
+        Files.move(tmpFile.toPath(), resultFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static synchronized JAXBContext getContext() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(VCFResult.class);
+        }
+        return context;
+    }
+
+}
@@ -0,0 +1,81 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    // upper bounds in seconds, the last bucket takes everything longer
+    private static final long[] BOUNDS = new long[] { 1, 10, 60, 5 * 60, 15 * 60, 60 * 60, 4 * 60 * 60, 12 * 60 * 60, 24 * 60 * 60 };
+
+    private static final String[] LABELS = new String[] { "<=1s", "<=10s", "<=1m", "<=5m", "<=15m", "<=1h", "<=4h", "<=12h", "<=24h",
+            ">24h" };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        super();
+    }
+
+    public void record(long millis) {
+        long value = Math.max(0L, millis);
+        int bucket = 0;
+        while (bucket < BOUNDS.length && value > BOUNDS[bucket] * 1000L) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMean() {
+        long n = count.get();
+        return n > 0 ? total.get() / n : 0L;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // upper bound of the bucket holding the given fraction of recordings, in ms, -1 when it is the open-ended bucket
+    public long getPercentile(double fraction) {
+        long n = count.get();
+        if (n == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(n * fraction);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return BOUNDS[i] * 1000L;
+            }
+        }
+        return -1L;
+    }
+
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> ret = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < LABELS.length; i++) {
+            ret.put(LABELS[i], buckets.get(i));
+        }
+        return ret;
+    }
+
+}
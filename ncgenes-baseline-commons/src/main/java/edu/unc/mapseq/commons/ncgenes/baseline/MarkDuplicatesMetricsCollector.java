@@ -0,0 +1,45 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import edu.unc.mapseq.dao.model.Sample;
+
+public class MarkDuplicatesMetricsCollector extends AbstractQualityControlMetricsCollector {
+
+    public MarkDuplicatesMetricsCollector() {
+        super();
+    }
+
+    @Override
+    public void collect(Sample sample, File[] files, Map<String, String> metrics) throws IOException {
+
+        File picardMarkDuplicatesMetricsFile = findFileBySuffix(files, ".deduped.metrics");
+        if (picardMarkDuplicatesMetricsFile == null) {
+            return;
+        }
+
+        List<String> lines = FileUtils.readLines(picardMarkDuplicatesMetricsFile);
+        if (CollectionUtils.isEmpty(lines)) {
+            return;
+        }
+        Iterator<String> lineIter = lines.iterator();
+        while (lineIter.hasNext()) {
+            String line = lineIter.next();
+            if (line.startsWith("LIBRARY") && lineIter.hasNext()) {
+                String[] split = StringUtils.split(lineIter.next());
+                metrics.put("PicardMarkDuplicates.readPairDuplicates", split[6]);
+                metrics.put("PicardMarkDuplicates.percentDuplication", split[7]);
+                break;
+            }
+        }
+    }
+
+}
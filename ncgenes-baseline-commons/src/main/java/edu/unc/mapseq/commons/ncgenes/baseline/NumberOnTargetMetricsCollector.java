@@ -0,0 +1,34 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import edu.unc.mapseq.dao.model.Sample;
+
+public class NumberOnTargetMetricsCollector extends AbstractQualityControlMetricsCollector {
+
+    public NumberOnTargetMetricsCollector() {
+        super();
+    }
+
+    @Override
+    public void collect(Sample sample, File[] files, Map<String, String> metrics) {
+
+        String totalCoverageCount = metrics.get("GATKDepthOfCoverage.totalCoverageCount");
+        if (StringUtils.isEmpty(totalCoverageCount)) {
+            return;
+        }
+
+        // fall back to what a previous harvest persisted
+        String totalPassedReads = metrics.get("SAMToolsFlagstat.totalPassedReads");
+        if (totalPassedReads == null) {
+            totalPassedReads = findAttributeValue(sample.getAttributes(), "SAMToolsFlagstat.totalPassedReads");
+        }
+        if (StringUtils.isNotEmpty(totalPassedReads)) {
+            metrics.put("numberOnTarget", (double) Long.valueOf(totalCoverageCount) / (Long.valueOf(totalPassedReads) * 100) + "");
+        }
+    }
+
+}
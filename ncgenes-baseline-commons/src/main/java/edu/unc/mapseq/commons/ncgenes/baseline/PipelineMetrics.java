@@ -0,0 +1,110 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+// shared by the workflow, commons & executor bundles, which all load this class from the commons bundle
+public class PipelineMetrics {
+
+    private static final PipelineMetrics instance = new PipelineMetrics();
+
+    private static final long RATE_WINDOW = 60L * 60L * 1000L;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+
+    private final LatencyHistogram enqueueToDequeue = new LatencyHistogram();
+
+    private final LatencyHistogram dequeueToDone = new LatencyHistogram();
+
+    private final Map<String, LatencyHistogram> postRunStages = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    private final AtomicLong irodsFilesRegistered = new AtomicLong();
+
+    private final AtomicLong irodsBytesRegistered = new AtomicLong();
+
+    private final AtomicLong irodsRegistrationTime = new AtomicLong();
+
+    private final AtomicLong dagsSubmitted = new AtomicLong();
+
+    private final ConcurrentLinkedDeque<Long> recentSubmissions = new ConcurrentLinkedDeque<Long>();
+
+    public static PipelineMetrics getInstance() {
+        return instance;
+    }
+
+    private PipelineMetrics() {
+        super();
+    }
+
+    public void recordPostRunStage(String stage, long millis) {
+        LatencyHistogram histogram = postRunStages.get(stage);
+        if (histogram == null) {
+            postRunStages.putIfAbsent(stage, new LatencyHistogram());
+            histogram = postRunStages.get(stage);
+        }
+        histogram.record(millis);
+    }
+
+    public void recordIRODSRegistration(long files, long bytes, long millis) {
+        irodsFilesRegistered.addAndGet(files);
+        irodsBytesRegistered.addAndGet(bytes);
+        irodsRegistrationTime.addAndGet(millis);
+    }
+
+    public void recordDAGSubmission() {
+        long now = System.currentTimeMillis();
+        dagsSubmitted.incrementAndGet();
+        recentSubmissions.addLast(now);
+        pruneSubmissions(now);
+    }
+
+    // submissions over the last hour
+    public long getDAGSubmissionRate() {
+        pruneSubmissions(System.currentTimeMillis());
+        return recentSubmissions.size();
+    }
+
+    private void pruneSubmissions(long now) {
+        Long oldest;
+        while ((oldest = recentSubmissions.peekFirst()) != null && oldest < now - RATE_WINDOW) {
+            recentSubmissions.remove(oldest);
+        }
+    }
+
+    // files per hour spent running ireg & imeta
+    public double getIRODSRegistrationThroughput() {
+        long millis = irodsRegistrationTime.get();
+        return millis > 0 ? irodsFilesRegistered.get() * RATE_WINDOW / (double) millis : 0D;
+    }
+
+    public AtomicLong getQueueDepth() {
+        return queueDepth;
+    }
+
+    public LatencyHistogram getEnqueueToDequeue() {
+        return enqueueToDequeue;
+    }
+
+    public LatencyHistogram getDequeueToDone() {
+        return dequeueToDone;
+    }
+
+    public Map<String, LatencyHistogram> getPostRunStages() {
+        return postRunStages;
+    }
+
+    public long getIRODSFilesRegistered() {
+        return irodsFilesRegistered.get();
+    }
+
+    public long getIRODSBytesRegistered() {
+        return irodsBytesRegistered.get();
+    }
+
+    public long getDAGsSubmitted() {
+        return dagsSubmitted.get();
+    }
+
+}
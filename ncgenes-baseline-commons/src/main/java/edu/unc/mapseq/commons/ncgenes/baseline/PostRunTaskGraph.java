@@ -0,0 +1,108 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PostRunTaskGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostRunTaskGraph.class);
+
+    private final Map<String, Runnable> tasks = new LinkedHashMap<String, Runnable>();
+
+    private final Map<String, List<String>> dependencies = new HashMap<String, List<String>>();
+
+    private final Map<String, Long> durations = new ConcurrentHashMap<String, Long>();
+
+    private final Set<String> failed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public PostRunTaskGraph() {
+        super();
+    }
+
+    // dependencies have to be added before their dependents, which keeps the graph acyclic
+    public PostRunTaskGraph addTask(String name, Runnable task, String... dependsOn) {
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException(String.format("task already added: %s", name));
+        }
+        for (String dependency : dependsOn) {
+            if (!tasks.containsKey(dependency)) {
+                throw new IllegalArgumentException(String.format("%s depends on unknown task: %s", name, dependency));
+            }
+        }
+        tasks.put(name, task);
+        dependencies.put(name, Arrays.asList(dependsOn));
+        return this;
+    }
+
+    public CompletableFuture<Void> execute(Executor executor) {
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<String, CompletableFuture<Void>>();
+
+        for (Map.Entry<String, Runnable> entry : tasks.entrySet()) {
+            final String name = entry.getKey();
+            final Runnable task = entry.getValue();
+
+            List<String> dependsOn = dependencies.get(name);
+            CompletableFuture<?>[] inputs = new CompletableFuture<?>[dependsOn.size()];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = futures.get(dependsOn.get(i));
+            }
+
+            // starts once every input has completed, skipped if any of them failed
+            CompletableFuture<Void> future = CompletableFuture.allOf(inputs).thenRunAsync(new Runnable() {
+                @Override
+                public void run() {
+                    logger.info("starting post-run task: {}", name);
+                    long start = System.currentTimeMillis();
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        failed.add(name);
+                        logger.error(String.format("post-run task failed: %s", name), e);
+                        throw e;
+                    } finally {
+                        durations.put(name, System.currentTimeMillis() - start);
+                    }
+                    logger.info("finished post-run task: {} in {} ms", name, durations.get(name));
+                }
+            }, executor);
+
+            future.whenComplete(new BiConsumer<Void, Throwable>() {
+                @Override
+                public void accept(Void result, Throwable t) {
+                    if (t != null && !failed.contains(name)) {
+                        logger.warn("skipped post-run task: {}, a dependency failed", name);
+                    }
+                }
+            });
+
+            futures.put(name, future);
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    public Map<String, Long> getDurations() {
+        return durations;
+    }
+
+    public Set<String> getFailed() {
+        return failed;
+    }
+
+    public Set<String> getTaskNames() {
+        return tasks.keySet();
+    }
+
+}
@@ -0,0 +1,110 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class QualityControlHarvestReport {
+
+    private final Set<Long> loaded = Collections.synchronizedSet(new LinkedHashSet<Long>());
+
+    private final Set<Long> finished = Collections.synchronizedSet(new LinkedHashSet<Long>());
+
+    private final Set<Long> failed = Collections.synchronizedSet(new LinkedHashSet<Long>());
+
+    private final Set<Long> timedOut = Collections.synchronizedSet(new LinkedHashSet<Long>());
+
+    // samples that failed or timed out, by the stage they did it in
+    private final ConcurrentMap<String, Set<Long>> incomplete = new ConcurrentHashMap<String, Set<Long>>();
+
+    public QualityControlHarvestReport() {
+        super();
+    }
+
+    public Set<Long> getLoaded() {
+        return loaded;
+    }
+
+    public void load(Collection<Long> sampleIds) {
+        loaded.addAll(sampleIds);
+    }
+
+    public Set<Long> getFinished() {
+        return finished;
+    }
+
+    public Set<Long> getFailed() {
+        return failed;
+    }
+
+    public Set<Long> getTimedOut() {
+        return timedOut;
+    }
+
+    // a sample that timed out is never saved, one that failed in a collector is still saved with what the others collected
+    public synchronized boolean finish(Long sampleId) {
+        if (timedOut.contains(sampleId)) {
+            return false;
+        }
+        finished.add(sampleId);
+        return true;
+    }
+
+    public synchronized void fail(String stage, Long sampleId) {
+        failed.add(sampleId);
+        addIncomplete(stage, sampleId);
+    }
+
+    public synchronized boolean timeOut(String stage, Long sampleId) {
+        if (finished.contains(sampleId)) {
+            return false;
+        }
+        timedOut.add(sampleId);
+        addIncomplete(stage, sampleId);
+        return true;
+    }
+
+    public boolean isTimedOut(Long sampleId) {
+        return timedOut.contains(sampleId);
+    }
+
+    private void addIncomplete(String stage, Long sampleId) {
+        Set<Long> sampleIds = incomplete.get(stage);
+        if (sampleIds == null) {
+            incomplete.putIfAbsent(stage, Collections.synchronizedSet(new LinkedHashSet<Long>()));
+            sampleIds = incomplete.get(stage);
+        }
+        sampleIds.add(sampleId);
+    }
+
+    public Set<Long> getIncomplete(String stage) {
+        Set<Long> sampleIds = incomplete.get(stage);
+        return sampleIds != null ? sampleIds : Collections.<Long> emptySet();
+    }
+
+    // loaded samples that weren't saved, including those the harvest was stopped before it got to
+    public synchronized Set<Long> getUnfinished() {
+        Set<Long> ret = new LinkedHashSet<Long>();
+        synchronized (loaded) {
+            ret.addAll(loaded);
+        }
+        synchronized (finished) {
+            ret.removeAll(finished);
+        }
+        return ret;
+    }
+
+    public boolean isComplete() {
+        return failed.isEmpty() && timedOut.isEmpty() && getUnfinished().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QualityControlHarvestReport [finished=%s, failed=%s, timedOut=%s, unfinished=%s]", finished, failed,
+                timedOut, getUnfinished());
+    }
+
+}
@@ -335,6 +335,8 @@ public class RegisterToIRODSRunnable implements Runnable {
                 }
                 files2RegisterToIRODS.add(new IRODSBean(file, attributeListWithJob));
 
+                long registeredFiles = 0;
+                long registeredBytes = 0;
                 for (IRODSBean bean : files2RegisterToIRODS) {
 
                     commandInput = new CommandInput();
@@ -345,6 +347,8 @@ public class RegisterToIRODSRunnable implements Runnable {
                         logger.warn("file to register doesn't exist: {}", f.getAbsolutePath());
                         continue;
                     }
+                    registeredFiles++;
+                    registeredBytes += f.length();
 
                     StringBuilder registerCommandSB = new StringBuilder();
                     String registrationCommand = String.format("$IRODS_HOME/ireg -f %s %s/%s", bean.getFile().getAbsolutePath(),
@@ -373,6 +377,7 @@ public class RegisterToIRODSRunnable implements Runnable {
                 File mapseqrc = new File(System.getProperty("user.home"), ".mapseqrc");
                 Executor executor = BashExecutor.getInstance();
 
+                long start = System.currentTimeMillis();
                 for (CommandInput ci : commandInputList) {
                     try {
                         logger.debug("ci.getCommand(): {}", ci.getCommand());
@@ -389,6 +394,8 @@ public class RegisterToIRODSRunnable implements Runnable {
                     }
                 }
 
+                PipelineMetrics.getInstance().recordIRODSRegistration(registeredFiles, registeredBytes, System.currentTimeMillis() - start);
+
                 logger.info("FINISHED PROCESSING: {}", sample.toString());
 
             }
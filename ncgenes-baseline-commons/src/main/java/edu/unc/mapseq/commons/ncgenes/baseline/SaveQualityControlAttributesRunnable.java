@@ -0,0 +1,510 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.dao.MaPSeqDAOBeanService;
+import edu.unc.mapseq.dao.MaPSeqDAOException;
+import edu.unc.mapseq.dao.model.Attribute;
+import edu.unc.mapseq.dao.model.Sample;
+import edu.unc.mapseq.dao.model.Workflow;
+import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
+import edu.unc.mapseq.workflow.WorkflowException;
+import edu.unc.mapseq.workflow.sequencing.SequencingWorkflowUtil;
+
+public class SaveQualityControlAttributesRunnable implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SaveQualityControlAttributesRunnable.class);
+
+    private MaPSeqDAOBeanService mapseqDAOBeanService;
+
+    private WorkflowRunAttempt workflowRunAttempt;
+
+    private Integer poolSize = 4;
+
+    private Long sampleTimeout = 15L;
+
+    private Boolean nativeFlagstat = Boolean.FALSE;
+
+    private Integer flagstatThreads = 4;
+
+    private File flagstatIntervalList;
+
+    private Boolean nativeDepthOfCoverage = Boolean.FALSE;
+
+    private Integer depthOfCoverageThreads = 4;
+
+    private File depthOfCoverageIntervalList;
+
+    private final QualityControlHarvestReport report = new QualityControlHarvestReport();
+
+    private volatile List<Sample> samples = Collections.emptyList();
+
+    private final ConcurrentMap<Long, File[]> outputFiles = new ConcurrentHashMap<Long, File[]>();
+
+    private final ConcurrentMap<Long, Map<String, String>> metrics = new ConcurrentHashMap<Long, Map<String, String>>();
+
+    private final ConcurrentMap<Long, SampleClock> clocks = new ConcurrentHashMap<Long, SampleClock>();
+
+    // samples whose ic_snps sidecar files weren't written, the web service parses the VCF itself for those
+    private final Set<Long> sidecarFailures = Collections.synchronizedSet(new LinkedHashSet<Long>());
+
+    public SaveQualityControlAttributesRunnable() {
+        super();
+    }
+
+    public SaveQualityControlAttributesRunnable(MaPSeqDAOBeanService mapseqDAOBeanService, WorkflowRunAttempt workflowRunAttempt) {
+        super();
+        this.mapseqDAOBeanService = mapseqDAOBeanService;
+        this.workflowRunAttempt = workflowRunAttempt;
+    }
+
+    @Override
+    public void run() {
+        logger.info("ENTERING run()");
+
+        PostRunTaskGraph graph = new PostRunTaskGraph();
+        addTasks(graph);
+
+        ExecutorService es = Executors.newCachedThreadPool();
+        try {
+            graph.execute(es).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("QC harvest did not complete", e.getCause());
+        } finally {
+            shutdown(es);
+        }
+
+        logger.info(report.toString());
+        if (!sidecarFailures.isEmpty()) {
+            logger.warn("ic_snps sidecar files not written for samples: {}", sidecarFailures);
+        }
+    }
+
+    public void addTasks(PostRunTaskGraph graph) {
+        final Workflow workflow = workflowRunAttempt.getWorkflowRun().getWorkflow();
+
+        graph.addTask("loadSamples", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Set<Sample> sampleSet = SequencingWorkflowUtil.getAggregatedSamples(mapseqDAOBeanService, workflowRunAttempt);
+                    if (CollectionUtils.isEmpty(sampleSet)) {
+                        logger.warn("No Samples found");
+                        return;
+                    }
+                    List<Long> sampleIds = new ArrayList<Long>();
+                    for (Sample sample : sampleSet) {
+                        metrics.put(sample.getId(), new ConcurrentHashMap<String, String>());
+                        clocks.put(sample.getId(), new SampleClock(TimeUnit.MINUTES.toNanos(sampleTimeout)));
+                        sampleIds.add(sample.getId());
+                    }
+                    report.load(sampleIds);
+                    samples = new ArrayList<Sample>(sampleSet);
+                } catch (MaPSeqDAOException | WorkflowException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        graph.addTask("listOutputFiles", new Runnable() {
+            @Override
+            public void run() {
+                forEachSample("listOutputFiles", new SampleTask() {
+                    @Override
+                    public void execute(Sample sample) throws Exception {
+                        File outputDirectory = SequencingWorkflowUtil.createOutputDirectory(sample, workflow);
+                        if (!outputDirectory.exists()) {
+                            logger.warn("output directory doesn't exist: {}", outputDirectory.getAbsolutePath());
+                            return;
+                        }
+                        File[] files = outputDirectory.listFiles();
+                        if (files == null || files.length == 0) {
+                            logger.warn("no files found");
+                            return;
+                        }
+                        outputFiles.put(sample.getId(), files);
+                    }
+                });
+            }
+        }, "loadSamples");
+
+        FlagstatMetricsCollector flagstatMetricsCollector = new FlagstatMetricsCollector(mapseqDAOBeanService, workflow);
+        flagstatMetricsCollector.setNativeFlagstat(nativeFlagstat);
+        flagstatMetricsCollector.setThreads(flagstatThreads);
+        flagstatMetricsCollector.setIntervalList(flagstatIntervalList);
+        graph.addTask("flagstat", new CollectMetricsTask("flagstat", flagstatMetricsCollector), "listOutputFiles");
+        graph.addTask("markDuplicates", new CollectMetricsTask("markDuplicates", new MarkDuplicatesMetricsCollector()),
+                "listOutputFiles");
+        DepthOfCoverageMetricsCollector depthOfCoverageMetricsCollector = new DepthOfCoverageMetricsCollector();
+        depthOfCoverageMetricsCollector.setNativeDepthOfCoverage(nativeDepthOfCoverage);
+        depthOfCoverageMetricsCollector.setThreads(depthOfCoverageThreads);
+        depthOfCoverageMetricsCollector.setIntervalList(depthOfCoverageIntervalList);
+        graph.addTask("depthOfCoverage", new CollectMetricsTask("depthOfCoverage", depthOfCoverageMetricsCollector), "listOutputFiles");
+        // only writes sidecar files, so it neither gates the save nor uses up a sample's deadline when it fails
+        graph.addTask("icSNPResult", new CollectMetricsTask("icSNPResult", new ICSNPResultCollector(), true), "listOutputFiles");
+        // numberOnTarget is derived from the flagstat read count & the coverage total
+        graph.addTask("numberOnTarget", new CollectMetricsTask("numberOnTarget", new NumberOnTargetMetricsCollector()), "flagstat",
+                "depthOfCoverage");
+
+        // one save per sample once every collector has contributed, with whatever they collected...only a sample that timed out
+        // isn't saved
+        graph.addTask("saveAttributes", new Runnable() {
+            @Override
+            public void run() {
+                forEachSample("saveAttributes", new SampleTask() {
+                    @Override
+                    public void execute(Sample sample) throws Exception {
+                        Map<String, String> values = metrics.get(sample.getId());
+                        if (values == null || values.isEmpty()) {
+                            logger.warn("no QC metrics found for: {}", sample.toString());
+                            return;
+                        }
+
+                        if (Thread.currentThread().isInterrupted()) {
+                            logger.warn("deadline passed, not saving: {}", sample.toString());
+                            return;
+                        }
+
+                        Set<Attribute> attributeSet = sample.getAttributes();
+                        for (Map.Entry<String, String> entry : values.entrySet()) {
+                            setAttributeValue(attributeSet, entry.getKey(), entry.getValue());
+                        }
+                        sample.setAttributes(attributeSet);
+                        mapseqDAOBeanService.getSampleDAO().save(sample);
+                        if (!report.finish(sample.getId())) {
+                            logger.warn("saved after its deadline: {}", sample.toString());
+                        }
+                    }
+                });
+            }
+        }, "flagstat", "markDuplicates", "depthOfCoverage", "numberOnTarget");
+    }
+
+    private void forEachSample(String stage, final SampleTask sampleTask) {
+        forEachSample(stage, sampleTask, false);
+    }
+
+    private void forEachSample(String stage, final SampleTask sampleTask, boolean sidecar) {
+        List<Sample> samples = this.samples;
+        if (samples.isEmpty()) {
+            return;
+        }
+
+        // the pool bounds how many samples are worked on, the work itself runs on a daemon thread of its own...htsjdk readers
+        // don't see the interrupt at a deadline, so an overdue read is abandoned rather than holding a pool thread
+        ExecutorService es = Executors.newFixedThreadPool(Math.min(poolSize, samples.size()));
+        ExecutorService workers = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "qc-harvest-worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        int submitted = 0;
+        for (Sample sample : samples) {
+            if (!sidecar && report.isTimedOut(sample.getId())) {
+                continue;
+            }
+            es.execute(new SampleDeadlineRunnable(stage, sample, sampleTask, workers, sidecar));
+            submitted++;
+        }
+        es.shutdown();
+
+        try {
+            // each sample gives up by its own deadline, so the pool can't be busy for longer than every sample's timeout in turn
+            if (!es.awaitTermination(sampleTimeout * Math.max(1, submitted) + 1L, TimeUnit.MINUTES)) {
+                logger.warn("{} did not finish in time", stage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // samples still queued for a pool thread never got to this stage, downstream tasks mustn't take them for done
+            for (Runnable queued : es.shutdownNow()) {
+                Sample sample = ((SampleDeadlineRunnable) queued).sample;
+                if (sidecar) {
+                    sidecarFailures.add(sample.getId());
+                } else if (report.timeOut(stage, sample.getId())) {
+                    logger.warn("Not started in {} for: {}", stage, sample.toString());
+                }
+            }
+            shutdown(es);
+            workers.shutdownNow();
+        }
+    }
+
+    private void shutdown(ExecutorService es) {
+        es.shutdownNow();
+        try {
+            if (!es.awaitTermination(1L, TimeUnit.MINUTES)) {
+                logger.warn("QC harvest threads did not stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void setAttributeValue(Set<Attribute> attributeSet, String name, String value) {
+        for (Attribute attribute : attributeSet) {
+            if (name.equals(attribute.getName())) {
+                attribute.setValue(value);
+                return;
+            }
+        }
+        attributeSet.add(new Attribute(name, value));
+    }
+
+    interface SampleTask {
+
+        public void execute(Sample sample) throws Exception;
+
+    }
+
+    class CollectMetricsTask implements Runnable {
+
+        private final String stage;
+
+        private final AbstractQualityControlMetricsCollector collector;
+
+        private final boolean sidecar;
+
+        public CollectMetricsTask(String stage, AbstractQualityControlMetricsCollector collector) {
+            this(stage, collector, false);
+        }
+
+        public CollectMetricsTask(String stage, AbstractQualityControlMetricsCollector collector, boolean sidecar) {
+            super();
+            this.stage = stage;
+            this.collector = collector;
+            this.sidecar = sidecar;
+        }
+
+        @Override
+        public void run() {
+            forEachSample(stage, new SampleTask() {
+                @Override
+                public void execute(Sample sample) throws Exception {
+                    File[] files = outputFiles.get(sample.getId());
+                    if (files == null) {
+                        return;
+                    }
+                    collector.collect(sample, files, metrics.get(sample.getId()));
+                }
+            }, sidecar);
+        }
+
+    }
+
+    // time a sample has been worked on in any stage, waiting for a pool thread or for other samples to finish a stage doesn't count
+    static class SampleClock {
+
+        private final long timeout;
+
+        private int active;
+
+        private long activeSince;
+
+        private long used;
+
+        public SampleClock(long timeout) {
+            super();
+            this.timeout = timeout;
+        }
+
+        // the nanos left before the sample's deadline
+        public synchronized long start() {
+            long now = System.nanoTime();
+            if (active++ == 0) {
+                activeSince = now;
+            }
+            return timeout - used - (now - activeSince);
+        }
+
+        public synchronized void stop() {
+            if (--active == 0) {
+                used += System.nanoTime() - activeSince;
+            }
+        }
+
+    }
+
+    class SampleDeadlineRunnable implements Runnable {
+
+        private final String stage;
+
+        private final Sample sample;
+
+        private final SampleTask sampleTask;
+
+        private final ExecutorService workers;
+
+        private final boolean sidecar;
+
+        public SampleDeadlineRunnable(String stage, Sample sample, SampleTask sampleTask, ExecutorService workers, boolean sidecar) {
+            super();
+            this.stage = stage;
+            this.sample = sample;
+            this.sampleTask = sampleTask;
+            this.workers = workers;
+            this.sidecar = sidecar;
+        }
+
+        @Override
+        public void run() {
+            if (!sidecar && report.isTimedOut(sample.getId())) {
+                return;
+            }
+            SampleClock clock = sidecar ? new SampleClock(TimeUnit.MINUTES.toNanos(sampleTimeout)) : clocks.get(sample.getId());
+            long remaining = clock.start();
+            Future<Void> future = null;
+            try {
+                if (remaining <= 0L) {
+                    throw new TimeoutException();
+                }
+                future = workers.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        sampleTask.execute(sample);
+                        return null;
+                    }
+                });
+                future.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | InterruptedException e) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+                if (sidecar) {
+                    logger.warn("Timed out in {} for: {}", stage, sample.toString());
+                    sidecarFailures.add(sample.getId());
+                } else if (report.timeOut(stage, sample.getId())) {
+                    logger.warn("Timed out in {} for: {}", stage, sample.toString());
+                }
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+            } catch (ExecutionException e) {
+                logger.error(String.format("Failed in %s for: %s", stage, sample.toString()), e.getCause());
+                if (sidecar) {
+                    sidecarFailures.add(sample.getId());
+                } else {
+                    report.fail(stage, sample.getId());
+                }
+            } finally {
+                clock.stop();
+            }
+        }
+
+    }
+
+    public QualityControlHarvestReport getReport() {
+        return report;
+    }
+
+    public Set<Long> getSidecarFailures() {
+        return sidecarFailures;
+    }
+
+    public Integer getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(Integer poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public Long getSampleTimeout() {
+        return sampleTimeout;
+    }
+
+    public void setSampleTimeout(Long sampleTimeout) {
+        this.sampleTimeout = sampleTimeout;
+    }
+
+    public Boolean getNativeFlagstat() {
+        return nativeFlagstat;
+    }
+
+    public void setNativeFlagstat(Boolean nativeFlagstat) {
+        this.nativeFlagstat = nativeFlagstat;
+    }
+
+    public Integer getFlagstatThreads() {
+        return flagstatThreads;
+    }
+
+    public void setFlagstatThreads(Integer flagstatThreads) {
+        this.flagstatThreads = flagstatThreads;
+    }
+
+    public File getFlagstatIntervalList() {
+        return flagstatIntervalList;
+    }
+
+    public void setFlagstatIntervalList(File flagstatIntervalList) {
+        this.flagstatIntervalList = flagstatIntervalList;
+    }
+
+    public Boolean getNativeDepthOfCoverage() {
+        return nativeDepthOfCoverage;
+    }
+
+    public void setNativeDepthOfCoverage(Boolean nativeDepthOfCoverage) {
+        this.nativeDepthOfCoverage = nativeDepthOfCoverage;
+    }
+
+    public Integer getDepthOfCoverageThreads() {
+        return depthOfCoverageThreads;
+    }
+
+    public void setDepthOfCoverageThreads(Integer depthOfCoverageThreads) {
+        this.depthOfCoverageThreads = depthOfCoverageThreads;
+    }
+
+    public File getDepthOfCoverageIntervalList() {
+        return depthOfCoverageIntervalList;
+    }
+
+    public void setDepthOfCoverageIntervalList(File depthOfCoverageIntervalList) {
+        this.depthOfCoverageIntervalList = depthOfCoverageIntervalList;
+    }
+
+    public MaPSeqDAOBeanService getMapseqDAOBeanService() {
+        return mapseqDAOBeanService;
+    }
+
+    public void setMapseqDAOBeanService(MaPSeqDAOBeanService mapseqDAOBeanService) {
+        this.mapseqDAOBeanService = mapseqDAOBeanService;
+    }
+
+    public WorkflowRunAttempt getWorkflowRunAttempt() {
+        return workflowRunAttempt;
+    }
+
+    public void setWorkflowRunAttempt(WorkflowRunAttempt workflowRunAttempt) {
+        this.workflowRunAttempt = workflowRunAttempt;
+    }
+
+}
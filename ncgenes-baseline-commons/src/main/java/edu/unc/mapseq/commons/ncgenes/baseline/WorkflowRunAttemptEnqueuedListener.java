@@ -0,0 +1,10 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
+
+public interface WorkflowRunAttemptEnqueuedListener {
+
+    // called once the attempt has been saved, implementations must return quickly
+    public void enqueued(WorkflowRunAttempt attempt);
+
+}
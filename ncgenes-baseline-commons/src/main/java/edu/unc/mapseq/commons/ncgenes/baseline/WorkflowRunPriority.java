@@ -0,0 +1,53 @@
+package edu.unc.mapseq.commons.ncgenes.baseline;
+
+import java.util.Date;
+import java.util.Set;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import edu.unc.mapseq.dao.model.Attribute;
+import edu.unc.mapseq.dao.model.WorkflowRun;
+
+public class WorkflowRunPriority {
+
+    // WorkflowRun attribute & JMS message property, higher runs first, the same as Condor's job priority
+    public static final String ATTRIBUTE_NAME = "priority";
+
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private WorkflowRunPriority() {
+        super();
+    }
+
+    public static int getPriority(WorkflowRun workflowRun) {
+        if (workflowRun == null || workflowRun.getAttributes() == null) {
+            return DEFAULT_PRIORITY;
+        }
+        for (Attribute attribute : workflowRun.getAttributes()) {
+            if (ATTRIBUTE_NAME.equals(attribute.getName())) {
+                return NumberUtils.toInt(attribute.getValue(), DEFAULT_PRIORITY);
+            }
+        }
+        return DEFAULT_PRIORITY;
+    }
+
+    public static void setPriority(Set<Attribute> attributeSet, int priority) {
+        for (Attribute attribute : attributeSet) {
+            if (ATTRIBUTE_NAME.equals(attribute.getName())) {
+                attribute.setValue(String.valueOf(priority));
+                return;
+            }
+        }
+        attributeSet.add(new Attribute(ATTRIBUTE_NAME, String.valueOf(priority)));
+    }
+
+    // every hour spent waiting adds agingRate, so low priority work eventually overtakes newer urgent work
+    public static double getEffectivePriority(int priority, Date enqueued, long now, double agingRate) {
+        if (enqueued == null) {
+            return priority;
+        }
+        double hoursWaiting = Math.max(0L, now - enqueued.getTime()) / (60D * 60D * 1000D);
+        return priority + agingRate * hoursWaiting;
+    }
+
+}
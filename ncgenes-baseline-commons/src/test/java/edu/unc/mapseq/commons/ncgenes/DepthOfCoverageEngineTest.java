@@ -0,0 +1,219 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.DepthOfCoverageEngine;
+import edu.unc.mapseq.commons.ncgenes.baseline.DepthOfCoverageSummary;
+import edu.unc.mapseq.commons.ncgenes.baseline.DepthOfCoverageSummaryParser;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+public class DepthOfCoverageEngineTest {
+
+    private File directory;
+
+    private File bam;
+
+    private File intervalList;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("coverage").toFile();
+
+        SAMFileHeader header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        header.setSequenceDictionary(new SAMSequenceDictionary(Arrays.asList(new SAMSequenceRecord("1", 1000))));
+        SAMReadGroupRecord readGroup = new SAMReadGroupRecord("NCG_00007_L001");
+        readGroup.setSample("NCG_00007");
+        header.addReadGroup(readGroup);
+
+        // depth over 1:101-110 is 3 3 2 1 1 2 2 4 4 3, nothing covers 1:201-204
+        bam = new File(directory, "NCG_00007_L001.recal.bam");
+        SAMFileWriter writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, false, bam);
+        try {
+            writer.addAlignment(createRecord(header, "r1", 0, 101, "10M"));
+            // duplicate, secondary & QC failure are filtered out, as by GATK's locus walkers
+            writer.addAlignment(createRecord(header, "r2", 0x400, 101, "10M"));
+            writer.addAlignment(createRecord(header, "r3", 0x100, 101, "10M"));
+            writer.addAlignment(createRecord(header, "r4", 0x200, 101, "10M"));
+            // the deleted & skipped bases don't count
+            writer.addAlignment(createRecord(header, "r5", 0, 101, "3M4D3M"));
+            writer.addAlignment(createRecord(header, "r6", 0, 101, "2M5N2M"));
+            // runs past the end of the target
+            writer.addAlignment(createRecord(header, "r7", 0, 106, "10M"));
+            // placed but unmapped
+            writer.addAlignment(createRecord(header, "r8", 0x4, 101, "*"));
+        } finally {
+            writer.close();
+        }
+
+        intervalList = new File(directory, "targets.interval_list");
+        String targets = "@HD\tVN:1.4\tSO:coordinate\n@SQ\tSN:1\tLN:1000\n1\t101\t110\t+\tt1\n1\t201\t204\t+\tt2\n";
+        Files.write(intervalList.toPath(), targets.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private SAMRecord createRecord(SAMFileHeader header, String name, int flags, int start, String cigar) {
+        SAMRecord record = new SAMRecord(header);
+        record.setReadName(name);
+        record.setFlags(flags);
+        record.setReferenceName("1");
+        record.setAlignmentStart(start);
+        record.setCigarString(cigar);
+        int length = "*".equals(cigar) ? 10 : record.getCigar().getReadLength();
+        char[] bases = new char[length];
+        Arrays.fill(bases, 'A');
+        char[] qualities = new char[length];
+        Arrays.fill(qualities, 'I');
+        record.setReadString(new String(bases));
+        record.setBaseQualityString(new String(qualities));
+        record.setMappingQuality((flags & 0x4) != 0 ? 0 : 60);
+        record.setAttribute("RG", "NCG_00007_L001");
+        return record;
+    }
+
+    private DepthOfCoverageEngine calculate(Integer threshold) throws IOException {
+        DepthOfCoverageEngine engine = new DepthOfCoverageEngine(bam, intervalList);
+        // a shard per target, on two threads
+        engine.setThreads(2);
+        engine.setIntervalsPerShard(1);
+        if (threshold != null) {
+            engine.setSummaryCoverageThreshold(threshold);
+        }
+        engine.calculate();
+        return engine;
+    }
+
+    private List<String> readLines(String outputPrefix, String suffix) throws IOException {
+        return readLines(new File(outputPrefix + suffix));
+    }
+
+    private List<String> readLines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+    }
+
+    private File getResource(String name) throws URISyntaxException {
+        return new File(getClass().getClassLoader().getResource(name).toURI());
+    }
+
+    @Test
+    public void testIntervalSummary() throws IOException {
+        DepthOfCoverageEngine engine = calculate(3);
+        assertArrayEquals(new long[] { 25L, 0L }, engine.getIntervalTotalCoverage());
+
+        String outputPrefix = new File(directory, "NCG_00007_L001.recal.coverage").getAbsolutePath();
+        engine.write(outputPrefix);
+        List<String> lines = readLines(outputPrefix, ".sample_interval_summary");
+        assertEquals(3, lines.size());
+        assertEquals("1:101-110\t25\t2.50\t25\t2.50\t2\t2\t3\t50.0", lines.get(1));
+        assertEquals("1:201-204\t0\t0.00\t0\t0.00\t0\t0\t0\t0.0", lines.get(2));
+    }
+
+    @Test
+    public void testSampleSummaryAndStatistics() throws IOException {
+        DepthOfCoverageEngine engine = calculate(3);
+        long[] histogram = engine.getDepthHistogram();
+        assertArrayEquals(new long[] { 4L, 2L, 3L, 3L, 2L, 0L }, Arrays.copyOf(histogram, 6));
+
+        String outputPrefix = new File(directory, "NCG_00007_L001.recal.coverage").getAbsolutePath();
+        engine.write(outputPrefix);
+
+        List<String> lines = readLines(outputPrefix, ".sample_summary");
+        assertEquals("sample_id\ttotal\tmean\tgranular_third_quartile\tgranular_median\tgranular_first_quartile\t%_bases_above_3",
+                lines.get(0));
+        assertEquals("NCG_00007\t25\t1.79\t3\t2\t0\t35.7", lines.get(1));
+        assertEquals("Total\t25\t1.79\tN/A\tN/A\tN/A", lines.get(2));
+
+        String[] statistics = readLines(outputPrefix, ".sample_statistics").get(1).split("\t");
+        assertEquals("sample_NCG_00007", statistics[0]);
+        assertArrayEquals(new String[] { "4", "2", "3", "3", "2", "0" }, Arrays.copyOfRange(statistics, 1, 7));
+
+        String[] counts = readLines(outputPrefix, ".sample_cumulative_coverage_counts").get(1).split("\t");
+        assertEquals("NSamples_1", counts[0]);
+        assertArrayEquals(new String[] { "14", "10", "8", "5", "2", "0" }, Arrays.copyOfRange(counts, 1, 7));
+
+        String[] proportions = readLines(outputPrefix, ".sample_cumulative_coverage_proportions").get(1).split("\t");
+        assertEquals("NCG_00007", proportions[0]);
+        assertArrayEquals(new String[] { "1.00", "0.71", "0.57", "0.36", "0.14", "0.00" }, Arrays.copyOfRange(proportions, 1, 7));
+
+        // the targets whose mean depth is at least each depth, 2 for 1:101-110 & 0 for 1:201-204
+        String[] intervalStatistics = readLines(outputPrefix, ".sample_interval_statistics").get(1).split("\t");
+        assertEquals("At_least_1_samples", intervalStatistics[0]);
+        assertArrayEquals(new String[] { "2", "1", "1", "0" }, Arrays.copyOfRange(intervalStatistics, 1, 5));
+    }
+
+    @Test
+    public void testLayoutMatchesGATK() throws IOException, URISyntaxException {
+        DepthOfCoverageEngine engine = calculate(null);
+        String outputPrefix = new File(directory, "NCG_00007_L001.recal.coverage").getAbsolutePath();
+        engine.write(outputPrefix);
+
+        // the header lines of a GATK DepthOfCoverage run on NCG_00007 with the default --summaryCoverageThreshold
+        List<String> gatkIntervalSummary = readLines(getResource("NCG_00007.coverage.sample_interval_summary"));
+        assertEquals(gatkIntervalSummary.get(0), readLines(outputPrefix, ".sample_interval_summary").get(0));
+        List<String> gatkSampleSummary = readLines(getResource("NCG_00007.coverage.sample_summary"));
+        List<String> sampleSummary = readLines(outputPrefix, ".sample_summary");
+        assertEquals(gatkSampleSummary.get(0), sampleSummary.get(0));
+        assertEquals(gatkSampleSummary.size(), sampleSummary.size());
+        for (int i = 0; i < sampleSummary.size(); i++) {
+            assertEquals(gatkSampleSummary.get(i).split("\t").length, sampleSummary.get(i).split("\t").length);
+        }
+
+        // GATK's default bins, 0 through 500 & everything above
+        List<String> statistics = readLines(outputPrefix, ".sample_statistics");
+        assertEquals(2, statistics.size());
+        assertTrue(statistics.get(0).startsWith("Source_of_reads\tfrom_0_to_1)\tfrom_1_to_2)\t"));
+        assertTrue(statistics.get(0).endsWith("\tfrom_499_to_500)\tfrom_500_to_inf"));
+        assertEquals(502, statistics.get(0).split("\t").length);
+        assertEquals(502, statistics.get(1).split("\t").length);
+
+        for (String suffix : new String[] { ".sample_cumulative_coverage_counts", ".sample_cumulative_coverage_proportions" }) {
+            List<String> lines = readLines(outputPrefix, suffix);
+            assertEquals(2, lines.size());
+            // the header's first column is empty
+            assertTrue(lines.get(0).startsWith("\tgte_0\tgte_1\t"));
+            assertTrue(lines.get(0).endsWith("\tgte_500"));
+            assertEquals(502, lines.get(0).split("\t").length);
+            assertEquals(502, lines.get(1).split("\t").length);
+        }
+
+        List<String> intervalStatistics = readLines(outputPrefix, ".sample_interval_statistics");
+        assertEquals(2, intervalStatistics.size());
+        assertTrue(intervalStatistics.get(0).startsWith("Number_of_sources\tdepth>=0\tdepth>=1\t"));
+        assertTrue(intervalStatistics.get(0).endsWith("\tdepth>=500"));
+        assertEquals(502, intervalStatistics.get(0).split("\t").length);
+        assertEquals(502, intervalStatistics.get(1).split("\t").length);
+
+        // & the summary parser reads them as it reads GATK's
+        DepthOfCoverageSummaryParser parser = new DepthOfCoverageSummaryParser(true);
+        DepthOfCoverageSummary summary = parser.parseIntervalSummary(new File(outputPrefix + ".sample_interval_summary"));
+        assertEquals(25L, summary.getTotalCoverage());
+        assertArrayEquals(new long[] { 25L, 0L }, summary.getIntervalTotalCoverage());
+        assertEquals(1.79D, parser.parseSampleSummary(new File(outputPrefix + ".sample_summary")).getMean(), 0D);
+    }
+
+}
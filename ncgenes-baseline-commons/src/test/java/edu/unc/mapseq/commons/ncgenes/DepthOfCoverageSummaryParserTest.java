@@ -0,0 +1,119 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.DepthOfCoverageSummary;
+import edu.unc.mapseq.commons.ncgenes.baseline.DepthOfCoverageSummaryParser;
+
+public class DepthOfCoverageSummaryParserTest {
+
+    @Test
+    public void testParseIntervalSummary() throws Exception {
+        File file = getResource("NCG_00007.coverage.sample_interval_summary");
+        DepthOfCoverageSummary summary = new DepthOfCoverageSummaryParser(true).parseIntervalSummary(file);
+        assertEquals(32775L, summary.getTotalCoverage());
+        assertEquals(5, summary.getIntervalCount());
+        assertArrayEquals(new long[] { 10851L, 2140L, 0L, 18824L, 960L }, summary.getIntervalTotalCoverage());
+        assertArrayEquals(new double[] { 23.24D, 31.01D, 0D, 118.39D, 7.27D }, summary.getIntervalAverageCoverage(), 0D);
+    }
+
+    @Test
+    public void testParseIntervalSummaryWithoutIntervals() throws Exception {
+        File file = getResource("NCG_00007.coverage.sample_interval_summary");
+        DepthOfCoverageSummary summary = new DepthOfCoverageSummaryParser().parseIntervalSummary(file);
+        assertEquals(32775L, summary.getTotalCoverage());
+        assertEquals(5, summary.getIntervalCount());
+        assertEquals(0, summary.getIntervalTotalCoverage().length);
+    }
+
+    @Test
+    public void testParseSampleSummary() throws Exception {
+        File file = getResource("NCG_00007.coverage.sample_summary");
+        DepthOfCoverageSummary summary = new DepthOfCoverageSummaryParser().parseSampleSummary(file);
+        assertEquals(32775L, summary.getTotalCoverage());
+        assertEquals(33.48D, summary.getMean(), 0D);
+        assertEquals("33.48", String.format(Locale.US, "%.2f", summary.getMean()));
+    }
+
+    @Test
+    public void testParseSampleSummaryWithoutTotalRow() throws Exception {
+        File file = File.createTempFile("ncgenes", ".coverage.sample_summary");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "sample_id\ttotal\tmean\nNCG_00007\t32775\t33.48\n");
+        assertNull(new DepthOfCoverageSummaryParser().parseSampleSummary(file));
+    }
+
+    @Test
+    public void testCarriageReturnsAndMissingTrailingNewline() throws Exception {
+        File file = File.createTempFile("ncgenes", ".coverage.sample_interval_summary");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file,
+                "Target\ttotal_coverage\taverage_coverage\r\n1:100-200\t150\t1.50\r\n\r\n1:300-400\t50\t0.5");
+        DepthOfCoverageSummary summary = new DepthOfCoverageSummaryParser(true).parseIntervalSummary(file);
+        assertEquals(200L, summary.getTotalCoverage());
+        assertArrayEquals(new double[] { 1.5D, 0.5D }, summary.getIntervalAverageCoverage(), 0D);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedTotalCoverage() throws Exception {
+        File file = File.createTempFile("ncgenes", ".coverage.sample_interval_summary");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, "Target\ttotal_coverage\taverage_coverage\n1:100-200\tN/A\t1.50\n");
+        new DepthOfCoverageSummaryParser().parseIntervalSummary(file);
+    }
+
+    @Test
+    public void testMatchesLineParsing() throws Exception {
+        File file = File.createTempFile("ncgenes", ".coverage.sample_interval_summary");
+        file.deleteOnExit();
+        Random random = new Random(7L);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write("Target\ttotal_coverage\taverage_coverage\tNCG_00007_total_cvg\tNCG_00007_mean_cvg");
+            bw.newLine();
+            for (int i = 0; i < 10000; i++) {
+                int start = i * 1000;
+                int length = 50 + random.nextInt(300);
+                long total = random.nextInt(100000);
+                String average = String.format(Locale.US, "%.2f", (double) total / length);
+                bw.write(String.format("%d:%d-%d\t%d\t%s\t%d\t%s", 1 + i % 22, start, start + length, total, average, total, average));
+                bw.newLine();
+            }
+        }
+
+        long expected = 0;
+        try (FileReader fr = new FileReader(file); BufferedReader br = new BufferedReader(fr)) {
+            String line;
+            br.readLine();
+            while ((line = br.readLine()) != null) {
+                expected += Long.valueOf(StringUtils.split(line)[1].trim());
+            }
+        }
+
+        DepthOfCoverageSummary summary = new DepthOfCoverageSummaryParser(true).parseIntervalSummary(file);
+        assertEquals(expected, summary.getTotalCoverage());
+        assertEquals(10000, summary.getIntervalCount());
+        assertTrue(summary.getIntervalTotalCoverage().length == 10000);
+    }
+
+    private File getResource(String name) throws URISyntaxException {
+        return new File(getClass().getClassLoader().getResource(name).toURI());
+    }
+
+}
@@ -0,0 +1,58 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.FlagstatCounts;
+
+public class FlagstatCountsTest {
+
+    @Test
+    public void testSAMToolsFormat() {
+        FlagstatCounts counts = new FlagstatCounts();
+        // properly paired read1/read2 on chr 0
+        counts.add(0x1 | 0x2 | 0x20 | 0x40, 0, 0, 60);
+        counts.add(0x1 | 0x2 | 0x10 | 0x80, 0, 0, 60);
+        // duplicate pair with mates on different chromosomes, one with low mapq
+        counts.add(0x1 | 0x40 | 0x400, 0, 1, 60);
+        counts.add(0x1 | 0x80 | 0x400, 1, 0, 3);
+        // singleton & its unmapped mate
+        counts.add(0x1 | 0x8 | 0x40, 2, 2, 37);
+        counts.add(0x1 | 0x4 | 0x80, 2, 2, 0);
+
+        String expected = "6 + 0 in total (QC-passed reads + QC-failed reads)\n" + "2 + 0 duplicates\n"
+                + "5 + 0 mapped (83.33%:-nan%)\n" + "6 + 0 paired in sequencing\n" + "3 + 0 read1\n" + "3 + 0 read2\n"
+                + "2 + 0 properly paired (33.33%:-nan%)\n" + "4 + 0 with itself and mate mapped\n" + "1 + 0 singletons (16.67%:-nan%)\n"
+                + "2 + 0 with mate mapped to a different chr\n" + "1 + 0 with mate mapped to a different chr (mapQ>=5)\n";
+        assertEquals(expected, counts.toSAMToolsFormat());
+    }
+
+    @Test
+    public void testQCFailedReadsAndMerge() {
+        FlagstatCounts left = new FlagstatCounts();
+        left.add(0x0, 0, -1, 60);
+        left.add(0x200, 0, -1, 60);
+
+        FlagstatCounts right = new FlagstatCounts();
+        right.add(0x4, -1, -1, 0);
+        right.add(0x4 | 0x200, -1, -1, 0);
+
+        left.add(right);
+        assertTrue(left.toSAMToolsFormat()
+                .startsWith("2 + 2 in total (QC-passed reads + QC-failed reads)\n0 + 0 duplicates\n1 + 1 mapped (50.00%:50.00%)\n"));
+        assertTrue(left.toSAMToolsFormat().contains("0 + 0 properly paired (-nan%:-nan%)\n"));
+    }
+
+    @Test
+    public void testPercentageRoundsLikePrintf() {
+        // 2/3 in single precision is 0.666666686534881591796875, %.2f of that * 100 rounds up
+        FlagstatCounts counts = new FlagstatCounts();
+        for (int i = 0; i < 3; i++) {
+            counts.add(i < 2 ? 0x0 : 0x4, 0, -1, 60);
+        }
+        assertTrue(counts.toSAMToolsFormat().contains("2 + 0 mapped (66.67%:-nan%)\n"));
+    }
+
+}
@@ -0,0 +1,156 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.FlagstatCounts;
+import edu.unc.mapseq.commons.ncgenes.baseline.FlagstatEngine;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+public class FlagstatEngineTest {
+
+    private File directory;
+
+    private File bam;
+
+    private List<SAMRecord> records;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("flagstat").toFile();
+
+        SAMFileHeader header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        header.setSequenceDictionary(
+                new SAMSequenceDictionary(Arrays.asList(new SAMSequenceRecord("1", 1000), new SAMSequenceRecord("2", 1000))));
+
+        records = new ArrayList<SAMRecord>();
+        // properly paired read1/read2 on 1
+        records.add(createRecord(header, "p1", 0x1 | 0x2 | 0x20 | 0x40, 0, 101, 0, 151, 60, "10M"));
+        records.add(createRecord(header, "p1", 0x1 | 0x2 | 0x10 | 0x80, 0, 151, 0, 101, 60, "10M"));
+        // duplicate pair with mates on different contigs, one with low mapq
+        records.add(createRecord(header, "d1", 0x1 | 0x40 | 0x400, 0, 301, 1, 501, 60, "10M"));
+        records.add(createRecord(header, "d1", 0x1 | 0x80 | 0x400, 1, 501, 0, 301, 3, "10M"));
+        // singleton & its mate, unmapped but placed at the singleton's position on 2
+        records.add(createRecord(header, "s1", 0x1 | 0x8 | 0x40, 1, 601, 1, 601, 60, "10M"));
+        records.add(createRecord(header, "s1", 0x1 | 0x4 | 0x80, 1, 601, 1, 601, 0, "*"));
+        // unplaced unmapped pair, at the end of the file & only reachable with queryUnmapped()
+        records.add(createRecord(header, "u1", 0x1 | 0x4 | 0x8 | 0x40, -1, 0, -1, 0, 0, "*"));
+        records.add(createRecord(header, "u1", 0x1 | 0x4 | 0x8 | 0x80, -1, 0, -1, 0, 0, "*"));
+        // secondary & QC failed fragments
+        records.add(createRecord(header, "x1", 0x100, 0, 105, -1, 0, 0, "10M"));
+        records.add(createRecord(header, "q1", 0x200, 1, 701, -1, 0, 60, "10M"));
+
+        bam = new File(directory, "NCG_00007_L001.fixed-rg.deduped.realign.fixmate.recal.bam");
+        SAMFileWriter writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(header, false, bam);
+        try {
+            for (SAMRecord record : records) {
+                writer.addAlignment(record);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private SAMRecord createRecord(SAMFileHeader header, String name, int flags, int referenceIndex, int start, int mateReferenceIndex,
+            int mateStart, int mappingQuality, String cigar) {
+        SAMRecord record = new SAMRecord(header);
+        record.setReadName(name);
+        record.setFlags(flags);
+        record.setReferenceIndex(referenceIndex);
+        record.setAlignmentStart(start);
+        record.setMateReferenceIndex(mateReferenceIndex);
+        record.setMateAlignmentStart(mateStart);
+        record.setMappingQuality(mappingQuality);
+        record.setCigarString(cigar);
+        char[] bases = new char[10];
+        Arrays.fill(bases, 'A');
+        char[] qualities = new char[10];
+        Arrays.fill(qualities, 'I');
+        record.setReadString(new String(bases));
+        record.setBaseQualityString(new String(qualities));
+        return record;
+    }
+
+    private FlagstatEngine calculate(Integer threads, File intervalList) throws IOException {
+        FlagstatEngine engine = new FlagstatEngine(bam);
+        engine.setThreads(threads);
+        engine.setIntervalList(intervalList);
+        engine.calculate();
+        return engine;
+    }
+
+    @Test
+    public void testShardsCountEveryReadOnce() throws IOException {
+        FlagstatCounts expected = new FlagstatCounts();
+        for (SAMRecord record : records) {
+            expected.add(record.getFlags(), record.getReferenceIndex(), record.getMateReferenceIndex(), record.getMappingQuality());
+        }
+
+        // a shard per contig & one for the unplaced reads
+        FlagstatCounts sharded = calculate(2, null).getCounts();
+        assertArrayEquals(new long[] { 9L, 1L }, sharded.getReads());
+        assertArrayEquals(new long[] { 6L, 1L }, sharded.getMapped());
+        assertArrayEquals(new long[] { 8L, 0L }, sharded.getPairedInSequencing());
+        assertArrayEquals(new long[] { 2L, 0L }, sharded.getDuplicates());
+        assertArrayEquals(new long[] { 1L, 0L }, sharded.getSingletons());
+        assertArrayEquals(new long[] { 2L, 0L }, sharded.getMateOnDifferentChr());
+        assertArrayEquals(new long[] { 1L, 0L }, sharded.getMateOnDifferentChrMapQ5());
+        assertEquals(expected.toSAMToolsFormat(), sharded.toSAMToolsFormat());
+
+        // & the sequential pass agrees
+        assertEquals(expected.toSAMToolsFormat(), calculate(1, null).getCounts().toSAMToolsFormat());
+    }
+
+    @Test
+    public void testWithoutIndex() throws IOException {
+        File index = new File(directory, "NCG_00007_L001.fixed-rg.deduped.realign.fixmate.recal.bai");
+        assertTrue(index.exists());
+        assertTrue(index.delete());
+        assertArrayEquals(new long[] { 9L, 1L }, calculate(2, null).getCounts().getReads());
+    }
+
+    @Test
+    public void testOnTarget() throws IOException {
+        FlagstatEngine engine = calculate(2, null);
+        assertNull(engine.getOnTargetCounts());
+
+        File intervalList = new File(directory, "targets.interval_list");
+        String targets = "@HD\tVN:1.4\tSO:coordinate\n@SQ\tSN:1\tLN:1000\n@SQ\tSN:2\tLN:1000\n1\t95\t120\t+\tt1\n2\t590\t620\t+\tt2\n";
+        Files.write(intervalList.toPath(), targets.getBytes(StandardCharsets.US_ASCII));
+
+        // p1 read1, x1 & s1 overlap a target, the placed unmapped mate of s1 doesn't count
+        FlagstatCounts onTarget = calculate(2, intervalList).getOnTargetCounts();
+        assertArrayEquals(new long[] { 3L, 0L }, onTarget.getReads());
+        assertArrayEquals(new long[] { 3L, 0L }, onTarget.getMapped());
+        assertArrayEquals(new long[] { 1L, 0L }, onTarget.getProperlyPaired());
+        assertArrayEquals(new long[] { 1L, 0L }, onTarget.getSingletons());
+        assertEquals(onTarget.toSAMToolsFormat(), calculate(1, intervalList).getOnTargetCounts().toSAMToolsFormat());
+    }
+
+}
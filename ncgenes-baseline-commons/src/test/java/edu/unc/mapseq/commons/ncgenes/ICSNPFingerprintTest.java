@@ -0,0 +1,98 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.ICSNPFingerprint;
+import edu.unc.mapseq.commons.ncgenes.baseline.ICSNPFingerprint.Concordance;
+import edu.unc.mapseq.commons.ncgenes.baseline.ICSNPFingerprintStore;
+
+public class ICSNPFingerprintTest {
+
+    private static final String HEADER = "##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tNCG_00007\n";
+
+    @Test
+    public void testGenotype() {
+        assertEquals(ICSNPFingerprint.HOM_REF, ICSNPFingerprint.toGenotype("0/0"));
+        assertEquals(ICSNPFingerprint.HET, ICSNPFingerprint.toGenotype("0|1"));
+        assertEquals(ICSNPFingerprint.HET, ICSNPFingerprint.toGenotype("1/2"));
+        assertEquals(ICSNPFingerprint.HOM_ALT, ICSNPFingerprint.toGenotype("1/1"));
+        assertEquals(ICSNPFingerprint.NO_CALL, ICSNPFingerprint.toGenotype("./."));
+        assertEquals(ICSNPFingerprint.NO_CALL, ICSNPFingerprint.toGenotype("."));
+    }
+
+    @Test
+    public void testConcordance() throws IOException {
+        String[] gts = { "0/0", "0/1", "1/1", "./." };
+        StringBuilder a = new StringBuilder(HEADER);
+        StringBuilder b = new StringBuilder(HEADER);
+        // 70 sites spans three words, b differs at every 7th site & has no calls where a does
+        for (int i = 0; i < 70; i++) {
+            a.append(String.format("1\t%d\trs%d\tA\tG\t50\tPASS\t.\tGT:GQ\t%s:99%n", 1000 + i, i, gts[i % 3]));
+            String gt = i % 7 == 0 ? gts[(i + 1) % 3] : i % 10 == 0 ? gts[3] : gts[i % 3];
+            b.append(String.format("1\t%d\trs%d\tA\tG\t50\tPASS\t.\tGT:GQ\t%s:99%n", 1000 + i, i, gt));
+        }
+        ICSNPFingerprint first = ICSNPFingerprint.parse(write(a.toString()));
+        ICSNPFingerprint second = ICSNPFingerprint.parse(write(b.toString()));
+        assertEquals(70, first.getSites().length);
+        assertEquals(3, first.getGenotypes().length);
+        assertEquals(ICSNPFingerprint.HOM_ALT, first.getGenotype(68));
+
+        Concordance self = first.compare(first);
+        assertEquals(70, self.getSitesCompared());
+        assertEquals(1D, self.getConcordance(), 0D);
+
+        // of sites 0..69 the 10 multiples of 7 disagree, b has no calls at 10, 20, 30, 40, 50 & 60
+        Concordance concordance = first.compare(second);
+        assertEquals(64, concordance.getSitesCompared());
+        assertEquals(54, concordance.getConcordantSites());
+        assertEquals(54, second.compare(first).getConcordantSites());
+    }
+
+    @Test
+    public void testDifferentPanels() throws IOException {
+        File vcf = write(HEADER + "1\t100\t.\tA\tG\t50\tPASS\t.\tGT\t0/1\n1\t200\t.\tC\tT\t50\tPASS\t.\tGT\t1/1\n"
+                + "2\t300\t.\tG\tA\t50\tPASS\t.\tGT\t0/0\n");
+        File other = write(HEADER + "2\t300\t.\tG\tA\t50\tPASS\t.\tGT\t0/0\n1\t100\t.\tA\tG\t50\tPASS\t.\tGT\t1/1\n");
+        Concordance concordance = ICSNPFingerprint.parse(vcf).compare(ICSNPFingerprint.parse(other));
+        assertEquals(2, concordance.getSitesCompared());
+        assertEquals(1, concordance.getConcordantSites());
+
+        File empty = write(HEADER);
+        assertTrue(ICSNPFingerprint.parse(vcf).compare(ICSNPFingerprint.parse(empty)).getConcordance() == null);
+    }
+
+    @Test
+    public void testStore() throws IOException {
+        File vcf = write(HEADER + "1\t100\t.\tA\tG\t50\tPASS\t.\tGT\t0/1\n1\t200\t.\tC\tT\t50\tPASS\t.\tGT\t1/1\n");
+        File fingerprintFile = ICSNPFingerprintStore.getFingerprintFile(vcf);
+        fingerprintFile.deleteOnExit();
+        assertTrue(ICSNPFingerprintStore.read(vcf) == null);
+
+        ICSNPFingerprint fingerprint = ICSNPFingerprint.parse(vcf);
+        ICSNPFingerprintStore.write(vcf, fingerprint);
+        assertTrue(fingerprintFile.exists());
+        ICSNPFingerprint stored = ICSNPFingerprintStore.read(vcf);
+        assertEquals("1:200", stored.getSites()[1]);
+        assertEquals(fingerprint.getGenotypes()[0], stored.getGenotypes()[0]);
+
+        // a VCF rewritten after its fingerprint is parsed again
+        assertTrue(vcf.setLastModified(fingerprintFile.lastModified() + 60000L));
+        assertTrue(ICSNPFingerprintStore.read(vcf) == null);
+    }
+
+    private File write(String content) throws IOException {
+        File vcf = File.createTempFile("sample", ".ic_snps.vcf");
+        vcf.deleteOnExit();
+        Files.write(vcf.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return vcf;
+    }
+
+}
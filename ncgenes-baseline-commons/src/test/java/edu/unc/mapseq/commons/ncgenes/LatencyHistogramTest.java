@@ -0,0 +1,49 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.LatencyHistogram;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500L);
+        histogram.record(1000L);
+        histogram.record(30 * 1000L);
+        histogram.record(2 * 60 * 60 * 1000L);
+        histogram.record(48 * 60 * 60 * 1000L);
+
+        Map<String, Long> buckets = histogram.getBuckets();
+        assertEquals(Long.valueOf(2), buckets.get("<=1s"));
+        assertEquals(Long.valueOf(0), buckets.get("<=10s"));
+        assertEquals(Long.valueOf(1), buckets.get("<=1m"));
+        assertEquals(Long.valueOf(1), buckets.get("<=4h"));
+        assertEquals(Long.valueOf(1), buckets.get(">24h"));
+        assertEquals(5L, histogram.getCount());
+        assertEquals(48 * 60 * 60 * 1000L, histogram.getMax());
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getPercentile(0.95));
+        for (int i = 0; i < 19; i++) {
+            histogram.record(5 * 1000L);
+        }
+        histogram.record(3 * 60 * 1000L);
+        assertEquals(10 * 1000L, histogram.getPercentile(0.5));
+        assertEquals(10 * 1000L, histogram.getPercentile(0.95));
+        assertEquals(5 * 60 * 1000L, histogram.getPercentile(1.0));
+        histogram.record(30 * 60 * 60 * 1000L);
+        assertEquals(-1L, histogram.getPercentile(1.0));
+        assertTrue(histogram.getMean() > 5 * 1000L);
+    }
+
+}
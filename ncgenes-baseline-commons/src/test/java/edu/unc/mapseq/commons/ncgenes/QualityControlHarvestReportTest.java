@@ -0,0 +1,64 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.QualityControlHarvestReport;
+
+public class QualityControlHarvestReportTest {
+
+    @Test
+    public void testEverySampleFinished() {
+        QualityControlHarvestReport report = new QualityControlHarvestReport();
+        report.load(Arrays.asList(1L, 2L));
+        assertTrue(report.finish(1L));
+        assertTrue(report.finish(2L));
+        assertTrue(report.getUnfinished().isEmpty());
+        assertTrue(report.isComplete());
+    }
+
+    @Test
+    public void testSamplesNeverStartedAreUnfinished() {
+        QualityControlHarvestReport report = new QualityControlHarvestReport();
+        report.load(Arrays.asList(1L, 2L, 3L));
+        assertTrue(report.finish(1L));
+        // the harvest was stopped before 2 & 3 reached a stage, so neither failed nor timed out
+        assertTrue(report.getFailed().isEmpty());
+        assertTrue(report.getTimedOut().isEmpty());
+        assertEquals(new LinkedHashSet<Long>(Arrays.asList(2L, 3L)), report.getUnfinished());
+        assertFalse(report.isComplete());
+    }
+
+    @Test
+    public void testFailedSamplesAreStillSaved() {
+        QualityControlHarvestReport report = new QualityControlHarvestReport();
+        report.load(Arrays.asList(1L, 2L));
+        report.fail("markDuplicates", 1L);
+        // saved with what the other collectors found
+        assertTrue(report.finish(1L));
+        assertTrue(report.finish(2L));
+        assertEquals(new LinkedHashSet<Long>(Arrays.asList(1L)), report.getIncomplete("markDuplicates"));
+        assertTrue(report.getUnfinished().isEmpty());
+        assertFalse(report.isComplete());
+    }
+
+    @Test
+    public void testTimedOutSamplesAreUnfinished() {
+        QualityControlHarvestReport report = new QualityControlHarvestReport();
+        report.load(Arrays.asList(1L, 2L));
+        assertTrue(report.timeOut("depthOfCoverage", 2L));
+        assertTrue(report.finish(1L));
+        assertFalse(report.finish(2L));
+        assertFalse(report.timeOut("depthOfCoverage", 1L));
+        assertEquals(new LinkedHashSet<Long>(Arrays.asList(2L)), report.getIncomplete("depthOfCoverage"));
+        assertEquals(new LinkedHashSet<Long>(Arrays.asList(2L)), report.getUnfinished());
+        assertFalse(report.isComplete());
+    }
+
+}
@@ -0,0 +1,49 @@
+package edu.unc.mapseq.commons.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunPriority;
+import edu.unc.mapseq.dao.model.Attribute;
+import edu.unc.mapseq.dao.model.WorkflowRun;
+
+public class WorkflowRunPriorityTest {
+
+    @Test
+    public void testAttribute() {
+        WorkflowRun workflowRun = new WorkflowRun();
+        assertEquals(WorkflowRunPriority.DEFAULT_PRIORITY, WorkflowRunPriority.getPriority(workflowRun));
+
+        Set<Attribute> attributeSet = new HashSet<Attribute>();
+        attributeSet.add(new Attribute("sselProbe", "5"));
+        WorkflowRunPriority.setPriority(attributeSet, 10);
+        WorkflowRunPriority.setPriority(attributeSet, 20);
+        workflowRun.setAttributes(attributeSet);
+        assertEquals(20, WorkflowRunPriority.getPriority(workflowRun));
+
+        attributeSet.clear();
+        attributeSet.add(new Attribute(WorkflowRunPriority.ATTRIBUTE_NAME, "urgent"));
+        assertEquals(WorkflowRunPriority.DEFAULT_PRIORITY, WorkflowRunPriority.getPriority(workflowRun));
+    }
+
+    @Test
+    public void testAging() {
+        long now = System.currentTimeMillis();
+        long hour = 60L * 60L * 1000L;
+        assertEquals(10D, WorkflowRunPriority.getEffectivePriority(10, new Date(now), now, 1D), 0.001D);
+        assertEquals(10D, WorkflowRunPriority.getEffectivePriority(10, null, now, 1D), 0.001D);
+        assertEquals(3D, WorkflowRunPriority.getEffectivePriority(0, new Date(now - 3 * hour), now, 1D), 0.001D);
+
+        // a research sample waiting half a day overtakes an urgent one enqueued just now
+        double research = WorkflowRunPriority.getEffectivePriority(0, new Date(now - 12 * hour), now, 1D);
+        double urgent = WorkflowRunPriority.getEffectivePriority(10, new Date(now), now, 1D);
+        assertTrue(research > urgent);
+    }
+
+}
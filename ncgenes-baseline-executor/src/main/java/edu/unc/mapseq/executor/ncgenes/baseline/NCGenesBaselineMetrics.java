@@ -0,0 +1,174 @@
+package edu.unc.mapseq.executor.ncgenes.baseline;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.commons.ncgenes.baseline.LatencyHistogram;
+import edu.unc.mapseq.commons.ncgenes.baseline.PipelineMetrics;
+
+public class NCGenesBaselineMetrics implements NCGenesBaselineMetricsMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(NCGenesBaselineMetrics.class);
+
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+
+    private NCGenesBaselineWorkflowExecutorTask task;
+
+    private String objectName = "edu.unc.mapseq.pipelines:type=NCGenesBaseline,name=Metrics";
+
+    public NCGenesBaselineMetrics() {
+        super();
+    }
+
+    public void register() throws Exception {
+        logger.info("ENTERING register()");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(objectName);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    public void unregister() throws Exception {
+        logger.info("ENTERING unregister()");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(objectName);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return metrics.getQueueDepth().get();
+    }
+
+    @Override
+    public long getActiveAttempts() {
+        return task.getInFlightAttempts();
+    }
+
+    @Override
+    public List<Long> getOrphanedAttempts() {
+        return task.getOrphanedAttempts();
+    }
+
+    @Override
+    public long getEnqueueToDequeueCount() {
+        return metrics.getEnqueueToDequeue().getCount();
+    }
+
+    @Override
+    public long getEnqueueToDequeueMean() {
+        return metrics.getEnqueueToDequeue().getMean();
+    }
+
+    @Override
+    public long getEnqueueToDequeue95thPercentile() {
+        return metrics.getEnqueueToDequeue().getPercentile(0.95);
+    }
+
+    @Override
+    public long getEnqueueToDequeueMax() {
+        return metrics.getEnqueueToDequeue().getMax();
+    }
+
+    @Override
+    public Map<String, Long> getEnqueueToDequeueHistogram() {
+        return metrics.getEnqueueToDequeue().getBuckets();
+    }
+
+    @Override
+    public long getDequeueToDoneCount() {
+        return metrics.getDequeueToDone().getCount();
+    }
+
+    @Override
+    public long getDequeueToDoneMean() {
+        return metrics.getDequeueToDone().getMean();
+    }
+
+    @Override
+    public long getDequeueToDone95thPercentile() {
+        return metrics.getDequeueToDone().getPercentile(0.95);
+    }
+
+    @Override
+    public long getDequeueToDoneMax() {
+        return metrics.getDequeueToDone().getMax();
+    }
+
+    @Override
+    public Map<String, Long> getDequeueToDoneHistogram() {
+        return metrics.getDequeueToDone().getBuckets();
+    }
+
+    @Override
+    public Map<String, Long> getPostRunStageMeans() {
+        Map<String, Long> ret = new TreeMap<String, Long>();
+        for (Map.Entry<String, LatencyHistogram> entry : metrics.getPostRunStages().entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().getMean());
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<String, Long> getPostRunStageMaxima() {
+        Map<String, Long> ret = new TreeMap<String, Long>();
+        for (Map.Entry<String, LatencyHistogram> entry : metrics.getPostRunStages().entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().getMax());
+        }
+        return ret;
+    }
+
+    @Override
+    public long getIRODSFilesRegistered() {
+        return metrics.getIRODSFilesRegistered();
+    }
+
+    @Override
+    public long getIRODSBytesRegistered() {
+        return metrics.getIRODSBytesRegistered();
+    }
+
+    @Override
+    public double getIRODSFilesPerHour() {
+        return metrics.getIRODSRegistrationThroughput();
+    }
+
+    @Override
+    public long getDAGsSubmitted() {
+        return metrics.getDAGsSubmitted();
+    }
+
+    @Override
+    public long getDAGsSubmittedLastHour() {
+        return metrics.getDAGSubmissionRate();
+    }
+
+    public NCGenesBaselineWorkflowExecutorTask getTask() {
+        return task;
+    }
+
+    public void setTask(NCGenesBaselineWorkflowExecutorTask task) {
+        this.task = task;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+}
@@ -0,0 +1,49 @@
+package edu.unc.mapseq.executor.ncgenes.baseline;
+
+import java.util.List;
+import java.util.Map;
+
+// latencies are in ms, histogram keys are bucket upper bounds
+public interface NCGenesBaselineMetricsMXBean {
+
+    public long getQueueDepth();
+
+    public long getActiveAttempts();
+
+    public List<Long> getOrphanedAttempts();
+
+    public long getEnqueueToDequeueCount();
+
+    public long getEnqueueToDequeueMean();
+
+    public long getEnqueueToDequeue95thPercentile();
+
+    public long getEnqueueToDequeueMax();
+
+    public Map<String, Long> getEnqueueToDequeueHistogram();
+
+    public long getDequeueToDoneCount();
+
+    public long getDequeueToDoneMean();
+
+    public long getDequeueToDone95thPercentile();
+
+    public long getDequeueToDoneMax();
+
+    public Map<String, Long> getDequeueToDoneHistogram();
+
+    public Map<String, Long> getPostRunStageMeans();
+
+    public Map<String, Long> getPostRunStageMaxima();
+
+    public long getIRODSFilesRegistered();
+
+    public long getIRODSBytesRegistered();
+
+    public double getIRODSFilesPerHour();
+
+    public long getDAGsSubmitted();
+
+    public long getDAGsSubmittedLastHour();
+
+}
@@ -1,16 +1,23 @@
 package edu.unc.mapseq.executor.ncgenes.baseline;
 
 import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class NCGenesBaselineWorkflowExecutorService {
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunAttemptEnqueuedListener;
+import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
+
+public class NCGenesBaselineWorkflowExecutorService implements WorkflowRunAttemptEnqueuedListener {
 
     private static final Logger logger = LoggerFactory.getLogger(NCGenesBaselineWorkflowExecutorService.class);
 
     private final Timer mainTimer = new Timer();
 
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+
     private NCGenesBaselineWorkflowExecutorTask task;
 
     private Long period = 5L;
@@ -22,6 +29,7 @@ public class NCGenesBaselineWorkflowExecutorService {
     public void start() throws Exception {
         logger.info("ENTERING start()");
         long delay = 1 * 60 * 1000;
+        // the periodic run is now a safety net sweep, enqueued attempts wake the task up directly
         mainTimer.scheduleAtFixedRate(task, delay, period * 60 * 1000);
     }
 
@@ -31,6 +39,29 @@ public class NCGenesBaselineWorkflowExecutorService {
         mainTimer.cancel();
     }
 
+    @Override
+    public void enqueued(WorkflowRunAttempt attempt) {
+        logger.debug("ENTERING enqueued(WorkflowRunAttempt)");
+        // a burst of attempts coalesces into one run, the Timer thread keeps it from overlapping the sweep
+        if (!wakeupPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            mainTimer.schedule(new TimerTask() {
+
+                @Override
+                public void run() {
+                    wakeupPending.set(false);
+                    task.run();
+                }
+
+            }, 0);
+        } catch (IllegalStateException e) {
+            wakeupPending.set(false);
+            logger.warn("executor is stopped, attempt {} waits for the next start", attempt.getId());
+        }
+    }
+
     public NCGenesBaselineWorkflowExecutorTask getTask() {
         return task;
     }
@@ -1,8 +1,18 @@
 package edu.unc.mapseq.executor.ncgenes.baseline;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.osgi.framework.Bundle;
@@ -11,11 +21,14 @@ import org.osgi.framework.FrameworkUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.unc.mapseq.commons.ncgenes.baseline.PipelineMetrics;
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunPriority;
 import edu.unc.mapseq.dao.MaPSeqDAOException;
 import edu.unc.mapseq.dao.WorkflowDAO;
 import edu.unc.mapseq.dao.WorkflowRunAttemptDAO;
 import edu.unc.mapseq.dao.model.Workflow;
 import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
+import edu.unc.mapseq.dao.model.WorkflowRunAttemptStatusType;
 import edu.unc.mapseq.dao.model.WorkflowSystemType;
 import edu.unc.mapseq.workflow.WorkflowBeanService;
 import edu.unc.mapseq.workflow.WorkflowExecutor;
@@ -28,10 +41,26 @@ public class NCGenesBaselineWorkflowExecutorTask extends TimerTask {
 
     private final WorkflowTPE threadPoolExecutor = new WorkflowTPE();
 
+    private final AtomicInteger virtualThreadAttempts = new AtomicInteger();
+
+    private final Set<Long> orphanedAttempts = Collections.synchronizedSet(new LinkedHashSet<Long>());
+
+    private ExecutorService virtualThreadExecutor;
+
+    // a WorkflowExecutor mostly waits on Condor for hours, on a virtual thread it doesn't pin a platform thread meanwhile
+    private Boolean virtualThreads = Boolean.FALSE;
+
     private WorkflowBeanService workflowBeanService;
 
     private String workflowName;
 
+    private WorkflowRunAttemptLeaseManager leaseManager = new WorkflowRunAttemptLeaseManager();
+
+    private WorkflowAdmissionController admissionController = new WorkflowAdmissionController();
+
+    // priority gained per hour enqueued
+    private Double priorityAgingRate = 1D;
+
     public NCGenesBaselineWorkflowExecutorTask() {
         super();
     }
@@ -43,8 +72,9 @@ public class NCGenesBaselineWorkflowExecutorTask extends TimerTask {
         threadPoolExecutor.setCorePoolSize(workflowBeanService.getCorePoolSize());
         threadPoolExecutor.setMaximumPoolSize(workflowBeanService.getMaxPoolSize());
 
-        logger.info(String.format("ActiveCount: %d, TaskCount: %d, CompletedTaskCount: %d", threadPoolExecutor.getActiveCount(),
-                threadPoolExecutor.getTaskCount(), threadPoolExecutor.getCompletedTaskCount()));
+        logger.info(String.format("ActiveCount: %d, TaskCount: %d, CompletedTaskCount: %d, VirtualThreadCount: %d",
+                threadPoolExecutor.getActiveCount(), threadPoolExecutor.getTaskCount(), threadPoolExecutor.getCompletedTaskCount(),
+                virtualThreadAttempts.get()));
 
         WorkflowDAO workflowDAO = this.workflowBeanService.getMaPSeqDAOBeanService().getWorkflowDAO();
         WorkflowRunAttemptDAO workflowRunAttemptDAO = this.workflowBeanService.getMaPSeqDAOBeanService().getWorkflowRunAttemptDAO();
@@ -68,19 +98,67 @@ public class NCGenesBaselineWorkflowExecutorTask extends TimerTask {
             Bundle bundle = bundleContext.getBundle();
             String version = bundle.getVersion().toString();
 
+            flagOrphans(workflowRunAttemptDAO);
+            admissionController.startSweep();
+
             List<WorkflowRunAttempt> attempts = workflowRunAttemptDAO.findEnqueued(workflow.getId());
+            PipelineMetrics metrics = PipelineMetrics.getInstance();
+            metrics.getQueueDepth().set(attempts != null ? attempts.size() : 0);
             if (CollectionUtils.isNotEmpty(attempts)) {
                 logger.info("dequeuing {} WorkflowRunAttempt", attempts.size());
+
+                // highest effective priority first, ties keep the DB order
+                long now = System.currentTimeMillis();
+                final Map<WorkflowRunAttempt, Double> effectivePriorities = new HashMap<WorkflowRunAttempt, Double>();
                 for (WorkflowRunAttempt attempt : attempts) {
+                    int priority = WorkflowRunPriority.getPriority(attempt.getWorkflowRun());
+                    effectivePriorities.put(attempt,
+                            WorkflowRunPriority.getEffectivePriority(priority, attempt.getCreated(), now, priorityAgingRate));
+                }
+                Collections.sort(attempts, new Comparator<WorkflowRunAttempt>() {
+
+                    @Override
+                    public int compare(WorkflowRunAttempt a1, WorkflowRunAttempt a2) {
+                        return Double.compare(effectivePriorities.get(a2), effectivePriorities.get(a1));
+                    }
+
+                });
+
+                for (WorkflowRunAttempt enqueued : attempts) {
+
+                    // the rest stay enqueued until a later sweep finds capacity
+                    if (!admissionController.admit(getClusterInFlightAttempts())) {
+                        logger.info("holding back enqueued WorkflowRunAttempts, starting with {}", enqueued.getId());
+                        break;
+                    }
+
+                    // other executor nodes see the same enqueued attempts, only the lease holder runs one
+                    if (!leaseManager.claim(enqueued.getId())) {
+                        logger.info("WorkflowRunAttempt {} is claimed by another node", enqueued.getId());
+                        continue;
+                    }
+
+                    // a node whose lease expired may have dequeued it after our findEnqueued
+                    WorkflowRunAttempt attempt = workflowRunAttemptDAO.findById(enqueued.getId());
+                    if (attempt == null || attempt.getDequeued() != null) {
+                        leaseManager.release(enqueued.getId());
+                        continue;
+                    }
 
                     NCGenesBaselineWorkflow ncGenesWorkflow = new NCGenesBaselineWorkflow();
                     attempt.setVersion(version);
                     attempt.setDequeued(new Date());
                     workflowRunAttemptDAO.save(attempt);
+                    admissionController.admitted();
+                    metrics.getQueueDepth().decrementAndGet();
+                    if (attempt.getCreated() != null) {
+                        metrics.getEnqueueToDequeue().record(attempt.getDequeued().getTime() - attempt.getCreated().getTime());
+                    }
 
                     ncGenesWorkflow.setWorkflowBeanService(workflowBeanService);
                     ncGenesWorkflow.setWorkflowRunAttempt(attempt);
-                    threadPoolExecutor.submit(new WorkflowExecutor(ncGenesWorkflow));
+                    submit(attempt.getId(), new WorkflowExecutor(ncGenesWorkflow));
+                    metrics.recordDAGSubmission();
 
                 }
             }
@@ -90,6 +168,80 @@ public class NCGenesBaselineWorkflowExecutorTask extends TimerTask {
 
     }
 
+    // an attempt whose lease expired was dequeued by a node that died or stopped renewing, but its DAG keeps running in Condor
+    // without it, so it's left as is for an operator to check with condor_q rather than run a second time
+    private void flagOrphans(WorkflowRunAttemptDAO workflowRunAttemptDAO) throws MaPSeqDAOException {
+        for (Long id : leaseManager.sweep()) {
+            WorkflowRunAttempt orphan = workflowRunAttemptDAO.findById(id);
+            if (orphan == null || orphan.getDequeued() == null || orphan.getFinished() != null
+                    || WorkflowRunAttemptStatusType.DONE.equals(orphan.getStatus())
+                    || WorkflowRunAttemptStatusType.FAILED.equals(orphan.getStatus())) {
+                continue;
+            }
+            orphanedAttempts.add(id);
+            logger.error("WorkflowRunAttempt {} lost its lease, check its DAG in condor_q before resetting WorkflowRun {}", id,
+                    orphan.getWorkflowRun() != null ? orphan.getWorkflowRun().getName() : null);
+        }
+    }
+
+    // the orphans this node flagged, oldest first
+    public List<Long> getOrphanedAttempts() {
+        synchronized (orphanedAttempts) {
+            return new ArrayList<Long>(orphanedAttempts);
+        }
+    }
+
+    // every running attempt holds a lease, so with a shared lease directory its leases are the whole cluster's in flight attempts
+    public long getClusterInFlightAttempts() {
+        return leaseManager.isEnabled() ? leaseManager.countLeases() : getInFlightAttempts();
+    }
+
+    public long getInFlightAttempts() {
+        return threadPoolExecutor.getTaskCount() - threadPoolExecutor.getCompletedTaskCount() + virtualThreadAttempts.get();
+    }
+
+    // the lease is renewed for as long as the WorkflowExecutor runs & released when it returns
+    private void submit(final Long workflowRunAttemptId, final WorkflowExecutor workflowExecutor) {
+        final ExecutorService executorService = virtualThreads ? getVirtualThreadExecutor() : null;
+        if (executorService != null) {
+            virtualThreadAttempts.incrementAndGet();
+        }
+        leaseManager.startHeartbeat(workflowRunAttemptId);
+        Runnable runnable = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    workflowExecutor.run();
+                } finally {
+                    leaseManager.release(workflowRunAttemptId);
+                    if (executorService != null) {
+                        virtualThreadAttempts.decrementAndGet();
+                    }
+                }
+            }
+
+        };
+        if (executorService == null) {
+            threadPoolExecutor.submit(runnable);
+        } else {
+            executorService.submit(runnable);
+        }
+    }
+
+    // looked up reflectively so the bundle still builds & runs on JVMs older than 21, which keep the thread pool
+    private synchronized ExecutorService getVirtualThreadExecutor() {
+        if (virtualThreadExecutor == null && virtualThreads) {
+            try {
+                virtualThreadExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("virtual threads need Java 21 or later, using the WorkflowTPE");
+                virtualThreads = Boolean.FALSE;
+            }
+        }
+        return virtualThreadExecutor;
+    }
+
     public String getWorkflowName() {
         return workflowName;
     }
@@ -98,6 +250,38 @@ public class NCGenesBaselineWorkflowExecutorTask extends TimerTask {
         this.workflowName = workflowName;
     }
 
+    public WorkflowRunAttemptLeaseManager getLeaseManager() {
+        return leaseManager;
+    }
+
+    public void setLeaseManager(WorkflowRunAttemptLeaseManager leaseManager) {
+        this.leaseManager = leaseManager;
+    }
+
+    public WorkflowAdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    public void setAdmissionController(WorkflowAdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public Double getPriorityAgingRate() {
+        return priorityAgingRate;
+    }
+
+    public void setPriorityAgingRate(Double priorityAgingRate) {
+        this.priorityAgingRate = priorityAgingRate;
+    }
+
+    public Boolean getVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(Boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     public WorkflowBeanService getWorkflowBeanService() {
         return workflowBeanService;
     }
@@ -0,0 +1,163 @@
+package edu.unc.mapseq.executor.ncgenes.baseline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class WorkflowAdmissionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowAdmissionController.class);
+
+    // "Total for query: 12 jobs; 0 completed, ..." on current condor_q, "12 jobs; 0 completed, ..." on older ones
+    private static final Pattern CONDOR_QUEUE_TOTALS = Pattern.compile("(\\d+) jobs;");
+
+    // every limit is off until configured, so an upgraded node keeps dequeuing as before
+    private Integer maxConcurrentAttempts = 0;
+
+    private Integer maxOutstandingJobs = 0;
+
+    private Integer estimatedJobsPerAttempt = 30;
+
+    // GB
+    private Long minFreeSpace = 0L;
+
+    private String outputDirectory = System.getenv("MAPSEQ_OUTPUT_DIRECTORY");
+
+    private String condorQueueCommand = "condor_q -totals";
+
+    private Integer outstandingJobs;
+
+    private int admitted;
+
+    public WorkflowAdmissionController() {
+        super();
+    }
+
+    // condor_q is asked once per sweep, attempts admitted since then count as estimatedJobsPerAttempt each
+    public void startSweep() {
+        admitted = 0;
+        outstandingJobs = maxOutstandingJobs > 0 ? countOutstandingJobs() : null;
+    }
+
+    // a limit of 0 is no limit, an attempt that isn't admitted stays enqueued for a later sweep, inFlightAttempts spans every node
+    public boolean admit(long inFlightAttempts) {
+        if (maxConcurrentAttempts > 0 && inFlightAttempts >= maxConcurrentAttempts) {
+            logger.info("{} attempts in flight, limit is {}", inFlightAttempts, maxConcurrentAttempts);
+            return false;
+        }
+
+        if (outstandingJobs != null) {
+            long projected = outstandingJobs + (long) admitted * estimatedJobsPerAttempt;
+            if (projected >= maxOutstandingJobs) {
+                logger.info("~{} condor jobs outstanding, limit is {}", projected, maxOutstandingJobs);
+                return false;
+            }
+        }
+
+        if (minFreeSpace > 0 && StringUtils.isNotEmpty(outputDirectory)) {
+            File directory = new File(outputDirectory);
+            if (!directory.exists()) {
+                logger.warn("output directory doesn't exist, not checking free space: {}", outputDirectory);
+            } else {
+                long freeSpace = directory.getUsableSpace() / (1024L * 1024L * 1024L);
+                if (freeSpace < minFreeSpace) {
+                    logger.warn("{} GB free on {}, {} GB required", freeSpace, outputDirectory, minFreeSpace);
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // only an attempt this node actually dequeued adds to the projected condor jobs
+    public void admitted() {
+        admitted++;
+    }
+
+    // null when condor_q can't be run, the outstanding jobs limit is then skipped rather than stalling the queue
+    protected Integer countOutstandingJobs() {
+        try {
+            Process process = new ProcessBuilder(StringUtils.split(condorQueueCommand)).redirectErrorStream(true).start();
+            StringBuilder output = new StringBuilder();
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    output.append(line).append("\n");
+                }
+            }
+            if (!process.waitFor(1, TimeUnit.MINUTES) || process.exitValue() != 0) {
+                process.destroy();
+                logger.warn("{} failed: {}", condorQueueCommand, output);
+                return null;
+            }
+            return parseCondorQueueTotals(output.toString());
+        } catch (IOException | InterruptedException e) {
+            logger.warn("Could not run {}", condorQueueCommand, e);
+            return null;
+        }
+    }
+
+    // the first totals line is the query's own, i.e. this user's jobs
+    public static Integer parseCondorQueueTotals(String output) {
+        Matcher matcher = CONDOR_QUEUE_TOTALS.matcher(output);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    public Integer getMaxConcurrentAttempts() {
+        return maxConcurrentAttempts;
+    }
+
+    public void setMaxConcurrentAttempts(Integer maxConcurrentAttempts) {
+        this.maxConcurrentAttempts = maxConcurrentAttempts;
+    }
+
+    public Integer getMaxOutstandingJobs() {
+        return maxOutstandingJobs;
+    }
+
+    public void setMaxOutstandingJobs(Integer maxOutstandingJobs) {
+        this.maxOutstandingJobs = maxOutstandingJobs;
+    }
+
+    public Integer getEstimatedJobsPerAttempt() {
+        return estimatedJobsPerAttempt;
+    }
+
+    public void setEstimatedJobsPerAttempt(Integer estimatedJobsPerAttempt) {
+        this.estimatedJobsPerAttempt = estimatedJobsPerAttempt;
+    }
+
+    public Long getMinFreeSpace() {
+        return minFreeSpace;
+    }
+
+    public void setMinFreeSpace(Long minFreeSpace) {
+        this.minFreeSpace = minFreeSpace;
+    }
+
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public void setOutputDirectory(String outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public String getCondorQueueCommand() {
+        return condorQueueCommand;
+    }
+
+    public void setCondorQueueCommand(String condorQueueCommand) {
+        this.condorQueueCommand = condorQueueCommand;
+    }
+
+}
@@ -0,0 +1,382 @@
+package edu.unc.mapseq.executor.ncgenes.baseline;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class WorkflowRunAttemptLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowRunAttemptLeaseManager.class);
+
+    private String leaseDirectory;
+
+    private String nodeId;
+
+    private Long leaseMinutes = 10L;
+
+    // the version each held lease was last written with, renewing bumps it
+    private final Map<Long, Long> versions = new ConcurrentHashMap<Long, Long>();
+
+    private final Map<Long, ScheduledFuture<?>> heartbeats = new ConcurrentHashMap<Long, ScheduledFuture<?>>();
+
+    // what this node last read from every lease & when by its own clock, a lease is expired once it hasn't changed for a lease
+    private final Map<String, Observation> observations = new HashMap<String, Observation>();
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    private boolean stopped;
+
+    public WorkflowRunAttemptLeaseManager() {
+        super();
+    }
+
+    // without a shared lease directory every node claims everything, the single node behavior
+    public boolean isEnabled() {
+        return StringUtils.isNotBlank(leaseDirectory);
+    }
+
+    // a lease is <attemptId>.lease holding "<node id> <version>", an existing lease is only ever taken over by sweep()
+    public boolean claim(Long workflowRunAttemptId) {
+        if (!isEnabled()) {
+            return true;
+        }
+        File directory = new File(leaseDirectory);
+        directory.mkdirs();
+        try {
+            if (!create(getLeaseFile(workflowRunAttemptId), format(0L))) {
+                return false;
+            }
+            versions.put(workflowRunAttemptId, 0L);
+            return true;
+        } catch (IOException e) {
+            logger.error(String.format("Could not claim WorkflowRunAttempt %d", workflowRunAttemptId), e);
+            return false;
+        }
+    }
+
+    // renews the lease a few times a lease while the attempt runs, until release()
+    public synchronized void startHeartbeat(final Long workflowRunAttemptId) {
+        if (!isEnabled() || stopped || !versions.containsKey(workflowRunAttemptId)) {
+            return;
+        }
+        long period = Math.max(1L, getLeaseDuration() / 3);
+        heartbeats.put(workflowRunAttemptId, getHeartbeatExecutor().scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                if (!renew(workflowRunAttemptId)) {
+                    cancelHeartbeat(workflowRunAttemptId);
+                }
+            }
+
+        }, period, period, TimeUnit.MILLISECONDS));
+    }
+
+    // false once the lease is no longer this node's, i.e. another node swept it after this one stopped renewing in time...
+    // synchronized with release() so a renewal already under way can't bump the version release() is about to delete
+    public synchronized boolean renew(Long workflowRunAttemptId) {
+        if (!isEnabled()) {
+            return true;
+        }
+        Long version = versions.get(workflowRunAttemptId);
+        if (version == null) {
+            return false;
+        }
+        try {
+            String next = format(version + 1);
+            if (compareAndSet(getLeaseFile(workflowRunAttemptId), format(version), next)) {
+                versions.put(workflowRunAttemptId, version + 1);
+                return true;
+            }
+            logger.error("lost the lease on WorkflowRunAttempt {}", workflowRunAttemptId);
+            versions.remove(workflowRunAttemptId);
+            return false;
+        } catch (IOException e) {
+            // the next heartbeat tries again, the lease only expires after a whole lease without one
+            logger.warn(String.format("Could not renew the lease on WorkflowRunAttempt %d", workflowRunAttemptId), e);
+            return true;
+        }
+    }
+
+    // the attempt has finished or this node won't run it after all
+    public synchronized void release(Long workflowRunAttemptId) {
+        if (!isEnabled()) {
+            return;
+        }
+        cancelHeartbeat(workflowRunAttemptId);
+        Long version = versions.remove(workflowRunAttemptId);
+        if (version == null) {
+            return;
+        }
+        // a lease left behind would be flagged as an orphan, so a lock another node holds for a moment is waited out
+        for (int i = 0; i < 50; i++) {
+            try {
+                if (!compareAndSet(getLeaseFile(workflowRunAttemptId), format(version), null)) {
+                    logger.warn("the lease on WorkflowRunAttempt {} was no longer ours to release", workflowRunAttemptId);
+                }
+                return;
+            } catch (FileAlreadyExistsException e) {
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            } catch (IOException e) {
+                break;
+            }
+        }
+        logger.error("Could not release the lease on WorkflowRunAttempt {}", workflowRunAttemptId);
+    }
+
+    // the attempts whose leases went a whole lease without a renewal, each lease is removed by exactly one node which then flags the
+    // attempt...expiry is judged by this node's clock alone, so skew between nodes doesn't matter
+    public synchronized List<Long> sweep() {
+        List<Long> ret = new ArrayList<Long>();
+        if (!isEnabled()) {
+            return ret;
+        }
+        File[] files = new File(leaseDirectory).listFiles();
+        if (files == null) {
+            return ret;
+        }
+        // stale locks first, so a lease whose holder died mid renewal is swept in the same pass
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File f1, File f2) {
+                return Boolean.compare(!f1.getName().endsWith(".lock"), !f2.getName().endsWith(".lock"));
+            }
+
+        });
+        long now = nanoTime();
+        Map<String, Observation> current = new HashMap<String, Observation>();
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(".lease") && !name.endsWith(".lock")) {
+                continue;
+            }
+            String content = read(file);
+            if (content == null) {
+                continue;
+            }
+            Observation observation = observations.get(name);
+            if (observation == null || !observation.content.equals(content)) {
+                current.put(name, new Observation(content, now));
+                continue;
+            }
+            current.put(name, observation);
+            if (now - observation.since < TimeUnit.MILLISECONDS.toNanos(getLeaseDuration())) {
+                continue;
+            }
+            try {
+                if (name.endsWith(".lock")) {
+                    // a lock is held for a read & a write, one a lease old was left by a node that died holding it
+                    if (file.delete()) {
+                        logger.warn("removed a stale lock: {}", name);
+                    }
+                } else if (compareAndSet(file, content, null)) {
+                    logger.warn("lease expired: {}, {}", name, content);
+                    ret.add(Long.valueOf(name.substring(0, name.indexOf("."))));
+                }
+            } catch (IOException | NumberFormatException e) {
+                logger.error(String.format("Could not remove expired lease %s", name), e);
+            }
+            current.remove(name);
+        }
+        observations.clear();
+        observations.putAll(current);
+        return ret;
+    }
+
+    public int countLeases() {
+        File[] files = isEnabled() ? new File(leaseDirectory).listFiles() : null;
+        int ret = 0;
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".lease")) {
+                    ret++;
+                }
+            }
+        }
+        return ret;
+    }
+
+    public String getHolder(Long workflowRunAttemptId) {
+        String content = read(getLeaseFile(workflowRunAttemptId));
+        return content != null ? content.substring(0, content.lastIndexOf(" ")) : null;
+    }
+
+    // a reloaded container destroys this bean while the WorkflowExecutors it started still monitor their DAGs, so their leases are
+    // renewed until each is released & the heartbeat thread ends with the last one
+    public synchronized void stop() {
+        stopped = true;
+        if (heartbeats.isEmpty() && heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+            heartbeatExecutor = null;
+        }
+    }
+
+    private synchronized void cancelHeartbeat(Long workflowRunAttemptId) {
+        ScheduledFuture<?> heartbeat = heartbeats.remove(workflowRunAttemptId);
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+        if (stopped && heartbeats.isEmpty() && heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+            heartbeatExecutor = null;
+        }
+    }
+
+    // replaces (or deletes, for a null update) the lease only while it still reads expected, under a lock file every writer of an
+    // existing lease takes, so a renewal & a sweep can't both act on the same version
+    private boolean compareAndSet(File lease, String expected, String update) throws IOException {
+        File lock = new File(lease.getParentFile(), lease.getName().replace(".lease", ".lock"));
+        // unique content, so a sweep never mistakes a new lock for one it saw before
+        if (!create(lock, String.format("%s %s", getNodeId(), UUID.randomUUID()))) {
+            // another node is mid update, not a lost race, the caller tries again later
+            throw new FileAlreadyExistsException(lock.getAbsolutePath());
+        }
+        try {
+            if (!expected.equals(read(lease))) {
+                return false;
+            }
+            if (update == null) {
+                Files.delete(lease.toPath());
+                return true;
+            }
+            File tmpFile = File.createTempFile(lease.getName(), ".tmp", lease.getParentFile());
+            try {
+                Files.write(tmpFile.toPath(), update.getBytes(StandardCharsets.UTF_8));
+                Files.move(tmpFile.toPath(), lease.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(lock.toPath());
+        }
+    }
+
+    // the file is written in full under a private name & hard linked into place, so no node ever sees a partial one
+    private boolean create(File file, String content) throws IOException {
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            Files.write(tmpFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            Files.createLink(file.toPath(), tmpFile.toPath());
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    private String read(File file) {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Could not read {}", file.getAbsolutePath());
+            return null;
+        }
+    }
+
+    private File getLeaseFile(Long workflowRunAttemptId) {
+        return new File(leaseDirectory, String.format("%d.lease", workflowRunAttemptId));
+    }
+
+    private String format(long version) {
+        return String.format("%s %d", getNodeId(), version);
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private synchronized ScheduledExecutorService getHeartbeatExecutor() {
+        if (heartbeatExecutor == null) {
+            heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "WorkflowRunAttemptLeaseHeartbeat");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+
+            });
+        }
+        return heartbeatExecutor;
+    }
+
+    private long getLeaseDuration() {
+        return leaseMinutes * 60 * 1000;
+    }
+
+    static class Observation {
+
+        private final String content;
+
+        private final long since;
+
+        public Observation(String content, long since) {
+            super();
+            this.content = content;
+            this.since = since;
+        }
+
+    }
+
+    public String getLeaseDirectory() {
+        return leaseDirectory;
+    }
+
+    public void setLeaseDirectory(String leaseDirectory) {
+        this.leaseDirectory = leaseDirectory;
+    }
+
+    public String getNodeId() {
+        if (StringUtils.isBlank(nodeId)) {
+            // pid@hostname
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Long getLeaseMinutes() {
+        return leaseMinutes;
+    }
+
+    public void setLeaseMinutes(Long leaseMinutes) {
+        this.leaseMinutes = leaseMinutes;
+    }
+
+}
@@ -0,0 +1,70 @@
+package edu.unc.mapseq.executor.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.executor.ncgenes.baseline.WorkflowAdmissionController;
+
+public class WorkflowAdmissionControllerTest {
+
+    @Test
+    public void testParseCondorQueueTotals() {
+        String output = "\n-- Schedd: hatteras.renci.org : <152.54.3.44:9618?... @ 05/14/18 10:21:13\n"
+                + "Total for query: 1712 jobs; 0 completed, 0 removed, 1200 idle, 512 running, 0 held, 0 suspended \n"
+                + "Total for mapseq: 1712 jobs; 0 completed, 0 removed, 1200 idle, 512 running, 0 held, 0 suspended \n"
+                + "Total for all users: 9001 jobs; 0 completed, 0 removed, 8000 idle, 1001 running, 0 held, 0 suspended\n";
+        assertEquals(Integer.valueOf(1712), WorkflowAdmissionController.parseCondorQueueTotals(output));
+        assertEquals(Integer.valueOf(7),
+                WorkflowAdmissionController.parseCondorQueueTotals("7 jobs; 0 completed, 0 removed, 7 idle, 0 running, 0 held"));
+        assertNull(WorkflowAdmissionController.parseCondorQueueTotals("condor_q: command not found"));
+    }
+
+    @Test
+    public void testLimits() {
+        WorkflowAdmissionController admissionController = new WorkflowAdmissionController() {
+
+            @Override
+            protected Integer countOutstandingJobs() {
+                return 100;
+            }
+
+        };
+        admissionController.setMinFreeSpace(0L);
+        admissionController.setMaxConcurrentAttempts(10);
+        admissionController.setMaxOutstandingJobs(200);
+        admissionController.setEstimatedJobsPerAttempt(30);
+
+        admissionController.startSweep();
+        assertFalse(admissionController.admit(10));
+        // an attempt admitted but then claimed elsewhere adds no condor jobs
+        assertTrue(admissionController.admit(0));
+        // 100 queued, then 130, 160 & 190, the fifth attempt would pass 200
+        for (int i = 0; i < 4; i++) {
+            assertTrue(admissionController.admit(i));
+            admissionController.admitted();
+        }
+        assertFalse(admissionController.admit(4));
+
+        // the next sweep trusts condor_q again
+        admissionController.startSweep();
+        assertTrue(admissionController.admit(4));
+
+        admissionController.setMaxOutstandingJobs(0);
+        admissionController.setMaxConcurrentAttempts(0);
+        admissionController.startSweep();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(admissionController.admit(i));
+            admissionController.admitted();
+        }
+
+        // off by default
+        WorkflowAdmissionController defaults = new WorkflowAdmissionController();
+        defaults.startSweep();
+        assertTrue(defaults.admit(Long.MAX_VALUE));
+    }
+
+}
@@ -0,0 +1,131 @@
+package edu.unc.mapseq.executor.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.executor.ncgenes.baseline.WorkflowRunAttemptLeaseManager;
+
+public class WorkflowRunAttemptLeaseManagerTest {
+
+    private WorkflowRunAttemptLeaseManager createLeaseManager(File leaseDirectory, String nodeId) {
+        WorkflowRunAttemptLeaseManager leaseManager = new WorkflowRunAttemptLeaseManager();
+        leaseManager.setLeaseDirectory(leaseDirectory.getAbsolutePath());
+        leaseManager.setNodeId(nodeId);
+        return leaseManager;
+    }
+
+    @Test
+    public void testOnlyOneNodeClaims() throws IOException {
+        File leaseDirectory = Files.createTempDirectory("leases").toFile();
+        WorkflowRunAttemptLeaseManager node1 = createLeaseManager(leaseDirectory, "node1");
+        WorkflowRunAttemptLeaseManager node2 = createLeaseManager(leaseDirectory, "node2");
+
+        assertTrue(node1.claim(42L));
+        assertFalse(node2.claim(42L));
+        assertFalse(node1.claim(42L));
+        assertTrue(node2.claim(43L));
+
+        File lease = new File(leaseDirectory, "42.lease");
+        assertEquals("node1 0", new String(Files.readAllBytes(lease.toPath()), StandardCharsets.UTF_8));
+        assertEquals("node1", node2.getHolder(42L));
+        assertEquals(2, leaseDirectory.listFiles().length);
+        assertEquals(2, node1.countLeases());
+
+        // renewing bumps the version, only the holder can renew or release
+        assertTrue(node1.renew(42L));
+        assertFalse(node2.renew(42L));
+        assertEquals("node1 1", new String(Files.readAllBytes(lease.toPath()), StandardCharsets.UTF_8));
+        node2.release(42L);
+        assertTrue(lease.exists());
+        node1.release(42L);
+        assertFalse(lease.exists());
+        assertTrue(node2.claim(42L));
+    }
+
+    @Test
+    public void testExpiredLeaseIsSwept() throws IOException {
+        File leaseDirectory = Files.createTempDirectory("leases").toFile();
+        WorkflowRunAttemptLeaseManager node1 = createLeaseManager(leaseDirectory, "node1");
+        WorkflowRunAttemptLeaseManager node2 = createLeaseManager(leaseDirectory, "node2");
+        // expired once a lease goes unchanged between two sweeps
+        node2.setLeaseMinutes(0L);
+
+        assertTrue(node1.claim(42L));
+        assertTrue(node1.claim(43L));
+        assertEquals(Collections.emptyList(), node2.sweep());
+
+        // node1 keeps renewing 43 but died holding 42
+        assertTrue(node1.renew(43L));
+        assertEquals(Arrays.asList(42L), node2.sweep());
+        assertFalse(new File(leaseDirectory, "42.lease").exists());
+        assertTrue(new File(leaseDirectory, "43.lease").exists());
+
+        // a swept lease isn't the old holder's any more, even when something new took its place
+        assertTrue(node2.claim(42L));
+        assertFalse(node1.renew(42L));
+        node1.release(42L);
+        assertEquals("node2", node1.getHolder(42L));
+    }
+
+    @Test
+    public void testStaleLockIsRemoved() throws IOException {
+        File leaseDirectory = Files.createTempDirectory("leases").toFile();
+        WorkflowRunAttemptLeaseManager node1 = createLeaseManager(leaseDirectory, "node1");
+        WorkflowRunAttemptLeaseManager node2 = createLeaseManager(leaseDirectory, "node2");
+        node2.setLeaseMinutes(0L);
+
+        assertTrue(node1.claim(42L));
+        // node1 died mid renewal, while locked no one else can renew or sweep the lease
+        File lock = new File(leaseDirectory, "42.lock");
+        Files.write(lock.toPath(), "node1 x".getBytes(StandardCharsets.UTF_8));
+        assertTrue(node1.renew(42L));
+        assertEquals("node1 0", new String(Files.readAllBytes(new File(leaseDirectory, "42.lease").toPath()), StandardCharsets.UTF_8));
+        assertEquals(Collections.emptyList(), node2.sweep());
+        assertTrue(lock.exists());
+
+        assertEquals(Arrays.asList(42L), node2.sweep());
+        assertFalse(lock.exists());
+        assertFalse(new File(leaseDirectory, "42.lease").exists());
+    }
+
+    @Test
+    public void testStopKeepsRenewingRunningAttempts() throws IOException, InterruptedException {
+        File leaseDirectory = Files.createTempDirectory("leases").toFile();
+        WorkflowRunAttemptLeaseManager node1 = createLeaseManager(leaseDirectory, "node1");
+        // a heartbeat every ms
+        node1.setLeaseMinutes(0L);
+        assertTrue(node1.claim(42L));
+        node1.startHeartbeat(42L);
+
+        // a config reload stops the bean while the attempt's DAG is still monitored
+        node1.stop();
+        File lease = new File(leaseDirectory, "42.lease");
+        String before = new String(Files.readAllBytes(lease.toPath()), StandardCharsets.UTF_8);
+        Thread.sleep(200L);
+        assertFalse(before.equals(new String(Files.readAllBytes(lease.toPath()), StandardCharsets.UTF_8)));
+
+        node1.release(42L);
+        assertFalse(lease.exists());
+    }
+
+    @Test
+    public void testDisabled() {
+        // without a lease directory every claim succeeds
+        WorkflowRunAttemptLeaseManager standalone = new WorkflowRunAttemptLeaseManager();
+        assertTrue(standalone.claim(42L));
+        assertTrue(standalone.claim(42L));
+        assertTrue(standalone.renew(42L));
+        assertEquals(Collections.emptyList(), standalone.sweep());
+    }
+
+}
@@ -0,0 +1,22 @@
+package edu.unc.mapseq.messaging.ncgenes.baseline;
+
+import java.util.List;
+
+// some elements of a batch could not be enqueued, the others were...the failed ones are retried on their own
+public class BatchElementsFailedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> failedElements;
+
+    public BatchElementsFailedException(String message, List<String> failedElements, Throwable cause) {
+        super(message, cause);
+        this.failedElements = failedElements;
+    }
+
+    // each a single run {"entities":[...]} message
+    public List<String> getFailedElements() {
+        return failedElements;
+    }
+
+}
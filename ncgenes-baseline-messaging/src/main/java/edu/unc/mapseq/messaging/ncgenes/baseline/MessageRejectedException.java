@@ -0,0 +1,12 @@
+package edu.unc.mapseq.messaging.ncgenes.baseline;
+
+// a message that fails the same way on every delivery, it goes straight to the dead letter queue
+public class MessageRejectedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public MessageRejectedException(String message) {
+        super(message);
+    }
+
+}
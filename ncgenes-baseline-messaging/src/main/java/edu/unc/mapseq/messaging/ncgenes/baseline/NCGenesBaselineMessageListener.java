@@ -1,7 +1,10 @@
 package edu.unc.mapseq.messaging.ncgenes.baseline;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -9,15 +12,20 @@ import javax.jms.TextMessage;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunAttemptEnqueuedListener;
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunPriority;
 import edu.unc.mapseq.dao.MaPSeqDAOBeanService;
 import edu.unc.mapseq.dao.MaPSeqDAOException;
 import edu.unc.mapseq.dao.WorkflowDAO;
-import edu.unc.mapseq.dao.WorkflowRunAttemptDAO;
+import edu.unc.mapseq.dao.model.Attribute;
+import edu.unc.mapseq.dao.model.Sample;
 import edu.unc.mapseq.dao.model.Workflow;
 import edu.unc.mapseq.dao.model.WorkflowRun;
 import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
@@ -30,67 +38,249 @@ public class NCGenesBaselineMessageListener extends AbstractSequencingMessageLis
 
     private static final Logger logger = LoggerFactory.getLogger(NCGenesBaselineMessageListener.class);
 
+    public static final String BATCH_FIELD_NAME = "workflowRuns";
+
+    private List<WorkflowRunAttemptEnqueuedListener> enqueuedListeners = new ArrayList<WorkflowRunAttemptEnqueuedListener>();
+
+    private WorkflowRunDeduplicationCache deduplicationCache = new WorkflowRunDeduplicationCache();
+
     public NCGenesBaselineMessageListener() {
         super();
     }
 
+    // outside a transacted session there is no redelivery, failures are logged & the message is gone
     @Override
     public void onMessage(Message message) {
         logger.debug("ENTERING onMessage(Message)");
+        try {
+            process(message);
+        } catch (MessageRejectedException e) {
+            logger.warn(e.getMessage());
+        } catch (BatchElementsFailedException e) {
+            logger.error(String.format("%s: %s", e.getMessage(), e.getFailedElements()), e.getCause());
+        } catch (JMSException | WorkflowException | MaPSeqDAOException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
 
-        String messageValue = null;
+    // MessageRejectedException for a message that can never succeed, BatchElementsFailedException for the batch elements that
+    // weren't enqueued, any other exception is worth a redelivery
+    public void process(Message message)
+            throws MessageRejectedException, BatchElementsFailedException, JMSException, WorkflowException, MaPSeqDAOException {
+        logger.debug("ENTERING process(Message)");
 
-        try {
-            if (message instanceof TextMessage) {
-                logger.debug("received TextMessage");
-                TextMessage textMessage = (TextMessage) message;
-                messageValue = textMessage.getText();
-            }
-        } catch (JMSException e2) {
-            e2.printStackTrace();
+        String messageValue = null;
+        if (message instanceof TextMessage) {
+            logger.debug("received TextMessage");
+            TextMessage textMessage = (TextMessage) message;
+            messageValue = textMessage.getText();
         }
+        String priority = message.getStringProperty(WorkflowRunPriority.ATTRIBUTE_NAME);
 
         if (StringUtils.isEmpty(messageValue)) {
-            logger.warn("message value is empty");
-            return;
+            throw new MessageRejectedException("message value is empty");
         }
 
         logger.info("messageValue: {}", messageValue);
 
         ObjectMapper mapper = new ObjectMapper();
-        WorkflowMessage workflowMessage = null;
+        List<JsonNode> nodes = new ArrayList<JsonNode>();
+        List<WorkflowMessage> workflowMessages = new ArrayList<WorkflowMessage>();
+        boolean isBatch = false;
 
         try {
-            workflowMessage = mapper.readValue(messageValue, WorkflowMessage.class);
-            if (workflowMessage.getEntities() == null) {
-                logger.error("json lacks entities");
-                return;
+            // a batch is {"workflowRuns":[<message>, ...]}, each element the single run {"entities":[...]} message
+            JsonNode root = mapper.readTree(messageValue);
+            JsonNode batch = root.get(BATCH_FIELD_NAME);
+            isBatch = batch != null && batch.isArray();
+            if (isBatch) {
+                for (JsonNode node : batch) {
+                    nodes.add(node);
+                }
+            } else {
+                nodes.add(root);
+            }
+            // the whole batch is parsed before anything is saved, so a bad element rejects the message rather than half of it
+            for (JsonNode node : nodes) {
+                WorkflowMessage workflowMessage = mapper.treeToValue(node, WorkflowMessage.class);
+                if (workflowMessage.getEntities() == null) {
+                    throw new MessageRejectedException("json lacks entities");
+                }
+                workflowMessages.add(workflowMessage);
             }
         } catch (IOException e) {
-            logger.error("BAD JSON format", e);
-            return;
+            throw new MessageRejectedException(String.format("BAD JSON format: %s", e.getMessage()));
         }
 
         MaPSeqDAOBeanService daoBean = getWorkflowBeanService().getMaPSeqDAOBeanService();
         WorkflowDAO workflowDAO = daoBean.getWorkflowDAO();
-        WorkflowRunAttemptDAO workflowRunAttemptDAO = daoBean.getWorkflowRunAttemptDAO();
 
+        List<WorkflowRunAttempt> attempts = new ArrayList<WorkflowRunAttempt>();
+        List<String> failedElements = new ArrayList<String>();
+        Exception failure = null;
         try {
             List<Workflow> workflowList = workflowDAO.findByName(getWorkflowName());
             if (CollectionUtils.isEmpty(workflowList)) {
-                logger.error("No Workflow Found: {}", getWorkflowName());
-                return;
+                throw new WorkflowException(String.format("No Workflow Found: %s", getWorkflowName()));
             }
             Workflow workflow = workflowList.get(0);
-            WorkflowRun workflowRun = createWorkflowRun(workflowMessage, workflow);
-            WorkflowRunAttempt attempt = new WorkflowRunAttempt();
-            attempt.setStatus(WorkflowRunAttemptStatusType.PENDING);
-            attempt.setWorkflowRun(workflowRun);
-            workflowRunAttemptDAO.save(attempt);
-
-        } catch (WorkflowException | MaPSeqDAOException e1) {
-            logger.error(e1.getMessage(), e1);
+
+            for (int i = 0; i < workflowMessages.size(); i++) {
+                String workflowRunName = getWorkflowRunName(nodes.get(i));
+                Set<Long> sampleIds = getSampleIds(nodes.get(i));
+                String key = null;
+                if (StringUtils.isNotEmpty(workflowRunName) && !sampleIds.isEmpty()) {
+                    key = WorkflowRunDeduplicationCache.createKey(workflowRunName, sampleIds);
+                    if (!deduplicationCache.claim(key)) {
+                        logger.warn("dropping duplicate WorkflowRun: {}", key);
+                        continue;
+                    }
+                }
+
+                boolean release = key != null;
+                try {
+                    // the cache misses after a restart or eviction, the runs already saved are the authority
+                    WorkflowRun workflowRun = key != null ? findSaved(daoBean, workflow, workflowRunName, sampleIds) : null;
+                    if (workflowRun != null) {
+                        if (CollectionUtils.isNotEmpty(daoBean.getWorkflowRunAttemptDAO().findByWorkflowRunId(workflowRun.getId()))) {
+                            logger.warn("dropping WorkflowRun that already exists: {}", key);
+                            release = false;
+                            continue;
+                        }
+                        // an earlier delivery saved the run but failed before its attempt was saved
+                        logger.warn("creating the missing WorkflowRunAttempt for WorkflowRun: {}", key);
+                    } else {
+                        workflowRun = createWorkflowRun(workflowMessages.get(i), workflow);
+                    }
+                    attempts.add(enqueue(daoBean, workflowRun, priority));
+                    release = false;
+                } catch (WorkflowException | MaPSeqDAOException | RuntimeException e) {
+                    if (!isBatch) {
+                        throw e;
+                    }
+                    // the rest of the batch still goes in, a redelivery of the whole batch would only retry this element
+                    logger.error(String.format("failed to enqueue WorkflowRun %d of %d in batch", i + 1, workflowMessages.size()), e);
+                    failedElements.add(nodes.get(i).toString());
+                    if (failure == null) {
+                        failure = e;
+                    }
+                } finally {
+                    if (release) {
+                        deduplicationCache.release(key);
+                    }
+                }
+            }
+
+        } finally {
+            if (isBatch) {
+                logger.info("enqueued {} of {} WorkflowRuns in batch, {} failed", attempts.size(), workflowMessages.size(),
+                        failedElements.size());
+            }
+
+            // wake the executor now rather than on its next sweep, including for the runs saved before a failure
+            for (WorkflowRunAttempt attempt : attempts) {
+                for (WorkflowRunAttemptEnqueuedListener listener : enqueuedListeners) {
+                    try {
+                        listener.enqueued(attempt);
+                    } catch (RuntimeException e) {
+                        logger.warn("enqueued listener failed, the executor sweep will pick up the attempt", e);
+                    }
+                }
+            }
+        }
+
+        if (!failedElements.isEmpty()) {
+            throw new BatchElementsFailedException(String.format("%d of %d WorkflowRuns in batch were not enqueued", failedElements.size(),
+                    workflowMessages.size()), failedElements, failure);
+        }
+
+    }
+
+    private WorkflowRunAttempt enqueue(MaPSeqDAOBeanService daoBean, WorkflowRun workflowRun, String priority)
+            throws MaPSeqDAOException {
+        if (NumberUtils.isNumber(priority)) {
+            Set<Attribute> attributeSet = workflowRun.getAttributes() != null ? workflowRun.getAttributes() : new HashSet<Attribute>();
+            WorkflowRunPriority.setPriority(attributeSet, NumberUtils.toInt(priority, WorkflowRunPriority.DEFAULT_PRIORITY));
+            workflowRun.setAttributes(attributeSet);
+            daoBean.getWorkflowRunDAO().save(workflowRun);
+        }
+
+        WorkflowRunAttempt attempt = new WorkflowRunAttempt();
+        attempt.setStatus(WorkflowRunAttemptStatusType.PENDING);
+        attempt.setWorkflowRun(workflowRun);
+        attempt.setId(daoBean.getWorkflowRunAttemptDAO().save(attempt));
+        return attempt;
+    }
+
+    // the run of this workflow with the same name & samples, null if there isn't one
+    private WorkflowRun findSaved(MaPSeqDAOBeanService daoBean, Workflow workflow, String workflowRunName, Set<Long> sampleIds)
+            throws MaPSeqDAOException {
+        List<WorkflowRun> workflowRuns = daoBean.getWorkflowRunDAO().findByName(workflowRunName);
+        if (CollectionUtils.isEmpty(workflowRuns)) {
+            return null;
+        }
+        for (WorkflowRun workflowRun : workflowRuns) {
+            if (workflowRun.getWorkflow() == null || !workflow.getId().equals(workflowRun.getWorkflow().getId())) {
+                continue;
+            }
+            Set<Long> savedSampleIds = new HashSet<Long>();
+            List<Sample> samples = daoBean.getSampleDAO().findByWorkflowRunId(workflowRun.getId());
+            if (samples != null) {
+                for (Sample sample : samples) {
+                    savedSampleIds.add(sample.getId());
+                }
+            }
+            if (savedSampleIds.equals(sampleIds)) {
+                return workflowRun;
+            }
         }
+        return null;
+    }
 
+    private String getWorkflowRunName(JsonNode node) {
+        for (JsonNode entity : node.path("entities")) {
+            if ("WorkflowRun".equals(entity.path("entityType").asText())) {
+                return entity.path("name").asText(null);
+            }
+        }
+        return null;
     }
+
+    // ids that aren't numbers are left out, the key is then weaker but createWorkflowRun still validates them
+    private Set<Long> getSampleIds(JsonNode node) {
+        Set<Long> sampleIds = new HashSet<Long>();
+        for (JsonNode entity : node.path("entities")) {
+            if ("Sample".equals(entity.path("entityType").asText()) && NumberUtils.isDigits(entity.path("id").asText())) {
+                sampleIds.add(Long.valueOf(entity.path("id").asText()));
+            }
+        }
+        return sampleIds;
+    }
+
+    // a listener per consumer session, sharing this one's configuration
+    public NCGenesBaselineMessageListener copy() {
+        NCGenesBaselineMessageListener listener = new NCGenesBaselineMessageListener();
+        listener.setWorkflowBeanService(getWorkflowBeanService());
+        listener.setWorkflowName(getWorkflowName());
+        listener.setEnqueuedListeners(enqueuedListeners);
+        listener.setDeduplicationCache(deduplicationCache);
+        return listener;
+    }
+
+    public WorkflowRunDeduplicationCache getDeduplicationCache() {
+        return deduplicationCache;
+    }
+
+    public void setDeduplicationCache(WorkflowRunDeduplicationCache deduplicationCache) {
+        this.deduplicationCache = deduplicationCache;
+    }
+
+    public List<WorkflowRunAttemptEnqueuedListener> getEnqueuedListeners() {
+        return enqueuedListeners;
+    }
+
+    public void setEnqueuedListeners(List<WorkflowRunAttemptEnqueuedListener> enqueuedListeners) {
+        this.enqueuedListeners = enqueuedListeners;
+    }
+
 }
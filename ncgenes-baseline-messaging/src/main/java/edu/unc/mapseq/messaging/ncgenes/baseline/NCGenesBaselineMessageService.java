@@ -1,21 +1,42 @@
 package edu.unc.mapseq.messaging.ncgenes.baseline;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
 import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
 import javax.jms.Session;
+import javax.jms.TextMessage;
 
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.RedeliveryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunPriority;
+
 public class NCGenesBaselineMessageService {
 
     private static final Logger logger = LoggerFactory.getLogger(NCGenesBaselineMessageService.class);
 
+    // the property ActiveMQ sets on the messages it dead letters itself
+    public static final String FAILURE_CAUSE_PROPERTY = "dlqDeliveryFailureCause";
+
+    public static final String ORIGINAL_MESSAGE_ID_PROPERTY = "originalJMSMessageID";
+
     private Connection connection;
 
-    private Session session;
+    private final List<Session> sessions = new ArrayList<Session>();
+
+    private final List<MessageConsumer> consumers = new ArrayList<MessageConsumer>();
 
     private ConnectionFactory connectionFactory;
 
@@ -23,6 +44,20 @@ public class NCGenesBaselineMessageService {
 
     private String destinationName;
 
+    private Integer consumerCount = 1;
+
+    private Integer prefetch = 1;
+
+    private String deadLetterDestinationName = "queue/ncgenes.baseline.DLQ";
+
+    private Integer maxDeliveries = 5;
+
+    private Long initialRedeliveryDelay = 1000L;
+
+    private Double backOffMultiplier = 2.0;
+
+    private Long maxRedeliveryDelay = 60000L;
+
     public NCGenesBaselineMessageService() {
         super();
     }
@@ -30,24 +65,186 @@ public class NCGenesBaselineMessageService {
     public void start() throws Exception {
         logger.info("ENTERING start()");
         this.connection = connectionFactory.createConnection();
-        this.session = this.connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-        Destination destination = this.session.createQueue(this.destinationName);
-        MessageConsumer consumer = this.session.createConsumer(destination);
-        consumer.setMessageListener(messageListener);
+        configureRedelivery(this.connection);
+        // a session delivers to one listener at a time, so each consumer gets its own session & listener
+        for (int i = 0; i < Math.max(1, consumerCount); i++) {
+            Session session = this.connection.createSession(true, Session.SESSION_TRANSACTED);
+            sessions.add(session);
+            Destination destination = session.createQueue(getQueueName());
+            MessageProducer deadLetterProducer = session.createProducer(session.createQueue(deadLetterDestinationName));
+            deadLetterProducer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            MessageProducer retryProducer = session.createProducer(session.createQueue(destinationName));
+            retryProducer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            MessageConsumer consumer = session.createConsumer(destination);
+            consumer.setMessageListener(new TransactedMessageListener(session, deadLetterProducer, retryProducer,
+                    i == 0 ? messageListener : messageListener.copy()));
+            consumers.add(consumer);
+        }
+        logger.info("{} consumers on {}", consumers.size(), getQueueName());
         this.connection.start();
     }
 
     public void stop() throws Exception {
         logger.info("ENTERING stop()");
-        if (this.session != null) {
-            this.session.close();
-        }
         if (this.connection != null) {
+            // blocks until every listener has returned from onMessage, uncommitted & prefetched messages go back to the broker
             this.connection.stop();
+        }
+        for (MessageConsumer consumer : consumers) {
+            close(consumer);
+        }
+        consumers.clear();
+        for (Session session : sessions) {
+            close(session);
+        }
+        sessions.clear();
+        if (this.connection != null) {
             this.connection.close();
         }
     }
 
+    // the client delays a rolled back message's redelivery on its own schedule, so no listener thread waits out the backoff & the
+    // consumer's other messages are delivered in the meantime
+    private void configureRedelivery(Connection connection) throws JMSException {
+        if (!(connection instanceof ActiveMQConnection)) {
+            logger.warn("not an ActiveMQ connection, the connection factory's redelivery policy applies");
+            return;
+        }
+        ActiveMQConnection activeMQConnection = (ActiveMQConnection) connection;
+        RedeliveryPolicy redeliveryPolicy = activeMQConnection.getRedeliveryPolicy();
+        redeliveryPolicy.setInitialRedeliveryDelay(initialRedeliveryDelay);
+        redeliveryPolicy.setRedeliveryDelay(initialRedeliveryDelay);
+        redeliveryPolicy.setUseExponentialBackOff(true);
+        redeliveryPolicy.setBackOffMultiplier(backOffMultiplier);
+        redeliveryPolicy.setMaximumRedeliveryDelay(maxRedeliveryDelay);
+        // the listener dead letters on delivery maxDeliveries, the client's own poison ack after that is only a backstop
+        redeliveryPolicy.setMaximumRedeliveries(maxDeliveries);
+        activeMQConnection.setNonBlockingRedelivery(true);
+    }
+
+    // ActiveMQ reads the prefetch from the destination options, a small prefetch spreads a burst over all consumers
+    private String getQueueName() {
+        if (prefetch == null || prefetch < 0) {
+            return this.destinationName;
+        }
+        return String.format("%s?consumer.prefetchSize=%d", this.destinationName, prefetch);
+    }
+
+    private void close(MessageConsumer consumer) {
+        try {
+            consumer.close();
+        } catch (JMSException e) {
+            logger.warn("Could not close consumer", e);
+        }
+    }
+
+    private void close(Session session) {
+        try {
+            session.close();
+        } catch (JMSException e) {
+            logger.warn("Could not close session", e);
+        }
+    }
+
+    // commits on success, rolls back for a delayed redelivery, dead letters rejected & exhausted messages
+    class TransactedMessageListener implements MessageListener {
+
+        private final Session session;
+
+        private final MessageProducer deadLetterProducer;
+
+        private final MessageProducer retryProducer;
+
+        private final NCGenesBaselineMessageListener listener;
+
+        public TransactedMessageListener(Session session, MessageProducer deadLetterProducer, MessageProducer retryProducer,
+                NCGenesBaselineMessageListener listener) {
+            super();
+            this.session = session;
+            this.deadLetterProducer = deadLetterProducer;
+            this.retryProducer = retryProducer;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            try {
+                try {
+                    listener.process(message);
+                    session.commit();
+                } catch (MessageRejectedException e) {
+                    deadLetter(message, e);
+                } catch (BatchElementsFailedException e) {
+                    requeue(message, e);
+                } catch (Exception e) {
+                    int deliveryCount = getDeliveryCount(message);
+                    if (deliveryCount >= maxDeliveries) {
+                        deadLetter(message, e);
+                        return;
+                    }
+                    logger.warn(String.format("delivery %d of %d failed, rolling back for redelivery", deliveryCount, maxDeliveries), e);
+                    // the connection's redelivery policy holds the message back, onMessage returns straight away
+                    session.rollback();
+                }
+            } catch (JMSException e) {
+                logger.error("Could not complete the transaction, the broker will redeliver", e);
+            }
+        }
+
+        // the send & the consume commit together, so the message is never in both queues or neither
+        private void deadLetter(Message message, Exception e) throws JMSException {
+            logger.error("moving {} to {}: {}", message.getJMSMessageID(), deadLetterDestinationName, e.getMessage());
+            deadLetterProducer.send(createDeadLetter(message, e), DeliveryMode.PERSISTENT, message.getJMSPriority(), 0L);
+            session.commit();
+        }
+
+        // a received message's properties are read only, so the dead letter is a copy that also carries why it failed
+        private Message createDeadLetter(Message message, Exception e) throws JMSException {
+            if (!(message instanceof TextMessage)) {
+                logger.warn("{} isn't a TextMessage, dead lettering it without a failure cause", message.getJMSMessageID());
+                return message;
+            }
+            TextMessage deadLetter = session.createTextMessage(((TextMessage) message).getText());
+            Enumeration<?> propertyNames = message.getPropertyNames();
+            while (propertyNames.hasMoreElements()) {
+                String propertyName = (String) propertyNames.nextElement();
+                // JMSX properties belong to the provider
+                if (!propertyName.startsWith("JMSX")) {
+                    deadLetter.setObjectProperty(propertyName, message.getObjectProperty(propertyName));
+                }
+            }
+            deadLetter.setJMSCorrelationID(message.getJMSCorrelationID());
+            deadLetter.setJMSType(message.getJMSType());
+            deadLetter.setStringProperty(ORIGINAL_MESSAGE_ID_PROPERTY, message.getJMSMessageID());
+            deadLetter.setStringProperty(FAILURE_CAUSE_PROPERTY, String.format("%s: %s", e.getClass().getName(), e.getMessage()));
+            return deadLetter;
+        }
+
+        // the batch is done with, each element that failed goes back on the queue as a single run message with its own deliveries,
+        // so only those that keep failing end up dead lettered
+        private void requeue(Message message, BatchElementsFailedException e) throws JMSException {
+            logger.warn("{}, requeueing them as single run messages", e.getMessage());
+            String priority = message.getStringProperty(WorkflowRunPriority.ATTRIBUTE_NAME);
+            for (String element : e.getFailedElements()) {
+                TextMessage retry = session.createTextMessage(element);
+                if (priority != null) {
+                    retry.setStringProperty(WorkflowRunPriority.ATTRIBUTE_NAME, priority);
+                }
+                retryProducer.send(retry, DeliveryMode.PERSISTENT, message.getJMSPriority(), 0L);
+            }
+            session.commit();
+        }
+
+        // JMSXDeliveryCount starts at 1, brokers that don't set it only report whether this is a redelivery
+        private int getDeliveryCount(Message message) throws JMSException {
+            if (message.propertyExists("JMSXDeliveryCount")) {
+                return message.getIntProperty("JMSXDeliveryCount");
+            }
+            return message.getJMSRedelivered() ? 2 : 1;
+        }
+
+    }
+
     public ConnectionFactory getConnectionFactory() {
         return connectionFactory;
     }
@@ -72,4 +269,60 @@ public class NCGenesBaselineMessageService {
         this.destinationName = destinationName;
     }
 
+    public Integer getConsumerCount() {
+        return consumerCount;
+    }
+
+    public void setConsumerCount(Integer consumerCount) {
+        this.consumerCount = consumerCount;
+    }
+
+    public String getDeadLetterDestinationName() {
+        return deadLetterDestinationName;
+    }
+
+    public void setDeadLetterDestinationName(String deadLetterDestinationName) {
+        this.deadLetterDestinationName = deadLetterDestinationName;
+    }
+
+    public Integer getMaxDeliveries() {
+        return maxDeliveries;
+    }
+
+    public void setMaxDeliveries(Integer maxDeliveries) {
+        this.maxDeliveries = maxDeliveries;
+    }
+
+    public Long getInitialRedeliveryDelay() {
+        return initialRedeliveryDelay;
+    }
+
+    public void setInitialRedeliveryDelay(Long initialRedeliveryDelay) {
+        this.initialRedeliveryDelay = initialRedeliveryDelay;
+    }
+
+    public Double getBackOffMultiplier() {
+        return backOffMultiplier;
+    }
+
+    public void setBackOffMultiplier(Double backOffMultiplier) {
+        this.backOffMultiplier = backOffMultiplier;
+    }
+
+    public Long getMaxRedeliveryDelay() {
+        return maxRedeliveryDelay;
+    }
+
+    public void setMaxRedeliveryDelay(Long maxRedeliveryDelay) {
+        this.maxRedeliveryDelay = maxRedeliveryDelay;
+    }
+
+    public Integer getPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(Integer prefetch) {
+        this.prefetch = prefetch;
+    }
+
 }
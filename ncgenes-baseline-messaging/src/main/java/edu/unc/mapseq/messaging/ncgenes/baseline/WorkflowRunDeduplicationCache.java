@@ -0,0 +1,75 @@
+package edu.unc.mapseq.messaging.ncgenes.baseline;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+public class WorkflowRunDeduplicationCache {
+
+    private Integer maxSize = 10000;
+
+    private Long ttlMinutes = 24 * 60L;
+
+    // access ordered, so the least recently seen key is evicted first
+    private final LinkedHashMap<String, Long> keys = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > maxSize;
+        }
+
+    };
+
+    public WorkflowRunDeduplicationCache() {
+        super();
+    }
+
+    // the same samples under the same run name are the same WorkflowRun, whatever order the entities came in
+    public static String createKey(String workflowRunName, Collection<Long> sampleIds) {
+        StringBuilder sb = new StringBuilder(workflowRunName);
+        for (Long sampleId : new TreeSet<Long>(sampleIds)) {
+            sb.append("|").append(sampleId);
+        }
+        return sb.toString();
+    }
+
+    // false when the key was claimed within the ttl, so concurrent consumers given the same message only enqueue it once
+    public synchronized boolean claim(String key) {
+        long now = System.currentTimeMillis();
+        Long claimed = keys.get(key);
+        if (claimed != null && now - claimed < ttlMinutes * 60 * 1000) {
+            return false;
+        }
+        keys.put(key, now);
+        return true;
+    }
+
+    // for a claim whose WorkflowRun was never saved, so a redelivery can try again
+    public synchronized void release(String key) {
+        keys.remove(key);
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    public Integer getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Long getTtlMinutes() {
+        return ttlMinutes;
+    }
+
+    public void setTtlMinutes(Long ttlMinutes) {
+        this.ttlMinutes = ttlMinutes;
+    }
+
+}
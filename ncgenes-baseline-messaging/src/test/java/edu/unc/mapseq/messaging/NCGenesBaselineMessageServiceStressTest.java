@@ -0,0 +1,231 @@
+package edu.unc.mapseq.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.messaging.ncgenes.baseline.BatchElementsFailedException;
+import edu.unc.mapseq.messaging.ncgenes.baseline.MessageRejectedException;
+import edu.unc.mapseq.messaging.ncgenes.baseline.NCGenesBaselineMessageListener;
+import edu.unc.mapseq.messaging.ncgenes.baseline.NCGenesBaselineMessageService;
+import edu.unc.mapseq.workflow.WorkflowException;
+
+public class NCGenesBaselineMessageServiceStressTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(NCGenesBaselineMessageServiceStressTest.class);
+
+    private static final int MESSAGES = 2000;
+
+    private ActiveMQConnectionFactory connectionFactory;
+
+    private NCGenesBaselineMessageService service;
+
+    @Before
+    public void setUp() {
+        // an embedded, in memory broker, the service sets the connection's redelivery policy from its own backoff settings
+        connectionFactory = new ActiveMQConnectionFactory("vm://stress?broker.persistent=false&broker.useJmx=false");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    // the 2000 message runs only with -Pstress (or -Dstress=true)
+    private void assumeStress() {
+        Assume.assumeTrue(Boolean.getBoolean("stress"));
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        assumeStress();
+        CountDownLatch latch = new CountDownLatch(MESSAGES);
+        start(new StressListener(latch, 0, 0, new AtomicInteger()));
+        long start = System.currentTimeMillis();
+        send(MESSAGES, 0);
+        assertTrue(latch.await(2, TimeUnit.MINUTES));
+        long duration = Math.max(1L, System.currentTimeMillis() - start);
+        logger.info(String.format("no failures: %d messages in %d ms, %.1f/s", MESSAGES, duration, MESSAGES * 1000D / duration));
+    }
+
+    @Test
+    public void testThroughputWithFailures() throws Exception {
+        assumeStress();
+        int poison = MESSAGES / 100;
+        CountDownLatch latch = new CountDownLatch(MESSAGES - poison);
+        AtomicInteger failures = new AtomicInteger();
+        // every 10th message fails its first two deliveries, every 100th is rejected outright
+        start(new StressListener(latch, 10, 2, failures));
+        long start = System.currentTimeMillis();
+        send(MESSAGES, 100);
+        assertTrue(latch.await(2, TimeUnit.MINUTES));
+        long duration = Math.max(1L, System.currentTimeMillis() - start);
+        logger.info(String.format("%d injected failures, %d rejected: %d messages in %d ms, %.1f/s", failures.get(), poison,
+                MESSAGES, duration, MESSAGES * 1000D / duration));
+        assertEquals(poison, drain(service.getDeadLetterDestinationName()));
+    }
+
+    @Test
+    public void testExhaustedRetries() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        // fails every delivery
+        start(new StressListener(latch, 1, Integer.MAX_VALUE, failures));
+        send(1, 0);
+        Message deadLetter = receive(service.getDeadLetterDestinationName());
+        assertTrue(deadLetter != null);
+        assertEquals("1", ((TextMessage) deadLetter).getText());
+        assertTrue(deadLetter.getStringProperty(NCGenesBaselineMessageService.FAILURE_CAUSE_PROPERTY).endsWith("injected failure"));
+        assertEquals(service.getMaxDeliveries().intValue(), failures.get());
+    }
+
+    @Test
+    public void testFailedBatchElementsRequeued() throws Exception {
+        CountDownLatch latch = new CountDownLatch(4);
+        start(new StressListener(latch, 0, 0, new AtomicInteger()));
+        Connection connection = connectionFactory.createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.createProducer(session.createQueue("queue/ncgenes.baseline.stress")).send(session.createTextMessage("batch:1,2,3,4"));
+        } finally {
+            connection.close();
+        }
+        // 2 & 4 are enqueued from the batch, 1 & 3 once they come back as single messages
+        assertTrue(latch.await(1, TimeUnit.MINUTES));
+        assertEquals(0, drain(service.getDeadLetterDestinationName()));
+    }
+
+    private void start(StressListener listener) throws Exception {
+        service = new NCGenesBaselineMessageService();
+        service.setConnectionFactory(connectionFactory);
+        service.setMessageListener(listener);
+        service.setDestinationName("queue/ncgenes.baseline.stress");
+        service.setDeadLetterDestinationName("queue/ncgenes.baseline.stress.DLQ");
+        service.setConsumerCount(4);
+        service.setInitialRedeliveryDelay(5L);
+        service.setMaxRedeliveryDelay(50L);
+        service.start();
+    }
+
+    private void send(int count, int poisonEvery) throws JMSException {
+        Connection connection = connectionFactory.createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue("queue/ncgenes.baseline.stress"));
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            for (int i = 1; i <= count; i++) {
+                producer.send(session.createTextMessage(poisonEvery > 0 && i % poisonEvery == 0 ? "poison" : Integer.toString(i)));
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private int drain(String destinationName) throws JMSException {
+        Connection connection = connectionFactory.createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(destinationName));
+            int count = 0;
+            while (consumer.receive(5000) != null) {
+                count++;
+            }
+            return count;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private Message receive(String destinationName) throws JMSException {
+        Connection connection = connectionFactory.createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            return session.createConsumer(session.createQueue(destinationName)).receive(30000);
+        } finally {
+            connection.close();
+        }
+    }
+
+    // stands in for the DAO work, fails the first failedDeliveries deliveries of every failEvery-th message
+    static class StressListener extends NCGenesBaselineMessageListener {
+
+        private final CountDownLatch latch;
+
+        private final int failEvery;
+
+        private final int failedDeliveries;
+
+        private final AtomicInteger failures;
+
+        public StressListener(CountDownLatch latch, int failEvery, int failedDeliveries, AtomicInteger failures) {
+            super();
+            this.latch = latch;
+            this.failEvery = failEvery;
+            this.failedDeliveries = failedDeliveries;
+            this.failures = failures;
+        }
+
+        @Override
+        public void process(Message message)
+                throws MessageRejectedException, BatchElementsFailedException, JMSException, WorkflowException {
+            String text = ((TextMessage) message).getText();
+            if ("poison".equals(text)) {
+                throw new MessageRejectedException("poison");
+            }
+            // the odd elements of a batch fail
+            if (text.startsWith("batch:")) {
+                List<String> failed = new ArrayList<String>();
+                for (String element : text.substring(6).split(",")) {
+                    if (Integer.parseInt(element) % 2 == 1) {
+                        failed.add(element);
+                    } else {
+                        latch.countDown();
+                    }
+                }
+                if (!failed.isEmpty()) {
+                    throw new BatchElementsFailedException("odd elements failed", failed, null);
+                }
+                return;
+            }
+            int deliveryCount = message.getIntProperty("JMSXDeliveryCount");
+            if (failEvery > 0 && Integer.parseInt(text) % failEvery == 0 && deliveryCount <= failedDeliveries) {
+                failures.incrementAndGet();
+                throw new WorkflowException("injected failure");
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public NCGenesBaselineMessageListener copy() {
+            return new StressListener(latch, failEvery, failedDeliveries, failures);
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package edu.unc.mapseq.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.messaging.ncgenes.baseline.WorkflowRunDeduplicationCache;
+
+public class WorkflowRunDeduplicationCacheTest {
+
+    @Test
+    public void testKey() {
+        assertEquals(WorkflowRunDeduplicationCache.createKey("NCG_00497_Baseline", Arrays.asList(3L, 1L, 2L)),
+                WorkflowRunDeduplicationCache.createKey("NCG_00497_Baseline", Arrays.asList(1L, 2L, 3L)));
+        assertTrue(!WorkflowRunDeduplicationCache.createKey("NCG_00497_Baseline", Arrays.asList(1L))
+                .equals(WorkflowRunDeduplicationCache.createKey("NCG_00498_Baseline", Arrays.asList(1L))));
+    }
+
+    @Test
+    public void testClaim() {
+        WorkflowRunDeduplicationCache cache = new WorkflowRunDeduplicationCache();
+        assertTrue(cache.claim("a|1"));
+        assertTrue(!cache.claim("a|1"));
+        cache.release("a|1");
+        assertTrue(cache.claim("a|1"));
+
+        cache.setTtlMinutes(0L);
+        assertTrue(cache.claim("a|1"));
+    }
+
+    @Test
+    public void testEviction() {
+        WorkflowRunDeduplicationCache cache = new WorkflowRunDeduplicationCache();
+        cache.setMaxSize(2);
+        cache.claim("a|1");
+        cache.claim("b|2");
+        // touching a keeps it, b is now the least recently seen
+        assertTrue(!cache.claim("a|1"));
+        cache.claim("c|3");
+        assertEquals(2, cache.size());
+        assertTrue(!cache.claim("a|1"));
+        assertTrue(cache.claim("b|2"));
+    }
+
+}
@@ -0,0 +1,109 @@
+package edu.unc.mapseq.workflow.ncgenes.baseline;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+public class IntervalListScatter {
+
+    private final File intervalList;
+
+    private final List<String> header = new ArrayList<String>();
+
+    private final List<String> intervals = new ArrayList<String>();
+
+    private final List<Long> lengths = new ArrayList<Long>();
+
+    public IntervalListScatter(File intervalList) throws IOException {
+        super();
+        this.intervalList = intervalList;
+        try (BufferedReader br = new BufferedReader(new FileReader(intervalList))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("@")) {
+                    header.add(line);
+                    continue;
+                }
+                if (StringUtils.isBlank(line)) {
+                    continue;
+                }
+                // contig, start & end are 1-based & inclusive
+                String[] columns = StringUtils.split(line, "\t");
+                if (columns.length < 3) {
+                    throw new IOException(String.format("malformed interval in %s: %s", intervalList.getName(), line));
+                }
+                intervals.add(line);
+                lengths.add(Long.valueOf(columns[2]) - Long.valueOf(columns[1]) + 1);
+            }
+        }
+    }
+
+    // contiguous shards keep the genomic order, each closes once it reaches its share of the total bases
+    public List<List<String>> partition(int shardCount) {
+        int count = Math.max(1, Math.min(shardCount, intervals.size()));
+        long totalBases = getTotalBases();
+
+        List<List<String>> shards = new ArrayList<List<String>>(count);
+        List<String> shard = new ArrayList<String>();
+        long cumulativeBases = 0;
+        for (int i = 0; i < intervals.size(); i++) {
+            shard.add(intervals.get(i));
+            cumulativeBases += lengths.get(i);
+            int remainingShards = count - shards.size() - 1;
+            int remainingIntervals = intervals.size() - i - 1;
+            if (remainingShards > 0 && (cumulativeBases * count >= totalBases * (shards.size() + 1)
+                    || remainingIntervals == remainingShards)) {
+                shards.add(shard);
+                shard = new ArrayList<String>();
+            }
+        }
+        if (!shard.isEmpty()) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    public List<File> scatter(int shardCount, File outputDirectory, String prefix) throws IOException {
+        List<List<String>> shards = partition(shardCount);
+        List<File> shardFiles = new ArrayList<File>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            File shardFile = getShardFile(outputDirectory, prefix, i);
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(shardFile))) {
+                for (String line : header) {
+                    bw.write(line);
+                    bw.newLine();
+                }
+                for (String line : shards.get(i)) {
+                    bw.write(line);
+                    bw.newLine();
+                }
+            }
+            shardFiles.add(shardFile);
+        }
+        return shardFiles;
+    }
+
+    public static File getShardFile(File outputDirectory, String prefix, int shard) {
+        return new File(outputDirectory, String.format("%s.shard-%02d.interval_list", prefix, shard + 1));
+    }
+
+    public File getIntervalList() {
+        return intervalList;
+    }
+
+    public long getTotalBases() {
+        long totalBases = 0;
+        for (Long length : lengths) {
+            totalBases += length;
+        }
+        return totalBases;
+    }
+
+}
@@ -0,0 +1,72 @@
+package edu.unc.mapseq.workflow.ncgenes.baseline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jgrapht.DirectedGraph;
+import org.renci.jlrm.condor.CondorJob;
+import org.renci.jlrm.condor.CondorJobEdge;
+
+public class JobDependencyResolver {
+
+    private final Map<CondorJob, List<File>> inputs = new LinkedHashMap<CondorJob, List<File>>();
+
+    private final Map<File, CondorJob> producers = new HashMap<File, CondorJob>();
+
+    public JobDependencyResolver() {
+        super();
+    }
+
+    public JobDependencyResolver consumes(CondorJob job, File... files) {
+        List<File> jobInputs = inputs.get(job);
+        if (jobInputs == null) {
+            jobInputs = new ArrayList<File>();
+            inputs.put(job, jobInputs);
+        }
+        jobInputs.addAll(Arrays.asList(files));
+        return this;
+    }
+
+    public JobDependencyResolver consumes(CondorJob job, List<File> files) {
+        return consumes(job, files.toArray(new File[files.size()]));
+    }
+
+    public JobDependencyResolver produces(CondorJob job, File... files) {
+        if (!inputs.containsKey(job)) {
+            inputs.put(job, new ArrayList<File>());
+        }
+        for (File file : files) {
+            CondorJob producer = producers.put(file.getAbsoluteFile(), job);
+            if (producer != null && producer != job) {
+                throw new IllegalArgumentException(
+                        String.format("%s is produced by both %s and %s", file.getAbsolutePath(), producer.getName(), job.getName()));
+            }
+        }
+        return this;
+    }
+
+    public JobDependencyResolver produces(CondorJob job, List<File> files) {
+        return produces(job, files.toArray(new File[files.size()]));
+    }
+
+    // only producer -> consumer edges, a job's inputs that no job produces are expected to exist already
+    public void addEdges(DirectedGraph<CondorJob, CondorJobEdge> graph) {
+        for (Map.Entry<CondorJob, List<File>> entry : inputs.entrySet()) {
+            CondorJob consumer = entry.getKey();
+            graph.addVertex(consumer);
+            for (File file : entry.getValue()) {
+                CondorJob producer = producers.get(file.getAbsoluteFile());
+                if (producer != null && producer != consumer) {
+                    graph.addVertex(producer);
+                    graph.addEdge(producer, consumer);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,853 @@
+package edu.unc.mapseq.workflow.ncgenes.baseline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.renci.jlrm.condor.CondorJob;
+import org.renci.jlrm.condor.CondorJobBuilder;
+import org.renci.jlrm.condor.CondorJobEdge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.dao.model.Flowcell;
+import edu.unc.mapseq.dao.model.Sample;
+import edu.unc.mapseq.module.sequencing.WriteVCFHeaderCLI;
+import edu.unc.mapseq.module.sequencing.bwa.BWAAlignCLI;
+import edu.unc.mapseq.module.sequencing.bwa.BWASAMPairedEndCLI;
+import edu.unc.mapseq.module.sequencing.fastqc.FastQCCLI;
+import edu.unc.mapseq.module.sequencing.fastqc.IgnoreLevelType;
+import edu.unc.mapseq.module.sequencing.filter.FilterVariantCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKApplyRecalibrationCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKCountCovariatesCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKDepthOfCoverageCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKDownsamplingType;
+import edu.unc.mapseq.module.sequencing.gatk.GATKFlagStatCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKIndelRealignerCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKPhoneHomeType;
+import edu.unc.mapseq.module.sequencing.gatk.GATKRealignerTargetCreatorCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKTableRecalibrationCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKUnifiedGenotyperCLI;
+import edu.unc.mapseq.module.sequencing.gatk.GATKVariantRecalibratorCLI;
+import edu.unc.mapseq.module.sequencing.picard.PicardAddOrReplaceReadGroupsCLI;
+import edu.unc.mapseq.module.sequencing.picard.PicardFixMateCLI;
+import edu.unc.mapseq.module.sequencing.picard.PicardMarkDuplicatesCLI;
+import edu.unc.mapseq.module.sequencing.picard.PicardMergeSAMCLI;
+import edu.unc.mapseq.module.sequencing.picard.PicardSortOrderType;
+import edu.unc.mapseq.module.sequencing.samtools.SAMToolsFlagstatCLI;
+import edu.unc.mapseq.module.sequencing.samtools.SAMToolsIndexCLI;
+import edu.unc.mapseq.workflow.WorkflowException;
+import edu.unc.mapseq.workflow.sequencing.SequencingWorkflowJobFactory;
+import edu.unc.mapseq.workflow.sequencing.SequencingWorkflowUtil;
+
+// the per-sample jobs & the files they read & write, everything it needs is passed in so a graph can be built without the DAO
+public class NCGenesBaselineGraphBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(NCGenesBaselineGraphBuilder.class);
+
+    private final DirectedGraph<CondorJob, CondorJobEdge> graph = new DefaultDirectedGraph<CondorJob, CondorJobEdge>(CondorJobEdge.class);
+
+    // edges come from the files each job reads & writes, not from the order the jobs are created in
+    private final JobDependencyResolver dependencies = new JobDependencyResolver();
+
+    private final Long workflowRunAttemptId;
+
+    private int count = 0;
+
+    // names every job & file without writing anything, no output directory, tmp directory or interval shard
+    private boolean dryRun;
+
+    private String siteName;
+
+    private String knownVCF;
+
+    private String referenceSequence;
+
+    private String icSNPIntervalList;
+
+    private String flagstatIntervalList;
+
+    private String depthOfCoverageIntervalList;
+
+    private String unifiedGenotyperIntervalList;
+
+    private String readGroupPlatform;
+
+    private String readGroupPlatformUnit;
+
+    private String percentBadVariants = "0.05";
+
+    private String unifiedGenotyperScatterCount;
+
+    private String bwaChunkSize;
+
+    // where the feature installs the split & gather scripts, condor transfers them from this host to the compute node
+    private String scriptsDirectory;
+
+    private boolean nativeFlagstat;
+
+    private boolean nativeDepthOfCoverage;
+
+    public NCGenesBaselineGraphBuilder(Long workflowRunAttemptId) {
+        super();
+        this.workflowRunAttemptId = workflowRunAttemptId;
+    }
+
+    public void addSample(Sample sample, File outputDirectory, File r1FastqFile, File r2FastqFile) throws WorkflowException {
+        logger.debug(sample.toString());
+
+        Flowcell flowcell = sample.getFlowcell();
+        if (!dryRun) {
+            File tmpDirectory = new File(outputDirectory, "tmp");
+            tmpDirectory.mkdirs();
+        }
+
+        // assumption: a dash is used as a delimiter between a participantId
+        // and the external code
+        // int idx = sample.getName().lastIndexOf("-");
+        // String participantId = idx != -1 ? sample.getName().substring(0, idx) : sample.getName();
+        //no longer expecting composite for participantId...can just use sample name
+        String participantId = sample.getName();
+
+        String r1FastqRootName = SequencingWorkflowUtil.getRootFastqName(r1FastqFile.getName());
+
+        String r2FastqRootName = SequencingWorkflowUtil.getRootFastqName(r2FastqFile.getName());
+
+        String rootFileName = String.format("%s_%s_L%03d", sample.getFlowcell().getName(), sample.getBarcode(),
+                sample.getLaneIndex());
+
+        try {
+
+            // start site specific jobs
+
+            // new job
+            CondorJobBuilder builder = SequencingWorkflowJobFactory
+                    .createJob(++count, WriteVCFHeaderCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName);
+            String flowcellProper = flowcell.getName().substring(flowcell.getName().length() - 9, flowcell.getName().length());
+            File writeVCFHeaderOut = new File(outputDirectory, String.format("%s.vcf.hdr", rootFileName));
+            builder.addArgument(WriteVCFHeaderCLI.BARCODE, sample.getBarcode())
+                    .addArgument(WriteVCFHeaderCLI.RUN, flowcell.getName())
+                    .addArgument(WriteVCFHeaderCLI.PARTICIPANTID, participantId)
+                    .addArgument(WriteVCFHeaderCLI.STUDYNAME, sample.getStudy().getName())
+                    .addArgument(WriteVCFHeaderCLI.LANE, sample.getLaneIndex().toString())
+                    .addArgument(WriteVCFHeaderCLI.LABNAME, "Jonathan_Berg").addArgument(WriteVCFHeaderCLI.FLOWCELL, flowcellProper)
+                    .addArgument(WriteVCFHeaderCLI.OUTPUT, writeVCFHeaderOut.getAbsolutePath());
+            CondorJob writeVCFHeaderJob = builder.build();
+            logger.info(writeVCFHeaderJob.toString());
+            graph.addVertex(writeVCFHeaderJob);
+            dependencies.produces(writeVCFHeaderJob, writeVCFHeaderOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, FastQCCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName);
+            File fastqcR1Output = new File(outputDirectory, r1FastqRootName + ".fastqc.zip");
+            builder.addArgument(FastQCCLI.INPUT, r1FastqFile.getAbsolutePath())
+                    .addArgument(FastQCCLI.OUTPUT, fastqcR1Output.getAbsolutePath())
+                    .addArgument(FastQCCLI.IGNORE, IgnoreLevelType.ERROR.toString());
+            CondorJob fastQCR1Job = builder.build();
+            logger.info(fastQCR1Job.toString());
+            graph.addVertex(fastQCR1Job);
+            dependencies.consumes(fastQCR1Job, r1FastqFile).produces(fastQCR1Job, fastqcR1Output);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, FastQCCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName);
+            File fastqcR2Output = new File(outputDirectory, r2FastqRootName + ".fastqc.zip");
+            builder.addArgument(FastQCCLI.INPUT, r2FastqFile.getAbsolutePath())
+                    .addArgument(FastQCCLI.OUTPUT, fastqcR2Output.getAbsolutePath())
+                    .addArgument(FastQCCLI.IGNORE, IgnoreLevelType.ERROR.toString());
+            CondorJob fastQCR2Job = builder.build();
+            logger.info(fastQCR2Job.toString());
+            graph.addVertex(fastQCR2Job);
+            dependencies.consumes(fastQCR2Job, r2FastqFile).produces(fastQCR2Job, fastqcR2Output);
+
+            // large lanes are split into chunks by a job at the head of the graph, the chunk alignments are merged back into one sam
+            long chunkSize = StringUtils.isNotEmpty(bwaChunkSize) ? Long.valueOf(bwaChunkSize) * 1024L * 1024L : 0L;
+            int chunkCount = chunkSize > 0 ? (int) ((r1FastqFile.length() + chunkSize - 1) / chunkSize) : 1;
+            List<File> r1FastqChunks = new ArrayList<File>();
+            List<File> r2FastqChunks = new ArrayList<File>();
+            List<String> chunkSuffixes = new ArrayList<String>();
+            if (chunkCount > 1) {
+                for (int i = 0; i < chunkCount; i++) {
+                    r1FastqChunks.add(new File(outputDirectory, String.format("%s.chunk-%02d.fastq.gz", r1FastqRootName, i + 1)));
+                    r2FastqChunks.add(new File(outputDirectory, String.format("%s.chunk-%02d.fastq.gz", r2FastqRootName, i + 1)));
+                    chunkSuffixes.add(String.format(".chunk-%02d", i + 1));
+                }
+                addSplitFastqJob(r1FastqFile, r1FastqChunks);
+                addSplitFastqJob(r2FastqFile, r2FastqChunks);
+            } else {
+                r1FastqChunks.add(r1FastqFile);
+                r2FastqChunks.add(r2FastqFile);
+                chunkSuffixes.add("");
+            }
+            boolean chunked = chunkCount > 1;
+
+            File bwaSAMPairedEndOutFile = new File(outputDirectory, rootFileName + ".sam");
+            List<File> bwaSAMPairedEndChunkOutFiles = new ArrayList<File>();
+
+            for (int i = 0; i < r1FastqChunks.size(); i++) {
+                File r1FastqChunk = r1FastqChunks.get(i);
+                File r2FastqChunk = r2FastqChunks.get(i);
+                String chunkSuffix = chunkSuffixes.get(i);
+
+                // new job
+                builder = SequencingWorkflowJobFactory.createJob(++count, BWAAlignCLI.class, workflowRunAttemptId, sample.getId())
+                        .siteName(siteName).numberOfProcessors(chunked ? 2 : 4);
+                File saiR1OutFile = new File(outputDirectory, r1FastqRootName + chunkSuffix + ".sai");
+                builder.addArgument(BWAAlignCLI.THREADS, chunked ? "2" : "4")
+                        .addArgument(BWAAlignCLI.FASTQ, r1FastqChunk.getAbsolutePath())
+                        .addArgument(BWAAlignCLI.FASTADB, referenceSequence)
+                        .addArgument(BWAAlignCLI.OUTFILE, saiR1OutFile.getAbsolutePath());
+                CondorJob bwaAlignR1Job = builder.build();
+                logger.info(bwaAlignR1Job.toString());
+                graph.addVertex(bwaAlignR1Job);
+                dependencies.consumes(bwaAlignR1Job, r1FastqChunk).produces(bwaAlignR1Job, saiR1OutFile);
+
+                // new job
+                builder = SequencingWorkflowJobFactory.createJob(++count, BWAAlignCLI.class, workflowRunAttemptId, sample.getId())
+                        .siteName(siteName).numberOfProcessors(chunked ? 2 : 4);
+                File saiR2OutFile = new File(outputDirectory, r2FastqRootName + chunkSuffix + ".sai");
+                builder.addArgument(BWAAlignCLI.THREADS, chunked ? "2" : "4")
+                        .addArgument(BWAAlignCLI.FASTQ, r2FastqChunk.getAbsolutePath())
+                        .addArgument(BWAAlignCLI.FASTADB, referenceSequence)
+                        .addArgument(BWAAlignCLI.OUTFILE, saiR2OutFile.getAbsolutePath());
+                CondorJob bwaAlignR2Job = builder.build();
+                logger.info(bwaAlignR2Job.toString());
+                graph.addVertex(bwaAlignR2Job);
+                dependencies.consumes(bwaAlignR2Job, r2FastqChunk).produces(bwaAlignR2Job, saiR2OutFile);
+
+                // new job
+                builder = SequencingWorkflowJobFactory
+                        .createJob(++count, BWASAMPairedEndCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName);
+                File bwaSAMPairedEndChunkOutFile = new File(outputDirectory, rootFileName + chunkSuffix + ".sam");
+                builder.addArgument(BWASAMPairedEndCLI.FASTADB, referenceSequence)
+                        .addArgument(BWASAMPairedEndCLI.FASTQ1, r1FastqChunk.getAbsolutePath())
+                        .addArgument(BWASAMPairedEndCLI.FASTQ2, r2FastqChunk.getAbsolutePath())
+                        .addArgument(BWASAMPairedEndCLI.SAI1, saiR1OutFile.getAbsolutePath())
+                        .addArgument(BWASAMPairedEndCLI.SAI2, saiR2OutFile.getAbsolutePath())
+                        .addArgument(BWASAMPairedEndCLI.OUTFILE, bwaSAMPairedEndChunkOutFile.getAbsolutePath());
+                CondorJob bwaSAMPairedEndJob = builder.build();
+                logger.info(bwaSAMPairedEndJob.toString());
+                graph.addVertex(bwaSAMPairedEndJob);
+                dependencies.consumes(bwaSAMPairedEndJob, r1FastqChunk, r2FastqChunk, saiR1OutFile, saiR2OutFile)
+                        .produces(bwaSAMPairedEndJob, bwaSAMPairedEndChunkOutFile);
+                bwaSAMPairedEndChunkOutFiles.add(bwaSAMPairedEndChunkOutFile);
+            }
+
+            if (chunked) {
+                // new job
+                builder = SequencingWorkflowJobFactory.createJob(++count, PicardMergeSAMCLI.class, workflowRunAttemptId, sample.getId())
+                        .siteName(siteName);
+                // AddOrReplaceReadGroups sorts the merged sam, so there's no point in sorting it here
+                builder.addArgument(PicardMergeSAMCLI.OUTPUT, bwaSAMPairedEndOutFile.getAbsolutePath())
+                        .addArgument(PicardMergeSAMCLI.SORTORDER, PicardSortOrderType.UNSORTED.toString().toLowerCase());
+                for (File bwaSAMPairedEndChunkOutFile : bwaSAMPairedEndChunkOutFiles) {
+                    builder.addArgument(PicardMergeSAMCLI.INPUT, bwaSAMPairedEndChunkOutFile.getAbsolutePath());
+                }
+                CondorJob mergeSAMJob = builder.build();
+                logger.info(mergeSAMJob.toString());
+                graph.addVertex(mergeSAMJob);
+                dependencies.consumes(mergeSAMJob, bwaSAMPairedEndChunkOutFiles).produces(mergeSAMJob, bwaSAMPairedEndOutFile);
+            }
+
+            // new job
+            builder = SequencingWorkflowJobFactory
+                    .createJob(++count, PicardAddOrReplaceReadGroupsCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName);
+            File fixRGOutput = new File(outputDirectory, bwaSAMPairedEndOutFile.getName().replace(".sam", ".fixed-rg.bam"));
+            builder.addArgument(PicardAddOrReplaceReadGroupsCLI.INPUT, bwaSAMPairedEndOutFile.getAbsolutePath())
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.OUTPUT, fixRGOutput.getAbsolutePath())
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.SORTORDER, PicardSortOrderType.COORDINATE.toString().toLowerCase())
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPID,
+                            String.format("%s-%s_L%03d", flowcell.getName(), sample.getBarcode(), sample.getLaneIndex()))
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPLIBRARY, participantId)
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPPLATFORM, readGroupPlatform)
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPPLATFORMUNIT, readGroupPlatformUnit)
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPSAMPLENAME, participantId)
+                    .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPCENTERNAME, "UNC");
+            CondorJob picardAddOrReplaceReadGroupsJob = builder.build();
+            logger.info(picardAddOrReplaceReadGroupsJob.toString());
+            graph.addVertex(picardAddOrReplaceReadGroupsJob);
+            dependencies.consumes(picardAddOrReplaceReadGroupsJob, bwaSAMPairedEndOutFile)
+                    .produces(picardAddOrReplaceReadGroupsJob, fixRGOutput);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName);
+            File picardAddOrReplaceReadGroupsIndexOut = new File(outputDirectory, fixRGOutput.getName().replace(".bam", ".bai"));
+            builder.addArgument(SAMToolsIndexCLI.INPUT, fixRGOutput.getAbsolutePath()).addArgument(SAMToolsIndexCLI.OUTPUT,
+                    picardAddOrReplaceReadGroupsIndexOut.getAbsolutePath());
+            CondorJob fixRGIndexJob = builder.build();
+            logger.info(fixRGIndexJob.toString());
+            graph.addVertex(fixRGIndexJob);
+            dependencies.consumes(fixRGIndexJob, fixRGOutput).produces(fixRGIndexJob, picardAddOrReplaceReadGroupsIndexOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory
+                    .createJob(++count, PicardMarkDuplicatesCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName);
+            File picardMarkDuplicatesMetricsFile = new File(outputDirectory,
+                    fixRGOutput.getName().replace(".bam", ".deduped.metrics"));
+            File picardMarkDuplicatesOutput = new File(outputDirectory, fixRGOutput.getName().replace(".bam", ".deduped.bam"));
+            builder.addArgument(PicardMarkDuplicatesCLI.INPUT, fixRGOutput.getAbsolutePath())
+                    .addArgument(PicardMarkDuplicatesCLI.METRICSFILE, picardMarkDuplicatesMetricsFile.getAbsolutePath())
+                    .addArgument(PicardMarkDuplicatesCLI.OUTPUT, picardMarkDuplicatesOutput.getAbsolutePath());
+            CondorJob picardMarkDuplicatesJob = builder.build();
+            logger.info(picardMarkDuplicatesJob.toString());
+            graph.addVertex(picardMarkDuplicatesJob);
+            dependencies.consumes(picardMarkDuplicatesJob, fixRGOutput)
+                    .produces(picardMarkDuplicatesJob, picardMarkDuplicatesOutput, picardMarkDuplicatesMetricsFile);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName);
+            File picardMarkDuplicatesIndexOut = new File(outputDirectory,
+                    picardMarkDuplicatesOutput.getName().replace(".bam", ".bai"));
+            builder.addArgument(SAMToolsIndexCLI.INPUT, picardMarkDuplicatesOutput.getAbsolutePath())
+                    .addArgument(SAMToolsIndexCLI.OUTPUT, picardMarkDuplicatesIndexOut.getAbsolutePath());
+            CondorJob samtoolsIndexJob = builder.build();
+            logger.info(samtoolsIndexJob.toString());
+            graph.addVertex(samtoolsIndexJob);
+            dependencies.consumes(samtoolsIndexJob, picardMarkDuplicatesOutput)
+                    .produces(samtoolsIndexJob, picardMarkDuplicatesIndexOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory
+                    .createJob(++count, GATKRealignerTargetCreatorCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName)
+                    .numberOfProcessors(2);
+            File realignTargetCreatorOut = new File(outputDirectory,
+                    picardMarkDuplicatesOutput.getName().replace(".bam", ".targets.intervals"));
+            builder.addArgument(GATKRealignerTargetCreatorCLI.REFERENCESEQUENCE, referenceSequence)
+                    .addArgument(GATKRealignerTargetCreatorCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                    .addArgument(GATKRealignerTargetCreatorCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                    .addArgument(GATKRealignerTargetCreatorCLI.KNOWN, knownVCF)
+                    .addArgument(GATKRealignerTargetCreatorCLI.INPUTFILE, picardMarkDuplicatesOutput.getAbsolutePath())
+                    .addArgument(GATKRealignerTargetCreatorCLI.OUT, realignTargetCreatorOut.getAbsolutePath());
+            CondorJob gatkRealignTargetCreatorJob = builder.build();
+            logger.info(gatkRealignTargetCreatorJob.toString());
+            graph.addVertex(gatkRealignTargetCreatorJob);
+            dependencies.consumes(gatkRealignTargetCreatorJob, picardMarkDuplicatesOutput, picardMarkDuplicatesIndexOut)
+                    .produces(gatkRealignTargetCreatorJob, realignTargetCreatorOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, GATKIndelRealignerCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName).numberOfProcessors(2);
+            File indelRealignerOut = new File(outputDirectory,
+                    picardMarkDuplicatesOutput.getName().replace(".bam", ".realign.bam"));
+            builder.addArgument(GATKIndelRealignerCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                    .addArgument(GATKIndelRealignerCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString().toLowerCase())
+                    .addArgument(GATKIndelRealignerCLI.REFERENCESEQUENCE, referenceSequence)
+                    .addArgument(GATKIndelRealignerCLI.KNOWNALLELES, knownVCF)
+                    .addArgument(GATKIndelRealignerCLI.INPUT, picardMarkDuplicatesOutput.getAbsolutePath())
+                    .addArgument(GATKIndelRealignerCLI.TARGETINTERVALS, realignTargetCreatorOut.getAbsolutePath())
+                    .addArgument(GATKIndelRealignerCLI.OUT, indelRealignerOut.getAbsolutePath());
+            CondorJob gatkIndelRealignerJob = builder.build();
+            logger.info(gatkIndelRealignerJob.toString());
+            graph.addVertex(gatkIndelRealignerJob);
+            dependencies.consumes(gatkIndelRealignerJob, picardMarkDuplicatesOutput, picardMarkDuplicatesIndexOut,
+                            realignTargetCreatorOut)
+                    .produces(gatkIndelRealignerJob, indelRealignerOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, PicardFixMateCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName);
+            File picardFixMateOutput = new File(outputDirectory, indelRealignerOut.getName().replace(".bam", ".fixmate.bam"));
+            builder.addArgument(PicardFixMateCLI.SORTORDER, PicardSortOrderType.COORDINATE.toString().toLowerCase())
+                    .addArgument(PicardFixMateCLI.INPUT, indelRealignerOut.getAbsolutePath())
+                    .addArgument(PicardFixMateCLI.OUTPUT, picardFixMateOutput.getAbsolutePath());
+            CondorJob picardFixMateJob = builder.build();
+            logger.info(picardFixMateJob.toString());
+            graph.addVertex(picardFixMateJob);
+            dependencies.consumes(picardFixMateJob, indelRealignerOut).produces(picardFixMateJob, picardFixMateOutput);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName);
+            File picardFixMateIndexOut = new File(outputDirectory, picardFixMateOutput.getName().replace(".bam", ".bai"));
+            builder.addArgument(SAMToolsIndexCLI.INPUT, picardFixMateOutput.getAbsolutePath()).addArgument(SAMToolsIndexCLI.OUTPUT,
+                    picardFixMateIndexOut.getAbsolutePath());
+            samtoolsIndexJob = builder.build();
+            logger.info(samtoolsIndexJob.toString());
+            graph.addVertex(samtoolsIndexJob);
+            dependencies.consumes(samtoolsIndexJob, picardFixMateOutput).produces(samtoolsIndexJob, picardFixMateIndexOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, GATKCountCovariatesCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName).numberOfProcessors(4);
+            File gatkCountCovariatesRecalFile = new File(outputDirectory,
+                    picardFixMateOutput.getName().replace(".bam", ".bam.cov"));
+            builder.addArgument(GATKCountCovariatesCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                    .addArgument(GATKCountCovariatesCLI.REFERENCESEQUENCE, referenceSequence)
+                    .addArgument(GATKCountCovariatesCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                    .addArgument(GATKCountCovariatesCLI.KNOWNSITES, knownVCF).addArgument(GATKCountCovariatesCLI.NUMTHREADS, "4")
+                    .addArgument(GATKCountCovariatesCLI.STANDARDCOVS)
+                    .addArgument(GATKCountCovariatesCLI.INPUTFILE, picardFixMateOutput.getAbsolutePath())
+                    .addArgument(GATKCountCovariatesCLI.RECALFILE, gatkCountCovariatesRecalFile.getAbsolutePath());
+            CondorJob gatkCountCovariatesJob = builder.build();
+            logger.info(gatkCountCovariatesJob.toString());
+            graph.addVertex(gatkCountCovariatesJob);
+            dependencies.consumes(gatkCountCovariatesJob, picardFixMateOutput, picardFixMateIndexOut)
+                    .produces(gatkCountCovariatesJob, gatkCountCovariatesRecalFile);
+
+            // new job
+            builder = SequencingWorkflowJobFactory
+                    .createJob(++count, GATKTableRecalibrationCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName)
+                    .numberOfProcessors(2);
+            File gatkTableRecalibrationOut = new File(outputDirectory, picardFixMateOutput.getName().replace(".bam", ".recal.bam"));
+            builder.addArgument(GATKTableRecalibrationCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                    .addArgument(GATKTableRecalibrationCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                    .addArgument(GATKTableRecalibrationCLI.REFERENCESEQUENCE, referenceSequence)
+                    .addArgument(GATKTableRecalibrationCLI.INPUTFILE, picardFixMateOutput.getAbsolutePath())
+                    .addArgument(GATKTableRecalibrationCLI.RECALFILE, gatkCountCovariatesRecalFile.getAbsolutePath())
+                    .addArgument(GATKTableRecalibrationCLI.OUT, gatkTableRecalibrationOut.getAbsolutePath());
+            CondorJob gatkTableRecalibrationJob = builder.build();
+            logger.info(gatkTableRecalibrationJob.toString());
+            graph.addVertex(gatkTableRecalibrationJob);
+            dependencies.consumes(gatkTableRecalibrationJob, picardFixMateOutput, picardFixMateIndexOut)
+                    .consumes(gatkTableRecalibrationJob, gatkCountCovariatesRecalFile)
+                    .produces(gatkTableRecalibrationJob, gatkTableRecalibrationOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName);
+            File gatkTableRecalibrationIndexOut = new File(outputDirectory,
+                    gatkTableRecalibrationOut.getName().replace(".bam", ".bai"));
+            builder.addArgument(SAMToolsIndexCLI.INPUT, gatkTableRecalibrationOut.getAbsolutePath())
+                    .addArgument(SAMToolsIndexCLI.OUTPUT, gatkTableRecalibrationIndexOut.getAbsolutePath());
+            samtoolsIndexJob = builder.build();
+            logger.info(samtoolsIndexJob.toString());
+            graph.addVertex(samtoolsIndexJob);
+            dependencies.consumes(samtoolsIndexJob, gatkTableRecalibrationOut)
+                    .produces(samtoolsIndexJob, gatkTableRecalibrationIndexOut);
+
+            // flagstat is calculated in postRun from the recalibrated bam when native
+            if (!nativeFlagstat) {
+
+                // new job
+                builder = SequencingWorkflowJobFactory
+                        .createJob(++count, SAMToolsFlagstatCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName);
+                File samtoolsFlagstatOut = new File(outputDirectory,
+                        gatkTableRecalibrationOut.getName().replace(".bam", ".samtools.flagstat"));
+                builder.addArgument(SAMToolsFlagstatCLI.INPUT, gatkTableRecalibrationOut.getAbsolutePath())
+                        .addArgument(SAMToolsFlagstatCLI.OUTPUT, samtoolsFlagstatOut.getAbsolutePath());
+                CondorJob samtoolsFlagstatJob = builder.build();
+                logger.info(samtoolsFlagstatJob.toString());
+                graph.addVertex(samtoolsFlagstatJob);
+                dependencies.consumes(samtoolsFlagstatJob, gatkTableRecalibrationOut)
+                        .produces(samtoolsFlagstatJob, samtoolsFlagstatOut);
+
+                // new job
+                builder = SequencingWorkflowJobFactory.createJob(++count, GATKFlagStatCLI.class, workflowRunAttemptId, sample.getId())
+                        .siteName(siteName).numberOfProcessors(2);
+                File gatkFlagstatOut = new File(outputDirectory,
+                        gatkTableRecalibrationOut.getName().replace(".bam", ".gatk.flagstat"));
+                builder.addArgument(GATKFlagStatCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                        .addArgument(GATKFlagStatCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                        .addArgument(GATKFlagStatCLI.INPUTFILE, gatkTableRecalibrationOut.getAbsolutePath())
+                        .addArgument(GATKFlagStatCLI.REFERENCESEQUENCE, referenceSequence)
+                        .addArgument(GATKFlagStatCLI.INTERVALS, flagstatIntervalList)
+                        .addArgument(GATKFlagStatCLI.OUT, gatkFlagstatOut.getAbsolutePath());
+                CondorJob gatkFlagstatJob = builder.build();
+                logger.info(gatkFlagstatJob.toString());
+                graph.addVertex(gatkFlagstatJob);
+                dependencies.consumes(gatkFlagstatJob, gatkTableRecalibrationOut, gatkTableRecalibrationIndexOut)
+                        .produces(gatkFlagstatJob, gatkFlagstatOut);
+
+            }
+
+            // depth of coverage is calculated in postRun from the recalibrated bam when native
+            if (!nativeDepthOfCoverage) {
+                // new job
+                builder = SequencingWorkflowJobFactory
+                        .createJob(++count, GATKDepthOfCoverageCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName)
+                        .initialDirectory(outputDirectory.getAbsolutePath()).numberOfProcessors(2);
+                builder.addArgument(GATKDepthOfCoverageCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                        .addArgument(GATKDepthOfCoverageCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                        .addArgument(GATKDepthOfCoverageCLI.REFERENCESEQUENCE, referenceSequence)
+                        .addArgument(GATKDepthOfCoverageCLI.VALIDATIONSTRICTNESS, "LENIENT")
+                        .addArgument(GATKDepthOfCoverageCLI.OMITDEPTHOUTPUTATEACHBASE)
+                        .addArgument(GATKDepthOfCoverageCLI.INPUTFILE, gatkTableRecalibrationOut.getAbsolutePath())
+                        .addArgument(GATKDepthOfCoverageCLI.INTERVALS, depthOfCoverageIntervalList)
+                        .addArgument(GATKDepthOfCoverageCLI.OUTPUTPREFIX,
+                                gatkTableRecalibrationOut.getName().replace(".bam", ".coverage"));
+                CondorJob gatkDepthOfCoverageJob = builder.build();
+                logger.info(gatkDepthOfCoverageJob.toString());
+                graph.addVertex(gatkDepthOfCoverageJob);
+                File gatkDepthOfCoverageSampleSummary = new File(outputDirectory,
+                        gatkTableRecalibrationOut.getName().replace(".bam", ".coverage.sample_summary"));
+                File gatkDepthOfCoverageSampleIntervalSummary = new File(outputDirectory,
+                        gatkTableRecalibrationOut.getName().replace(".bam", ".coverage.sample_interval_summary"));
+                dependencies.consumes(gatkDepthOfCoverageJob, gatkTableRecalibrationOut, gatkTableRecalibrationIndexOut)
+                        .produces(gatkDepthOfCoverageJob, gatkDepthOfCoverageSampleSummary,
+                                gatkDepthOfCoverageSampleIntervalSummary);
+            }
+
+            // one genotyper per shard of the interval list, the shards are gathered back into the vcf an unscattered genotyper writes
+            List<String> unifiedGenotyperIntervalLists = new ArrayList<String>();
+            List<String> shardSuffixes = new ArrayList<String>();
+            int scatterCount = StringUtils.isNotEmpty(unifiedGenotyperScatterCount) ? Integer.valueOf(unifiedGenotyperScatterCount)
+                    : 1;
+            if (scatterCount > 1) {
+                File intervalList = resolveResourcePath(unifiedGenotyperIntervalList);
+                if (intervalList.exists()) {
+                    IntervalListScatter intervalListScatter = new IntervalListScatter(intervalList);
+                    String prefix = gatkTableRecalibrationOut.getName().replace(".bam", "");
+                    List<File> shardFiles = new ArrayList<File>();
+                    if (dryRun) {
+                        for (int i = 0; i < intervalListScatter.partition(scatterCount).size(); i++) {
+                            shardFiles.add(IntervalListScatter.getShardFile(outputDirectory, prefix, i));
+                        }
+                    } else {
+                        shardFiles.addAll(intervalListScatter.scatter(scatterCount, outputDirectory, prefix));
+                    }
+                    for (int i = 0; i < shardFiles.size(); i++) {
+                        unifiedGenotyperIntervalLists.add(shardFiles.get(i).getAbsolutePath());
+                        shardSuffixes.add(String.format(".shard-%02d", i + 1));
+                    }
+                } else {
+                    logger.warn("can't scatter, interval list not found: {}", intervalList.getAbsolutePath());
+                }
+            }
+            if (unifiedGenotyperIntervalLists.isEmpty()) {
+                unifiedGenotyperIntervalLists.add(unifiedGenotyperIntervalList);
+                shardSuffixes.add("");
+            }
+            boolean scattered = unifiedGenotyperIntervalLists.size() > 1;
+
+            File gatkUnifiedGenotyperOut = new File(outputDirectory, gatkTableRecalibrationOut.getName().replace(".bam", ".vcf"));
+            File gatkUnifiedGenotyperMetrics = new File(outputDirectory,
+                    gatkTableRecalibrationOut.getName().replace(".bam", ".metrics"));
+            List<File> gatkUnifiedGenotyperShardOutputs = new ArrayList<File>();
+            List<File> gatkUnifiedGenotyperShardMetricsFiles = new ArrayList<File>();
+
+            for (int i = 0; i < unifiedGenotyperIntervalLists.size(); i++) {
+                String shardSuffix = shardSuffixes.get(i);
+
+                // new job
+                builder = SequencingWorkflowJobFactory
+                        .createJob(++count, GATKUnifiedGenotyperCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName)
+                        .numberOfProcessors(scattered ? 1 : 4);
+                File gatkUnifiedGenotyperShardOut = new File(outputDirectory,
+                        gatkTableRecalibrationOut.getName().replace(".bam", shardSuffix + ".vcf"));
+                File gatkUnifiedGenotyperShardMetrics = new File(outputDirectory,
+                        gatkTableRecalibrationOut.getName().replace(".bam", shardSuffix + ".metrics"));
+                builder.addArgument(GATKUnifiedGenotyperCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                        .addArgument(GATKUnifiedGenotyperCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                        .addArgument(GATKUnifiedGenotyperCLI.REFERENCESEQUENCE, referenceSequence)
+                        .addArgument(GATKUnifiedGenotyperCLI.DBSNP, knownVCF)
+                        .addArgument(GATKUnifiedGenotyperCLI.STANDCALLCONF, "30")
+                        .addArgument(GATKUnifiedGenotyperCLI.STANDEMITCONF, "0")
+                        .addArgument(GATKUnifiedGenotyperCLI.GENOTYPELIKELIHOODSMODEL, "BOTH")
+                        .addArgument(GATKUnifiedGenotyperCLI.INPUTFILE, gatkTableRecalibrationOut.getAbsolutePath())
+                        .addArgument(GATKUnifiedGenotyperCLI.NUMTHREADS, scattered ? "1" : "4")
+                        .addArgument(GATKUnifiedGenotyperCLI.OUT, gatkUnifiedGenotyperShardOut.getAbsolutePath())
+                        .addArgument(GATKUnifiedGenotyperCLI.INTERVALS, unifiedGenotyperIntervalLists.get(i))
+                        .addArgument(GATKUnifiedGenotyperCLI.OUTPUTMODE, "EMIT_ALL_SITES")
+                        .addArgument(GATKUnifiedGenotyperCLI.METRICS, gatkUnifiedGenotyperShardMetrics.getAbsolutePath())
+                        .addArgument(GATKUnifiedGenotyperCLI.DOWNSAMPLETOCOVERAGE, "250")
+                        .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "AlleleBalance")
+                        .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "DepthOfCoverage")
+                        .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "HomopolymerRun")
+                        .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "MappingQualityZero")
+                        .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "QualByDepth")
+                        .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "RMSMappingQuality")
+                        .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "HaplotypeScore");
+                CondorJob gatkUnifiedGenotyperJob = builder.build();
+                logger.info(gatkUnifiedGenotyperJob.toString());
+                graph.addVertex(gatkUnifiedGenotyperJob);
+                dependencies.consumes(gatkUnifiedGenotyperJob, gatkTableRecalibrationOut, gatkTableRecalibrationIndexOut)
+                        .produces(gatkUnifiedGenotyperJob, gatkUnifiedGenotyperShardOut, gatkUnifiedGenotyperShardMetrics);
+                gatkUnifiedGenotyperShardOutputs.add(gatkUnifiedGenotyperShardOut);
+                gatkUnifiedGenotyperShardMetricsFiles.add(gatkUnifiedGenotyperShardMetrics);
+            }
+
+            if (scattered) {
+                // new job
+                builder = new CondorJobBuilder().name(String.format("%s_%d", "GatherVCF", ++count))
+                        .executable(getScript("gather-vcf.sh")).siteName(siteName);
+                builder.addArgument("--output", gatkUnifiedGenotyperOut.getAbsolutePath()).addArgument("--metricsOutput",
+                        gatkUnifiedGenotyperMetrics.getAbsolutePath());
+                // in interval list order, which is reference order
+                for (int i = 0; i < gatkUnifiedGenotyperShardOutputs.size(); i++) {
+                    builder.addArgument("--input", gatkUnifiedGenotyperShardOutputs.get(i).getAbsolutePath()).addArgument("--metrics",
+                            gatkUnifiedGenotyperShardMetricsFiles.get(i).getAbsolutePath());
+                }
+                CondorJob gatherVCFJob = builder.build();
+                logger.info(gatherVCFJob.toString());
+                graph.addVertex(gatherVCFJob);
+                dependencies.consumes(gatherVCFJob, gatkUnifiedGenotyperShardOutputs)
+                        .consumes(gatherVCFJob, gatkUnifiedGenotyperShardMetricsFiles)
+                        .produces(gatherVCFJob, gatkUnifiedGenotyperOut, gatkUnifiedGenotyperMetrics);
+            }
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, FilterVariantCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName).numberOfProcessors(2);
+            File filterVariant1Output = new File(outputDirectory,
+                    gatkTableRecalibrationOut.getName().replace(".bam", ".variant.vcf"));
+            builder.addArgument(FilterVariantCLI.INTERVALLIST, icSNPIntervalList).addArgument(FilterVariantCLI.WITHMISSING)
+                    .addArgument(FilterVariantCLI.INPUT, gatkUnifiedGenotyperOut.getAbsolutePath())
+                    .addArgument(FilterVariantCLI.OUTPUT, filterVariant1Output.getAbsolutePath());
+            CondorJob filterVariant1Job = builder.build();
+            logger.info(filterVariant1Job.toString());
+            graph.addVertex(filterVariant1Job);
+            dependencies.consumes(filterVariant1Job, gatkUnifiedGenotyperOut).produces(filterVariant1Job, filterVariant1Output);
+
+            // new job
+            builder = SequencingWorkflowJobFactory
+                    .createJob(++count, GATKVariantRecalibratorCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName)
+                    .numberOfProcessors(2);
+            File gatkVariantRecalibratorRecalFile = new File(outputDirectory,
+                    filterVariant1Output.getName().replace(".vcf", ".recal"));
+            File gatkVariantRecalibratorTranchesFile = new File(outputDirectory,
+                    filterVariant1Output.getName().replace(".vcf", ".tranches"));
+            File gatkVariantRecalibratorRScriptFile = new File(outputDirectory,
+                    filterVariant1Output.getName().replace(".vcf", ".plots.R"));
+            builder.addArgument(GATKVariantRecalibratorCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                    .addArgument(GATKVariantRecalibratorCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                    .addArgument(GATKVariantRecalibratorCLI.REFERENCESEQUENCE, referenceSequence)
+                    .addArgument(GATKVariantRecalibratorCLI.MAXGAUSSIANS, "4")
+                    .addArgument(GATKVariantRecalibratorCLI.INPUT, filterVariant1Output.getAbsolutePath())
+                    .addArgument(GATKVariantRecalibratorCLI.MODE, "SNP")
+                    .addArgument(GATKVariantRecalibratorCLI.RECALFILE, gatkVariantRecalibratorRecalFile.getAbsolutePath())
+                    .addArgument(GATKVariantRecalibratorCLI.TRANCHESFILE, gatkVariantRecalibratorTranchesFile.getAbsolutePath())
+                    .addArgument(GATKVariantRecalibratorCLI.RESOURCE,
+                            ":hapmap,known=false,training=true,truth=true,prior=15.0^$NCGENES_RESOURCES_DIRECTORY/gatk/bundle/1.2/b37/hapmap_3.3.b37.sites.renci.shortid.vcf")
+                    .addArgument(GATKVariantRecalibratorCLI.RESOURCE,
+                            ":omni,known=false,training=true,truth=false,prior=12.0^$NCGENES_RESOURCES_DIRECTORY/gatk/bundle/1.2/b37/1000G_omni2.5.b37.sites.renci.shortid.vcf")
+                    .addArgument(GATKVariantRecalibratorCLI.RESOURCE,
+                            ":dbsnp,known=true,training=false,truth=false,prior=8.0^$NCGENES_RESOURCES_DIRECTORY/gatk/bundle/1.2/b37/dbsnp_132.b37.renci.shortid.vcf")
+                    .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "QD")
+                    .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "HaplotypeScore")
+                    .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "MQRankSum")
+                    .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "ReadPosRankSum")
+                    .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "MQ")
+                    .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "FS")
+                    .addArgument(GATKVariantRecalibratorCLI.RSCRIPTFILE, gatkVariantRecalibratorRScriptFile.getAbsolutePath());
+            if (StringUtils.isNotEmpty(percentBadVariants)) {
+                builder.addArgument(GATKVariantRecalibratorCLI.PERCENTBADVARIANTS, percentBadVariants);
+            }
+            CondorJob gatkVariantRecalibratorJob = builder.build();
+            logger.info(gatkVariantRecalibratorJob.toString());
+            graph.addVertex(gatkVariantRecalibratorJob);
+            dependencies.consumes(gatkVariantRecalibratorJob, filterVariant1Output)
+                    .produces(gatkVariantRecalibratorJob, gatkVariantRecalibratorRecalFile, gatkVariantRecalibratorTranchesFile,
+                            gatkVariantRecalibratorRScriptFile);
+
+            // new job
+            builder = SequencingWorkflowJobFactory
+                    .createJob(++count, GATKApplyRecalibrationCLI.class, workflowRunAttemptId, sample.getId()).siteName(siteName)
+                    .numberOfProcessors(2);
+            File gatkApplyRecalibrationOut = new File(outputDirectory,
+                    filterVariant1Output.getName().replace(".vcf", ".recalibrated.filtered.vcf"));
+            builder.addArgument(GATKApplyRecalibrationCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
+                    .addArgument(GATKApplyRecalibrationCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
+                    .addArgument(GATKApplyRecalibrationCLI.REFERENCESEQUENCE, referenceSequence)
+                    .addArgument(GATKApplyRecalibrationCLI.INPUT, filterVariant1Output.getAbsolutePath())
+                    .addArgument(GATKApplyRecalibrationCLI.RECALFILE, gatkVariantRecalibratorRecalFile.getAbsolutePath())
+                    .addArgument(GATKApplyRecalibrationCLI.TRANCHESFILE, gatkVariantRecalibratorTranchesFile.getAbsolutePath())
+                    .addArgument(GATKApplyRecalibrationCLI.OUT, gatkApplyRecalibrationOut.getAbsolutePath())
+                    .addArgument(GATKApplyRecalibrationCLI.TSFILTERLEVEL, "99.0");
+            CondorJob gatkApplyRecalibrationJob = builder.build();
+            logger.info(gatkApplyRecalibrationJob.toString());
+            graph.addVertex(gatkApplyRecalibrationJob);
+            dependencies.consumes(gatkApplyRecalibrationJob, filterVariant1Output)
+                    .consumes(gatkApplyRecalibrationJob, gatkVariantRecalibratorRecalFile, gatkVariantRecalibratorTranchesFile)
+                    .produces(gatkApplyRecalibrationJob, gatkApplyRecalibrationOut);
+
+            // new job
+            builder = SequencingWorkflowJobFactory.createJob(++count, FilterVariantCLI.class, workflowRunAttemptId, sample.getId())
+                    .siteName(siteName).numberOfProcessors(2);
+            File filterVariant2Output = new File(outputDirectory, filterVariant1Output.getName().replace(".vcf", ".ic_snps.vcf"));
+            builder.addArgument(FilterVariantCLI.INTERVALLIST, icSNPIntervalList)
+                    .addArgument(FilterVariantCLI.INPUT, gatkApplyRecalibrationOut.getAbsolutePath())
+                    .addArgument(FilterVariantCLI.OUTPUT, filterVariant2Output.getAbsolutePath());
+            CondorJob filterVariant2Job = builder.build();
+            logger.info(filterVariant2Job.toString());
+            graph.addVertex(filterVariant2Job);
+            dependencies.consumes(filterVariant2Job, gatkApplyRecalibrationOut).produces(filterVariant2Job, filterVariant2Output);
+
+        } catch (Exception e) {
+            throw new WorkflowException(e);
+        }
+    }
+
+    // splits a fastq read by read into the given chunks, read i going to chunk i % n, so R1 & R2 split alike stay paired
+    private void addSplitFastqJob(File fastqFile, List<File> fastqChunks) throws WorkflowException {
+        CondorJobBuilder builder = new CondorJobBuilder().name(String.format("%s_%d", "SplitFastq", ++count))
+                .executable(getScript("split-fastq.sh")).siteName(siteName);
+        builder.addArgument("--input", fastqFile.getAbsolutePath());
+        for (File fastqChunk : fastqChunks) {
+            builder.addArgument("--output", fastqChunk.getAbsolutePath());
+        }
+        CondorJob splitFastqJob = builder.build();
+        logger.info(splitFastqJob.toString());
+        graph.addVertex(splitFastqJob);
+        dependencies.consumes(splitFastqJob, fastqFile).produces(splitFastqJob, fastqChunks);
+    }
+
+    public DirectedGraph<CondorJob, CondorJobEdge> build() {
+        dependencies.addEdges(graph);
+        return graph;
+    }
+
+    // condor doesn't expand variables in the executable, so the script has to be an absolute path on this host
+    private File getScript(String name) throws WorkflowException {
+        File script = new File(resolveScriptsDirectory(scriptsDirectory), name);
+        if (!dryRun && !script.isFile()) {
+            throw new WorkflowException(String.format("script not installed: %s", script.getAbsolutePath()));
+        }
+        return script;
+    }
+
+    // blank for the scripts the feature installs under karaf.base
+    static File resolveScriptsDirectory(String path) {
+        if (StringUtils.isEmpty(path)) {
+            return new File(System.getProperty("karaf.base", "."), "ncgenes/scripts").getAbsoluteFile();
+        }
+        return resolveResourcePath(path).getAbsoluteFile();
+    }
+
+    // the condor jobs resolve this on the compute node, here it has to come from our own environment
+    static File resolveResourcePath(String path) {
+        String resourcesDirectory = System.getenv("NCGENES_RESOURCES_DIRECTORY");
+        if (StringUtils.isNotEmpty(resourcesDirectory)) {
+            path = path.replace("$NCGENES_RESOURCES_DIRECTORY", resourcesDirectory);
+        }
+        return new File(path);
+    }
+
+    public Long getWorkflowRunAttemptId() {
+        return workflowRunAttemptId;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public String getSiteName() {
+        return siteName;
+    }
+
+    public void setSiteName(String siteName) {
+        this.siteName = siteName;
+    }
+
+    public String getKnownVCF() {
+        return knownVCF;
+    }
+
+    public void setKnownVCF(String knownVCF) {
+        this.knownVCF = knownVCF;
+    }
+
+    public String getReferenceSequence() {
+        return referenceSequence;
+    }
+
+    public void setReferenceSequence(String referenceSequence) {
+        this.referenceSequence = referenceSequence;
+    }
+
+    public String getIcSNPIntervalList() {
+        return icSNPIntervalList;
+    }
+
+    public void setIcSNPIntervalList(String icSNPIntervalList) {
+        this.icSNPIntervalList = icSNPIntervalList;
+    }
+
+    public String getFlagstatIntervalList() {
+        return flagstatIntervalList;
+    }
+
+    public void setFlagstatIntervalList(String flagstatIntervalList) {
+        this.flagstatIntervalList = flagstatIntervalList;
+    }
+
+    public String getDepthOfCoverageIntervalList() {
+        return depthOfCoverageIntervalList;
+    }
+
+    public void setDepthOfCoverageIntervalList(String depthOfCoverageIntervalList) {
+        this.depthOfCoverageIntervalList = depthOfCoverageIntervalList;
+    }
+
+    public String getUnifiedGenotyperIntervalList() {
+        return unifiedGenotyperIntervalList;
+    }
+
+    public void setUnifiedGenotyperIntervalList(String unifiedGenotyperIntervalList) {
+        this.unifiedGenotyperIntervalList = unifiedGenotyperIntervalList;
+    }
+
+    public String getReadGroupPlatform() {
+        return readGroupPlatform;
+    }
+
+    public void setReadGroupPlatform(String readGroupPlatform) {
+        this.readGroupPlatform = readGroupPlatform;
+    }
+
+    public String getReadGroupPlatformUnit() {
+        return readGroupPlatformUnit;
+    }
+
+    public void setReadGroupPlatformUnit(String readGroupPlatformUnit) {
+        this.readGroupPlatformUnit = readGroupPlatformUnit;
+    }
+
+    public String getPercentBadVariants() {
+        return percentBadVariants;
+    }
+
+    public void setPercentBadVariants(String percentBadVariants) {
+        this.percentBadVariants = percentBadVariants;
+    }
+
+    public String getUnifiedGenotyperScatterCount() {
+        return unifiedGenotyperScatterCount;
+    }
+
+    public void setUnifiedGenotyperScatterCount(String unifiedGenotyperScatterCount) {
+        this.unifiedGenotyperScatterCount = unifiedGenotyperScatterCount;
+    }
+
+    public String getBwaChunkSize() {
+        return bwaChunkSize;
+    }
+
+    public void setBwaChunkSize(String bwaChunkSize) {
+        this.bwaChunkSize = bwaChunkSize;
+    }
+
+    public String getScriptsDirectory() {
+        return scriptsDirectory;
+    }
+
+    public void setScriptsDirectory(String scriptsDirectory) {
+        this.scriptsDirectory = scriptsDirectory;
+    }
+
+    public boolean isNativeFlagstat() {
+        return nativeFlagstat;
+    }
+
+    public void setNativeFlagstat(boolean nativeFlagstat) {
+        this.nativeFlagstat = nativeFlagstat;
+    }
+
+    public boolean isNativeDepthOfCoverage() {
+        return nativeDepthOfCoverage;
+    }
+
+    public void setNativeDepthOfCoverage(boolean nativeDepthOfCoverage) {
+        this.nativeDepthOfCoverage = nativeDepthOfCoverage;
+    }
+
+}
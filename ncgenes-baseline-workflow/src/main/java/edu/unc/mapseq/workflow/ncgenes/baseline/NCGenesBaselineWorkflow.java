@@ -1,9 +1,12 @@
 package edu.unc.mapseq.workflow.ncgenes.baseline;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -11,48 +14,24 @@ import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.StringUtils;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.Graph;
-import org.jgrapht.graph.DefaultDirectedGraph;
 import org.renci.jlrm.condor.CondorJob;
-import org.renci.jlrm.condor.CondorJobBuilder;
 import org.renci.jlrm.condor.CondorJobEdge;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.unc.mapseq.commons.ncgenes.baseline.PipelineMetrics;
+import edu.unc.mapseq.commons.ncgenes.baseline.PostRunTaskGraph;
+import edu.unc.mapseq.commons.ncgenes.baseline.QualityControlHarvestReport;
 import edu.unc.mapseq.commons.ncgenes.baseline.RegisterToIRODSRunnable;
-import edu.unc.mapseq.commons.ncgenes.baseline.SaveDepthOfCoverageAttributesRunnable;
-import edu.unc.mapseq.commons.ncgenes.baseline.SaveFlagstatAttributesRunnable;
-import edu.unc.mapseq.commons.ncgenes.baseline.SaveMarkDuplicatesAttributesRunnable;
+import edu.unc.mapseq.commons.ncgenes.baseline.SaveQualityControlAttributesRunnable;
+import edu.unc.mapseq.commons.ncgenes.baseline.WorkflowRunPriority;
 import edu.unc.mapseq.dao.model.Attribute;
-import edu.unc.mapseq.dao.model.Flowcell;
 import edu.unc.mapseq.dao.model.Sample;
+import edu.unc.mapseq.dao.model.Workflow;
 import edu.unc.mapseq.dao.model.WorkflowRun;
 import edu.unc.mapseq.dao.model.WorkflowRunAttempt;
-import edu.unc.mapseq.module.sequencing.WriteVCFHeaderCLI;
-import edu.unc.mapseq.module.sequencing.bwa.BWAAlignCLI;
-import edu.unc.mapseq.module.sequencing.bwa.BWASAMPairedEndCLI;
-import edu.unc.mapseq.module.sequencing.fastqc.FastQCCLI;
-import edu.unc.mapseq.module.sequencing.fastqc.IgnoreLevelType;
-import edu.unc.mapseq.module.sequencing.filter.FilterVariantCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKApplyRecalibrationCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKCountCovariatesCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKDepthOfCoverageCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKDownsamplingType;
-import edu.unc.mapseq.module.sequencing.gatk.GATKFlagStatCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKIndelRealignerCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKPhoneHomeType;
-import edu.unc.mapseq.module.sequencing.gatk.GATKRealignerTargetCreatorCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKTableRecalibrationCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKUnifiedGenotyperCLI;
-import edu.unc.mapseq.module.sequencing.gatk.GATKVariantRecalibratorCLI;
-import edu.unc.mapseq.module.sequencing.picard.PicardAddOrReplaceReadGroupsCLI;
-import edu.unc.mapseq.module.sequencing.picard.PicardFixMateCLI;
-import edu.unc.mapseq.module.sequencing.picard.PicardMarkDuplicatesCLI;
-import edu.unc.mapseq.module.sequencing.picard.PicardSortOrderType;
-import edu.unc.mapseq.module.sequencing.samtools.SAMToolsFlagstatCLI;
-import edu.unc.mapseq.module.sequencing.samtools.SAMToolsIndexCLI;
 import edu.unc.mapseq.workflow.WorkflowException;
 import edu.unc.mapseq.workflow.sequencing.AbstractSequencingWorkflow;
-import edu.unc.mapseq.workflow.sequencing.SequencingWorkflowJobFactory;
 import edu.unc.mapseq.workflow.sequencing.SequencingWorkflowUtil;
 
 public class NCGenesBaselineWorkflow extends AbstractSequencingWorkflow {
@@ -65,31 +44,21 @@ public class NCGenesBaselineWorkflow extends AbstractSequencingWorkflow {
 
     @Override
     public Graph<CondorJob, CondorJobEdge> createGraph() throws WorkflowException {
-        logger.info("ENTERING createGraph()");
+        return createGraph(false);
+    }
 
-        DirectedGraph<CondorJob, CondorJobEdge> graph = new DefaultDirectedGraph<CondorJob, CondorJobEdge>(CondorJobEdge.class);
+    // a dry run only reads, e.g. for graph-stats on an attempt that has already run
+    public Graph<CondorJob, CondorJobEdge> createGraph(boolean dryRun) throws WorkflowException {
+        logger.info("ENTERING createGraph(boolean)");
 
-        int count = 0;
-        String percentBadVariants = "0.05";
+        WorkflowRunAttempt attempt = getWorkflowRunAttempt();
+        WorkflowRun workflowRun = attempt.getWorkflowRun();
 
-        Set<Sample> sampleSet = SequencingWorkflowUtil.getAggregatedSamples(getWorkflowBeanService().getMaPSeqDAOBeanService(),
-                getWorkflowRunAttempt());
+        Set<Sample> sampleSet = SequencingWorkflowUtil.getAggregatedSamples(getWorkflowBeanService().getMaPSeqDAOBeanService(), attempt);
         logger.info("sampleSet.size(): {}", sampleSet.size());
 
-        String sselProbe = getWorkflowBeanService().getAttributes().get("sselProbe");
-        String siteName = getWorkflowBeanService().getAttributes().get("siteName");
-        String knownVCF = getWorkflowBeanService().getAttributes().get("knownVCF");
-        String referenceSequence = getWorkflowBeanService().getAttributes().get("referenceSequence");
-        String icSNPIntervalList = getWorkflowBeanService().getAttributes().get("icSNPIntervalList");
-        // String variantHeader = getWorkflowBeanService().getAttributes().get("variantHeader");
-        String flagstatIntervalList = getWorkflowBeanService().getAttributes().get("flagstatIntervalList");
-        String depthOfCoverageIntervalList = getWorkflowBeanService().getAttributes().get("depthOfCoverageIntervalList");
-        String unifiedGenotyperIntervalList = getWorkflowBeanService().getAttributes().get("unifiedGenotyperIntervalList");
-        String readGroupPlatform = getWorkflowBeanService().getAttributes().get("readGroupPlatform");
-        String readGroupPlatformUnit = getWorkflowBeanService().getAttributes().get("readGroupPlatformUnit");
-
-        WorkflowRunAttempt attempt = getWorkflowRunAttempt();
-        WorkflowRun workflowRun = attempt.getWorkflowRun();
+        NCGenesBaselineGraphBuilder graphBuilder = createGraphBuilder();
+        graphBuilder.setDryRun(dryRun);
 
         for (Sample sample : sampleSet) {
 
@@ -97,500 +66,236 @@ public class NCGenesBaselineWorkflow extends AbstractSequencingWorkflow {
                 continue;
             }
 
-            logger.debug(sample.toString());
+            File outputDirectory = dryRun ? getOutputDirectory(sample, workflowRun.getWorkflow())
+                    : SequencingWorkflowUtil.createOutputDirectory(sample, workflowRun.getWorkflow());
 
-            Flowcell flowcell = sample.getFlowcell();
-            File outputDirectory = SequencingWorkflowUtil.createOutputDirectory(sample, workflowRun.getWorkflow());
-            File tmpDirectory = new File(outputDirectory, "tmp");
-            tmpDirectory.mkdirs();
+            List<File> readPairList = SequencingWorkflowUtil.getReadPairList(sample);
+            logger.info("fileList = {}", readPairList.size());
 
-            Set<Attribute> attributeSet = workflowRun.getAttributes();
-            if (attributeSet != null && !attributeSet.isEmpty()) {
-                Iterator<Attribute> attributeIter = attributeSet.iterator();
-                while (attributeIter.hasNext()) {
-                    Attribute attribute = attributeIter.next();
-                    if ("GATKVariantRecalibrator.percentBadVariants".equals(attribute.getName())) {
-                        percentBadVariants = attribute.getValue();
-                    }
-                    if ("sselProbe".equals(attribute.getName())) {
-                        sselProbe = attribute.getValue();
-
-                        // read probe version to determine interval list file(s)
-                        switch (sselProbe) {
-                            case "5":
-                                flagstatIntervalList = "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_capture_region_pm_100.shortid.interval_list";
-                                depthOfCoverageIntervalList = "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_capture_region_pm_100.shortid.interval_list";
-                                unifiedGenotyperIntervalList = "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_capture_region_pm_100.shortid.interval_list";
-                                break;
-                            case "5 + EGL":
-                                flagstatIntervalList = "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_egl_capture_region_pm_100.shortid.interval_list";
-                                depthOfCoverageIntervalList = "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_egl_capture_region_pm_100.shortid.interval_list";
-                                unifiedGenotyperIntervalList = "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_egl_capture_region_pm_100.shortid.interval_list";
-                                break;
-                        }
-                    }
-                }
+            if (readPairList.size() == 2) {
+                graphBuilder.addSample(sample, outputDirectory, readPairList.get(0), readPairList.get(1));
             }
 
-            List<File> readPairList = SequencingWorkflowUtil.getReadPairList(sample);
-            logger.info("fileList = {}", readPairList.size());
+        }
 
-            // assumption: a dash is used as a delimiter between a participantId
-            // and the external code
-            // int idx = sample.getName().lastIndexOf("-");
-            // String participantId = idx != -1 ? sample.getName().substring(0, idx) : sample.getName();
-            //no longer expecting composite for participantId...can just use sample name
-            String participantId = sample.getName();
+        DirectedGraph<CondorJob, CondorJobEdge> graph = graphBuilder.build();
 
-            if (readPairList.size() == 2) {
+        // the run's priority orders its jobs against this submitter's other jobs in the Condor queue
+        int priority = WorkflowRunPriority.getPriority(workflowRun);
+        if (priority != WorkflowRunPriority.DEFAULT_PRIORITY) {
+            for (CondorJob job : graph.vertexSet()) {
+                job.setPriority(priority);
+            }
+        }
+
+        return graph;
+    }
+
+    // where createOutputDirectory puts the sample's output, without creating it
+    private static File getOutputDirectory(Sample sample, Workflow workflow) {
+        File systemDirectory = new File(System.getenv("MAPSEQ_OUTPUT_DIRECTORY"), workflow.getSystem().getValue());
+        File studyDirectory = new File(systemDirectory, sample.getStudy().getName());
+        File analysisDirectory = new File(studyDirectory, "analysis");
+        File flowcellDirectory = new File(analysisDirectory, sample.getFlowcell().getName());
+        File sampleOutputDirectory = new File(flowcellDirectory, String.format("L%03d_%s", sample.getLaneIndex(), sample.getBarcode()));
+        return new File(sampleOutputDirectory, workflow.getName());
+    }
 
-                File r1FastqFile = readPairList.get(0);
-                String r1FastqRootName = SequencingWorkflowUtil.getRootFastqName(r1FastqFile.getName());
-
-                File r2FastqFile = readPairList.get(1);
-                String r2FastqRootName = SequencingWorkflowUtil.getRootFastqName(r2FastqFile.getName());
-
-                String rootFileName = String.format("%s_%s_L%03d", sample.getFlowcell().getName(), sample.getBarcode(),
-                        sample.getLaneIndex());
-
-                try {
-
-                    // start site specific jobs
-
-                    // new job
-                    CondorJobBuilder builder = SequencingWorkflowJobFactory
-                            .createJob(++count, WriteVCFHeaderCLI.class, attempt.getId(), sample.getId()).siteName(siteName);
-                    String flowcellProper = flowcell.getName().substring(flowcell.getName().length() - 9, flowcell.getName().length());
-                    File writeVCFHeaderOut = new File(outputDirectory, String.format("%s.vcf.hdr", rootFileName));
-                    builder.addArgument(WriteVCFHeaderCLI.BARCODE, sample.getBarcode())
-                            .addArgument(WriteVCFHeaderCLI.RUN, flowcell.getName())
-                            .addArgument(WriteVCFHeaderCLI.PARTICIPANTID, participantId)
-                            .addArgument(WriteVCFHeaderCLI.STUDYNAME, sample.getStudy().getName())
-                            .addArgument(WriteVCFHeaderCLI.LANE, sample.getLaneIndex().toString())
-                            .addArgument(WriteVCFHeaderCLI.LABNAME, "Jonathan_Berg").addArgument(WriteVCFHeaderCLI.FLOWCELL, flowcellProper)
-                            .addArgument(WriteVCFHeaderCLI.OUTPUT, writeVCFHeaderOut.getAbsolutePath());
-                    CondorJob writeVCFHeaderJob = builder.build();
-                    logger.info(writeVCFHeaderJob.toString());
-                    graph.addVertex(writeVCFHeaderJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, FastQCCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File fastqcR1Output = new File(outputDirectory, r1FastqRootName + ".fastqc.zip");
-                    builder.addArgument(FastQCCLI.INPUT, r1FastqFile.getAbsolutePath())
-                            .addArgument(FastQCCLI.OUTPUT, fastqcR1Output.getAbsolutePath())
-                            .addArgument(FastQCCLI.IGNORE, IgnoreLevelType.ERROR.toString());
-                    CondorJob fastQCR1Job = builder.build();
-                    logger.info(fastQCR1Job.toString());
-                    graph.addVertex(fastQCR1Job);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, BWAAlignCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).numberOfProcessors(4);
-                    File saiR1OutFile = new File(outputDirectory, r1FastqRootName + ".sai");
-                    builder.addArgument(BWAAlignCLI.THREADS, "4").addArgument(BWAAlignCLI.FASTQ, r1FastqFile.getAbsolutePath())
-                            .addArgument(BWAAlignCLI.FASTADB, referenceSequence)
-                            .addArgument(BWAAlignCLI.OUTFILE, saiR1OutFile.getAbsolutePath());
-                    CondorJob bwaAlignR1Job = builder.build();
-                    logger.info(bwaAlignR1Job.toString());
-                    graph.addVertex(bwaAlignR1Job);
-                    graph.addEdge(fastQCR1Job, bwaAlignR1Job);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, FastQCCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File fastqcR2Output = new File(outputDirectory, r2FastqRootName + ".fastqc.zip");
-                    builder.addArgument(FastQCCLI.INPUT, r2FastqFile.getAbsolutePath())
-                            .addArgument(FastQCCLI.OUTPUT, fastqcR2Output.getAbsolutePath())
-                            .addArgument(FastQCCLI.IGNORE, IgnoreLevelType.ERROR.toString());
-                    CondorJob fastQCR2Job = builder.build();
-                    logger.info(fastQCR2Job.toString());
-                    graph.addVertex(fastQCR2Job);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, BWAAlignCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).numberOfProcessors(4);
-                    File saiR2OutFile = new File(outputDirectory, r2FastqRootName + ".sai");
-                    builder.addArgument(BWAAlignCLI.THREADS, "4").addArgument(BWAAlignCLI.FASTQ, r2FastqFile.getAbsolutePath())
-                            .addArgument(BWAAlignCLI.FASTADB, referenceSequence)
-                            .addArgument(BWAAlignCLI.OUTFILE, saiR2OutFile.getAbsolutePath());
-                    CondorJob bwaAlignR2Job = builder.build();
-                    logger.info(bwaAlignR2Job.toString());
-                    graph.addVertex(bwaAlignR2Job);
-                    graph.addEdge(fastQCR2Job, bwaAlignR2Job);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, BWASAMPairedEndCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File bwaSAMPairedEndOutFile = new File(outputDirectory, rootFileName + ".sam");
-                    builder.addArgument(BWASAMPairedEndCLI.FASTADB, referenceSequence)
-                            .addArgument(BWASAMPairedEndCLI.FASTQ1, r1FastqFile.getAbsolutePath())
-                            .addArgument(BWASAMPairedEndCLI.FASTQ2, r2FastqFile.getAbsolutePath())
-                            .addArgument(BWASAMPairedEndCLI.SAI1, saiR1OutFile.getAbsolutePath())
-                            .addArgument(BWASAMPairedEndCLI.SAI2, saiR2OutFile.getAbsolutePath())
-                            .addArgument(BWASAMPairedEndCLI.OUTFILE, bwaSAMPairedEndOutFile.getAbsolutePath());
-                    CondorJob bwaSAMPairedEndJob = builder.build();
-                    logger.info(bwaSAMPairedEndJob.toString());
-                    graph.addVertex(bwaSAMPairedEndJob);
-                    graph.addEdge(bwaAlignR1Job, bwaSAMPairedEndJob);
-                    graph.addEdge(bwaAlignR2Job, bwaSAMPairedEndJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory
-                            .createJob(++count, PicardAddOrReplaceReadGroupsCLI.class, attempt.getId(), sample.getId()).siteName(siteName);
-                    File fixRGOutput = new File(outputDirectory, bwaSAMPairedEndOutFile.getName().replace(".sam", ".fixed-rg.bam"));
-                    builder.addArgument(PicardAddOrReplaceReadGroupsCLI.INPUT, bwaSAMPairedEndOutFile.getAbsolutePath())
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.OUTPUT, fixRGOutput.getAbsolutePath())
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.SORTORDER, PicardSortOrderType.COORDINATE.toString().toLowerCase())
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPID,
-                                    String.format("%s-%s_L%03d", flowcell.getName(), sample.getBarcode(), sample.getLaneIndex()))
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPLIBRARY, participantId)
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPPLATFORM, readGroupPlatform)
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPPLATFORMUNIT, readGroupPlatformUnit)
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPSAMPLENAME, participantId)
-                            .addArgument(PicardAddOrReplaceReadGroupsCLI.READGROUPCENTERNAME, "UNC");
-                    CondorJob picardAddOrReplaceReadGroupsJob = builder.build();
-                    logger.info(picardAddOrReplaceReadGroupsJob.toString());
-                    graph.addVertex(picardAddOrReplaceReadGroupsJob);
-                    graph.addEdge(bwaSAMPairedEndJob, picardAddOrReplaceReadGroupsJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File picardAddOrReplaceReadGroupsIndexOut = new File(outputDirectory, fixRGOutput.getName().replace(".bam", ".bai"));
-                    builder.addArgument(SAMToolsIndexCLI.INPUT, fixRGOutput.getAbsolutePath()).addArgument(SAMToolsIndexCLI.OUTPUT,
-                            picardAddOrReplaceReadGroupsIndexOut.getAbsolutePath());
-                    CondorJob samtoolsIndexJob = builder.build();
-                    logger.info(samtoolsIndexJob.toString());
-                    graph.addVertex(samtoolsIndexJob);
-                    graph.addEdge(picardAddOrReplaceReadGroupsJob, samtoolsIndexJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory
-                            .createJob(++count, PicardMarkDuplicatesCLI.class, attempt.getId(), sample.getId()).siteName(siteName);
-                    File picardMarkDuplicatesMetricsFile = new File(outputDirectory,
-                            fixRGOutput.getName().replace(".bam", ".deduped.metrics"));
-                    File picardMarkDuplicatesOutput = new File(outputDirectory, fixRGOutput.getName().replace(".bam", ".deduped.bam"));
-                    builder.addArgument(PicardMarkDuplicatesCLI.INPUT, fixRGOutput.getAbsolutePath())
-                            .addArgument(PicardMarkDuplicatesCLI.METRICSFILE, picardMarkDuplicatesMetricsFile.getAbsolutePath())
-                            .addArgument(PicardMarkDuplicatesCLI.OUTPUT, picardMarkDuplicatesOutput.getAbsolutePath());
-                    CondorJob picardMarkDuplicatesJob = builder.build();
-                    logger.info(picardMarkDuplicatesJob.toString());
-                    graph.addVertex(picardMarkDuplicatesJob);
-                    graph.addEdge(samtoolsIndexJob, picardMarkDuplicatesJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File picardMarkDuplicatesIndexOut = new File(outputDirectory,
-                            picardMarkDuplicatesOutput.getName().replace(".bam", ".bai"));
-                    builder.addArgument(SAMToolsIndexCLI.INPUT, picardMarkDuplicatesOutput.getAbsolutePath())
-                            .addArgument(SAMToolsIndexCLI.OUTPUT, picardMarkDuplicatesIndexOut.getAbsolutePath());
-                    samtoolsIndexJob = builder.build();
-                    logger.info(samtoolsIndexJob.toString());
-                    graph.addVertex(samtoolsIndexJob);
-                    graph.addEdge(picardMarkDuplicatesJob, samtoolsIndexJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory
-                            .createJob(++count, GATKRealignerTargetCreatorCLI.class, attempt.getId(), sample.getId()).siteName(siteName)
-                            .numberOfProcessors(2);
-                    File realignTargetCreatorOut = new File(outputDirectory,
-                            picardMarkDuplicatesOutput.getName().replace(".bam", ".targets.intervals"));
-                    builder.addArgument(GATKRealignerTargetCreatorCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKRealignerTargetCreatorCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKRealignerTargetCreatorCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKRealignerTargetCreatorCLI.KNOWN, knownVCF)
-                            .addArgument(GATKRealignerTargetCreatorCLI.INPUTFILE, picardMarkDuplicatesOutput.getAbsolutePath())
-                            .addArgument(GATKRealignerTargetCreatorCLI.OUT, realignTargetCreatorOut.getAbsolutePath());
-                    CondorJob gatkRealignTargetCreatorJob = builder.build();
-                    logger.info(gatkRealignTargetCreatorJob.toString());
-                    graph.addVertex(gatkRealignTargetCreatorJob);
-                    graph.addEdge(samtoolsIndexJob, gatkRealignTargetCreatorJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, GATKIndelRealignerCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).numberOfProcessors(2);
-                    File indelRealignerOut = new File(outputDirectory,
-                            picardMarkDuplicatesOutput.getName().replace(".bam", ".realign.bam"));
-                    builder.addArgument(GATKIndelRealignerCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKIndelRealignerCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString().toLowerCase())
-                            .addArgument(GATKIndelRealignerCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKIndelRealignerCLI.KNOWNALLELES, knownVCF)
-                            .addArgument(GATKIndelRealignerCLI.INPUT, picardMarkDuplicatesOutput.getAbsolutePath())
-                            .addArgument(GATKIndelRealignerCLI.TARGETINTERVALS, realignTargetCreatorOut.getAbsolutePath())
-                            .addArgument(GATKIndelRealignerCLI.OUT, indelRealignerOut.getAbsolutePath());
-                    CondorJob gatkIndelRealignerJob = builder.build();
-                    logger.info(gatkIndelRealignerJob.toString());
-                    graph.addVertex(gatkIndelRealignerJob);
-                    graph.addEdge(gatkRealignTargetCreatorJob, gatkIndelRealignerJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, PicardFixMateCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File picardFixMateOutput = new File(outputDirectory, indelRealignerOut.getName().replace(".bam", ".fixmate.bam"));
-                    builder.addArgument(PicardFixMateCLI.SORTORDER, PicardSortOrderType.COORDINATE.toString().toLowerCase())
-                            .addArgument(PicardFixMateCLI.INPUT, indelRealignerOut.getAbsolutePath())
-                            .addArgument(PicardFixMateCLI.OUTPUT, picardFixMateOutput.getAbsolutePath());
-                    CondorJob picardFixMateJob = builder.build();
-                    logger.info(picardFixMateJob.toString());
-                    graph.addVertex(picardFixMateJob);
-                    graph.addEdge(gatkIndelRealignerJob, picardFixMateJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File picardFixMateIndexOut = new File(outputDirectory, picardFixMateOutput.getName().replace(".bam", ".bai"));
-                    builder.addArgument(SAMToolsIndexCLI.INPUT, picardFixMateOutput.getAbsolutePath()).addArgument(SAMToolsIndexCLI.OUTPUT,
-                            picardFixMateIndexOut.getAbsolutePath());
-                    samtoolsIndexJob = builder.build();
-                    logger.info(samtoolsIndexJob.toString());
-                    graph.addVertex(samtoolsIndexJob);
-                    graph.addEdge(picardFixMateJob, samtoolsIndexJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, GATKCountCovariatesCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).numberOfProcessors(4);
-                    File gatkCountCovariatesRecalFile = new File(outputDirectory,
-                            picardFixMateOutput.getName().replace(".bam", ".bam.cov"));
-                    builder.addArgument(GATKCountCovariatesCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKCountCovariatesCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKCountCovariatesCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKCountCovariatesCLI.KNOWNSITES, knownVCF).addArgument(GATKCountCovariatesCLI.NUMTHREADS, "4")
-                            .addArgument(GATKCountCovariatesCLI.STANDARDCOVS)
-                            .addArgument(GATKCountCovariatesCLI.INPUTFILE, picardFixMateOutput.getAbsolutePath())
-                            .addArgument(GATKCountCovariatesCLI.RECALFILE, gatkCountCovariatesRecalFile.getAbsolutePath());
-                    CondorJob gatkCountCovariatesJob = builder.build();
-                    logger.info(gatkCountCovariatesJob.toString());
-                    graph.addVertex(gatkCountCovariatesJob);
-                    graph.addEdge(samtoolsIndexJob, gatkCountCovariatesJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory
-                            .createJob(++count, GATKTableRecalibrationCLI.class, attempt.getId(), sample.getId()).siteName(siteName)
-                            .numberOfProcessors(2);
-                    File gatkTableRecalibrationOut = new File(outputDirectory, picardFixMateOutput.getName().replace(".bam", ".recal.bam"));
-                    builder.addArgument(GATKTableRecalibrationCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKTableRecalibrationCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKTableRecalibrationCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKTableRecalibrationCLI.INPUTFILE, picardFixMateOutput.getAbsolutePath())
-                            .addArgument(GATKTableRecalibrationCLI.RECALFILE, gatkCountCovariatesRecalFile.getAbsolutePath())
-                            .addArgument(GATKTableRecalibrationCLI.OUT, gatkTableRecalibrationOut.getAbsolutePath());
-                    CondorJob gatkTableRecalibrationJob = builder.build();
-                    logger.info(gatkTableRecalibrationJob.toString());
-                    graph.addVertex(gatkTableRecalibrationJob);
-                    graph.addEdge(gatkCountCovariatesJob, gatkTableRecalibrationJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsIndexCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File gatkTableRecalibrationIndexOut = new File(outputDirectory,
-                            gatkTableRecalibrationOut.getName().replace(".bam", ".bai"));
-                    builder.addArgument(SAMToolsIndexCLI.INPUT, gatkTableRecalibrationOut.getAbsolutePath())
-                            .addArgument(SAMToolsIndexCLI.OUTPUT, gatkTableRecalibrationIndexOut.getAbsolutePath());
-                    samtoolsIndexJob = builder.build();
-                    logger.info(samtoolsIndexJob.toString());
-                    graph.addVertex(samtoolsIndexJob);
-                    graph.addEdge(gatkTableRecalibrationJob, samtoolsIndexJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, SAMToolsFlagstatCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName);
-                    File samtoolsFlagstatOut = new File(outputDirectory,
-                            gatkTableRecalibrationOut.getName().replace(".bam", ".samtools.flagstat"));
-                    builder.addArgument(SAMToolsFlagstatCLI.INPUT, gatkTableRecalibrationOut.getAbsolutePath())
-                            .addArgument(SAMToolsFlagstatCLI.OUTPUT, samtoolsFlagstatOut.getAbsolutePath());
-                    CondorJob samtoolsFlagstatJob = builder.build();
-                    logger.info(samtoolsFlagstatJob.toString());
-                    graph.addVertex(samtoolsFlagstatJob);
-                    graph.addEdge(samtoolsIndexJob, samtoolsFlagstatJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, GATKFlagStatCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).numberOfProcessors(2);
-                    File gatkFlagstatOut = new File(outputDirectory, gatkTableRecalibrationOut.getName().replace(".bam", ".gatk.flagstat"));
-                    builder.addArgument(GATKFlagStatCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKFlagStatCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKFlagStatCLI.INPUTFILE, gatkTableRecalibrationOut.getAbsolutePath())
-                            .addArgument(GATKFlagStatCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKFlagStatCLI.INTERVALS, flagstatIntervalList)
-                            .addArgument(GATKFlagStatCLI.OUT, gatkFlagstatOut.getAbsolutePath());
-                    CondorJob gatkFlagstatJob = builder.build();
-                    logger.info(gatkFlagstatJob.toString());
-                    graph.addVertex(gatkFlagstatJob);
-                    graph.addEdge(samtoolsIndexJob, gatkFlagstatJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, GATKDepthOfCoverageCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).initialDirectory(outputDirectory.getAbsolutePath()).numberOfProcessors(2);
-                    builder.addArgument(GATKDepthOfCoverageCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKDepthOfCoverageCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKDepthOfCoverageCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKDepthOfCoverageCLI.VALIDATIONSTRICTNESS, "LENIENT")
-                            .addArgument(GATKDepthOfCoverageCLI.OMITDEPTHOUTPUTATEACHBASE)
-                            .addArgument(GATKDepthOfCoverageCLI.INPUTFILE, gatkTableRecalibrationOut.getAbsolutePath())
-                            .addArgument(GATKDepthOfCoverageCLI.INTERVALS, depthOfCoverageIntervalList).addArgument(
-                                    GATKDepthOfCoverageCLI.OUTPUTPREFIX, gatkTableRecalibrationOut.getName().replace(".bam", ".coverage"));
-                    CondorJob gatkDepthOfCoverageJob = builder.build();
-                    logger.info(gatkDepthOfCoverageJob.toString());
-                    graph.addVertex(gatkDepthOfCoverageJob);
-                    graph.addEdge(samtoolsFlagstatJob, gatkDepthOfCoverageJob);
-                    graph.addEdge(gatkFlagstatJob, gatkDepthOfCoverageJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory
-                            .createJob(++count, GATKUnifiedGenotyperCLI.class, attempt.getId(), sample.getId()).siteName(siteName)
-                            .numberOfProcessors(4);
-                    File gatkUnifiedGenotyperOut = new File(outputDirectory, gatkTableRecalibrationOut.getName().replace(".bam", ".vcf"));
-                    File gatkUnifiedGenotyperMetrics = new File(outputDirectory,
-                            gatkTableRecalibrationOut.getName().replace(".bam", ".metrics"));
-                    builder.addArgument(GATKUnifiedGenotyperCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKUnifiedGenotyperCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKUnifiedGenotyperCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKUnifiedGenotyperCLI.DBSNP, knownVCF).addArgument(GATKUnifiedGenotyperCLI.STANDCALLCONF, "30")
-                            .addArgument(GATKUnifiedGenotyperCLI.STANDEMITCONF, "0")
-                            .addArgument(GATKUnifiedGenotyperCLI.GENOTYPELIKELIHOODSMODEL, "BOTH")
-                            .addArgument(GATKUnifiedGenotyperCLI.INPUTFILE, gatkTableRecalibrationOut.getAbsolutePath())
-                            .addArgument(GATKUnifiedGenotyperCLI.NUMTHREADS, "4")
-                            .addArgument(GATKUnifiedGenotyperCLI.OUT, gatkUnifiedGenotyperOut.getAbsolutePath())
-                            .addArgument(GATKUnifiedGenotyperCLI.INTERVALS, unifiedGenotyperIntervalList)
-                            .addArgument(GATKUnifiedGenotyperCLI.OUTPUTMODE, "EMIT_ALL_SITES")
-                            .addArgument(GATKUnifiedGenotyperCLI.METRICS, gatkUnifiedGenotyperMetrics.getAbsolutePath())
-                            .addArgument(GATKUnifiedGenotyperCLI.DOWNSAMPLETOCOVERAGE, "250")
-                            .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "AlleleBalance")
-                            .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "DepthOfCoverage")
-                            .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "HomopolymerRun")
-                            .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "MappingQualityZero")
-                            .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "QualByDepth")
-                            .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "RMSMappingQuality")
-                            .addArgument(GATKUnifiedGenotyperCLI.ANNOTATION, "HaplotypeScore");
-                    CondorJob gatkUnifiedGenotyperJob = builder.build();
-                    logger.info(gatkUnifiedGenotyperJob.toString());
-                    graph.addVertex(gatkUnifiedGenotyperJob);
-                    graph.addEdge(gatkDepthOfCoverageJob, gatkUnifiedGenotyperJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, FilterVariantCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).numberOfProcessors(2);
-                    File filterVariant1Output = new File(outputDirectory,
-                            gatkTableRecalibrationOut.getName().replace(".bam", ".variant.vcf"));
-                    builder.addArgument(FilterVariantCLI.INTERVALLIST, icSNPIntervalList).addArgument(FilterVariantCLI.WITHMISSING)
-                            .addArgument(FilterVariantCLI.INPUT, gatkUnifiedGenotyperOut.getAbsolutePath())
-                            .addArgument(FilterVariantCLI.OUTPUT, filterVariant1Output.getAbsolutePath());
-                    CondorJob filterVariant1Job = builder.build();
-                    logger.info(filterVariant1Job.toString());
-                    graph.addVertex(filterVariant1Job);
-                    graph.addEdge(gatkUnifiedGenotyperJob, filterVariant1Job);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory
-                            .createJob(++count, GATKVariantRecalibratorCLI.class, attempt.getId(), sample.getId()).siteName(siteName)
-                            .numberOfProcessors(2);
-                    File gatkVariantRecalibratorRecalFile = new File(outputDirectory,
-                            filterVariant1Output.getName().replace(".vcf", ".recal"));
-                    File gatkVariantRecalibratorTranchesFile = new File(outputDirectory,
-                            filterVariant1Output.getName().replace(".vcf", ".tranches"));
-                    File gatkVariantRecalibratorRScriptFile = new File(outputDirectory,
-                            filterVariant1Output.getName().replace(".vcf", ".plots.R"));
-                    builder.addArgument(GATKVariantRecalibratorCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKVariantRecalibratorCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKVariantRecalibratorCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKVariantRecalibratorCLI.MAXGAUSSIANS, "4")
-                            .addArgument(GATKVariantRecalibratorCLI.INPUT, filterVariant1Output.getAbsolutePath())
-                            .addArgument(GATKVariantRecalibratorCLI.MODE, "SNP")
-                            .addArgument(GATKVariantRecalibratorCLI.RECALFILE, gatkVariantRecalibratorRecalFile.getAbsolutePath())
-                            .addArgument(GATKVariantRecalibratorCLI.TRANCHESFILE, gatkVariantRecalibratorTranchesFile.getAbsolutePath())
-                            .addArgument(GATKVariantRecalibratorCLI.RESOURCE,
-                                    ":hapmap,known=false,training=true,truth=true,prior=15.0^$NCGENES_RESOURCES_DIRECTORY/gatk/bundle/1.2/b37/hapmap_3.3.b37.sites.renci.shortid.vcf")
-                            .addArgument(GATKVariantRecalibratorCLI.RESOURCE,
-                                    ":omni,known=false,training=true,truth=false,prior=12.0^$NCGENES_RESOURCES_DIRECTORY/gatk/bundle/1.2/b37/1000G_omni2.5.b37.sites.renci.shortid.vcf")
-                            .addArgument(GATKVariantRecalibratorCLI.RESOURCE,
-                                    ":dbsnp,known=true,training=false,truth=false,prior=8.0^$NCGENES_RESOURCES_DIRECTORY/gatk/bundle/1.2/b37/dbsnp_132.b37.renci.shortid.vcf")
-                            .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "QD")
-                            .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "HaplotypeScore")
-                            .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "MQRankSum")
-                            .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "ReadPosRankSum")
-                            .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "MQ")
-                            .addArgument(GATKVariantRecalibratorCLI.USEANNOTATION, "FS")
-                            .addArgument(GATKVariantRecalibratorCLI.RSCRIPTFILE, gatkVariantRecalibratorRScriptFile.getAbsolutePath());
-                    if (StringUtils.isNotEmpty(percentBadVariants)) {
-                        builder.addArgument(GATKVariantRecalibratorCLI.PERCENTBADVARIANTS, percentBadVariants);
+    // the bean service attributes, overridden by the run's own
+    private NCGenesBaselineGraphBuilder createGraphBuilder() {
+        Map<String, String> attributes = getWorkflowBeanService().getAttributes();
+        NCGenesBaselineGraphBuilder graphBuilder = new NCGenesBaselineGraphBuilder(getWorkflowRunAttempt().getId());
+        graphBuilder.setSiteName(attributes.get("siteName"));
+        graphBuilder.setKnownVCF(attributes.get("knownVCF"));
+        graphBuilder.setReferenceSequence(attributes.get("referenceSequence"));
+        graphBuilder.setIcSNPIntervalList(attributes.get("icSNPIntervalList"));
+        graphBuilder.setFlagstatIntervalList(attributes.get("flagstatIntervalList"));
+        graphBuilder.setDepthOfCoverageIntervalList(attributes.get("depthOfCoverageIntervalList"));
+        graphBuilder.setUnifiedGenotyperIntervalList(attributes.get("unifiedGenotyperIntervalList"));
+        graphBuilder.setReadGroupPlatform(attributes.get("readGroupPlatform"));
+        graphBuilder.setReadGroupPlatformUnit(attributes.get("readGroupPlatformUnit"));
+        graphBuilder.setNativeFlagstat(Boolean.valueOf(attributes.get("nativeFlagstat")));
+        graphBuilder.setNativeDepthOfCoverage(Boolean.valueOf(attributes.get("nativeDepthOfCoverage")));
+        graphBuilder.setUnifiedGenotyperScatterCount(attributes.get("unifiedGenotyperScatterCount"));
+        graphBuilder.setBwaChunkSize(attributes.get("bwaChunkSize"));
+        graphBuilder.setScriptsDirectory(attributes.get("scriptsDirectory"));
+
+        Set<Attribute> attributeSet = getWorkflowRunAttempt().getWorkflowRun().getAttributes();
+        if (attributeSet != null && !attributeSet.isEmpty()) {
+            Iterator<Attribute> attributeIter = attributeSet.iterator();
+            while (attributeIter.hasNext()) {
+                Attribute attribute = attributeIter.next();
+                if ("GATKVariantRecalibrator.percentBadVariants".equals(attribute.getName())) {
+                    graphBuilder.setPercentBadVariants(attribute.getValue());
+                }
+                if ("GATKUnifiedGenotyper.scatterCount".equals(attribute.getName())) {
+                    graphBuilder.setUnifiedGenotyperScatterCount(attribute.getValue());
+                }
+                if ("BWAAlign.chunkSize".equals(attribute.getName())) {
+                    graphBuilder.setBwaChunkSize(attribute.getValue());
+                }
+                if ("sselProbe".equals(attribute.getName())) {
+                    // read probe version to determine interval list file(s)
+                    String probeIntervalList = getProbeIntervalList(attribute.getValue());
+                    if (probeIntervalList != null) {
+                        graphBuilder.setFlagstatIntervalList(probeIntervalList);
+                        graphBuilder.setDepthOfCoverageIntervalList(probeIntervalList);
+                        graphBuilder.setUnifiedGenotyperIntervalList(probeIntervalList);
                     }
-                    CondorJob gatkVariantRecalibratorJob = builder.build();
-                    logger.info(gatkVariantRecalibratorJob.toString());
-                    graph.addVertex(gatkVariantRecalibratorJob);
-                    graph.addEdge(filterVariant1Job, gatkVariantRecalibratorJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory
-                            .createJob(++count, GATKApplyRecalibrationCLI.class, attempt.getId(), sample.getId()).siteName(siteName)
-                            .numberOfProcessors(2);
-                    File gatkApplyRecalibrationOut = new File(outputDirectory,
-                            filterVariant1Output.getName().replace(".vcf", ".recalibrated.filtered.vcf"));
-                    builder.addArgument(GATKApplyRecalibrationCLI.PHONEHOME, GATKPhoneHomeType.NO_ET.toString())
-                            .addArgument(GATKApplyRecalibrationCLI.DOWNSAMPLINGTYPE, GATKDownsamplingType.NONE.toString())
-                            .addArgument(GATKApplyRecalibrationCLI.REFERENCESEQUENCE, referenceSequence)
-                            .addArgument(GATKApplyRecalibrationCLI.INPUT, filterVariant1Output.getAbsolutePath())
-                            .addArgument(GATKApplyRecalibrationCLI.RECALFILE, gatkVariantRecalibratorRecalFile.getAbsolutePath())
-                            .addArgument(GATKApplyRecalibrationCLI.TRANCHESFILE, gatkVariantRecalibratorTranchesFile.getAbsolutePath())
-                            .addArgument(GATKApplyRecalibrationCLI.OUT, gatkApplyRecalibrationOut.getAbsolutePath())
-                            .addArgument(GATKApplyRecalibrationCLI.TSFILTERLEVEL, "99.0");
-                    CondorJob gatkApplyRecalibrationJob = builder.build();
-                    logger.info(gatkApplyRecalibrationJob.toString());
-                    graph.addVertex(gatkApplyRecalibrationJob);
-                    graph.addEdge(gatkVariantRecalibratorJob, gatkApplyRecalibrationJob);
-
-                    // new job
-                    builder = SequencingWorkflowJobFactory.createJob(++count, FilterVariantCLI.class, attempt.getId(), sample.getId())
-                            .siteName(siteName).numberOfProcessors(2);
-                    File filterVariant2Output = new File(outputDirectory, filterVariant1Output.getName().replace(".vcf", ".ic_snps.vcf"));
-                    builder.addArgument(FilterVariantCLI.INTERVALLIST, icSNPIntervalList)
-                            .addArgument(FilterVariantCLI.INPUT, gatkApplyRecalibrationOut.getAbsolutePath())
-                            .addArgument(FilterVariantCLI.OUTPUT, filterVariant2Output.getAbsolutePath());
-                    CondorJob filterVariant2Job = builder.build();
-                    logger.info(filterVariant2Job.toString());
-                    graph.addVertex(filterVariant2Job);
-                    graph.addEdge(gatkApplyRecalibrationJob, filterVariant2Job);
-
-                } catch (Exception e) {
-                    throw new WorkflowException(e);
                 }
-
             }
+        }
+        return graphBuilder;
+    }
 
+    private static String getProbeIntervalList(String sselProbe) {
+        if (sselProbe == null) {
+            return null;
+        }
+        switch (sselProbe) {
+            case "5":
+                return "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_capture_region_pm_100.shortid.interval_list";
+            case "5 + EGL":
+                return "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v5_egl_capture_region_pm_100.shortid.interval_list";
         }
+        return null;
+    }
 
-        return graph;
+    private File getIntervalList(String attributeName) {
+        String intervalListPath = getWorkflowBeanService().getAttributes().get(attributeName);
+        Set<Attribute> attributeSet = getWorkflowRunAttempt().getWorkflowRun().getAttributes();
+        if (attributeSet != null) {
+            for (Attribute attribute : attributeSet) {
+                if ("sselProbe".equals(attribute.getName()) && getProbeIntervalList(attribute.getValue()) != null) {
+                    intervalListPath = getProbeIntervalList(attribute.getValue());
+                }
+            }
+        }
+        if (StringUtils.isEmpty(intervalListPath)) {
+            return null;
+        }
+        File intervalList = NCGenesBaselineGraphBuilder.resolveResourcePath(intervalListPath);
+        if (!intervalList.exists()) {
+            logger.warn("{} not found: {}", attributeName, intervalListPath);
+            return null;
+        }
+        return intervalList;
     }
 
     @Override
     public void postRun() throws WorkflowException {
         logger.info("ENTERING postRun()");
 
-        ExecutorService es = Executors.newSingleThreadExecutor();
+        String qcHarvestPoolSize = getWorkflowBeanService().getAttributes().get("qcHarvestPoolSize");
+        String qcHarvestSampleTimeout = getWorkflowBeanService().getAttributes().get("qcHarvestSampleTimeout");
+        boolean runNativeFlagstat = Boolean.valueOf(getWorkflowBeanService().getAttributes().get("nativeFlagstat"));
+        String flagstatThreads = getWorkflowBeanService().getAttributes().get("flagstatThreads");
+        boolean runNativeDepthOfCoverage = Boolean.valueOf(getWorkflowBeanService().getAttributes().get("nativeDepthOfCoverage"));
+        String depthOfCoverageThreads = getWorkflowBeanService().getAttributes().get("depthOfCoverageThreads");
 
-        try {
+        PostRunTaskGraph graph = new PostRunTaskGraph();
 
-            RegisterToIRODSRunnable registerNCGenesToIRODSRunnable = new RegisterToIRODSRunnable(
-                    getWorkflowBeanService().getMaPSeqDAOBeanService(), getWorkflowRunAttempt());
-            es.submit(registerNCGenesToIRODSRunnable);
+        // adds the flagstat, markDuplicates, depthOfCoverage & numberOnTarget collectors and a single save per sample
+        SaveQualityControlAttributesRunnable saveQualityControlAttributesRunnable = new SaveQualityControlAttributesRunnable(
+                getWorkflowBeanService().getMaPSeqDAOBeanService(), getWorkflowRunAttempt());
+        if (StringUtils.isNotEmpty(qcHarvestPoolSize)) {
+            saveQualityControlAttributesRunnable.setPoolSize(Integer.valueOf(qcHarvestPoolSize));
+        }
+        if (StringUtils.isNotEmpty(qcHarvestSampleTimeout)) {
+            saveQualityControlAttributesRunnable.setSampleTimeout(Long.valueOf(qcHarvestSampleTimeout));
+        }
+        if (runNativeFlagstat) {
+            saveQualityControlAttributesRunnable.setNativeFlagstat(Boolean.TRUE);
+            saveQualityControlAttributesRunnable.setFlagstatIntervalList(getIntervalList("flagstatIntervalList"));
+            if (StringUtils.isNotEmpty(flagstatThreads)) {
+                saveQualityControlAttributesRunnable.setFlagstatThreads(Integer.valueOf(flagstatThreads));
+            }
+        }
+        if (runNativeDepthOfCoverage) {
+            saveQualityControlAttributesRunnable.setNativeDepthOfCoverage(Boolean.TRUE);
+            saveQualityControlAttributesRunnable.setDepthOfCoverageIntervalList(getIntervalList("depthOfCoverageIntervalList"));
+            if (StringUtils.isNotEmpty(depthOfCoverageThreads)) {
+                saveQualityControlAttributesRunnable.setDepthOfCoverageThreads(Integer.valueOf(depthOfCoverageThreads));
+            }
+        }
+        saveQualityControlAttributesRunnable.addTasks(graph);
+
+        // network-bound & nothing downstream reads its output, so it runs alongside the metric tasks...unless the flagstat or
+        // coverage files it registers are written by those tasks
+        final RegisterToIRODSRunnable registerToIRODSRunnable = new RegisterToIRODSRunnable(
+                getWorkflowBeanService().getMaPSeqDAOBeanService(), getWorkflowRunAttempt());
+        final QualityControlHarvestReport report = saveQualityControlAttributesRunnable.getReport();
+        final List<String> nativeStages = new ArrayList<String>();
+        if (runNativeFlagstat) {
+            nativeStages.add("flagstat");
+        }
+        if (runNativeDepthOfCoverage) {
+            nativeStages.add("depthOfCoverage");
+        }
+        // registration is handed to an executor of its own, it isn't stopped with the harvest & may finish after postRun returns
+        final ExecutorService irodsExecutor = Executors.newSingleThreadExecutor();
+        graph.addTask("registerToIRODS", new Runnable() {
+            @Override
+            public void run() {
+                // no Condor job wrote these files, a sample the native stage didn't finish would be registered without them
+                for (String stage : nativeStages) {
+                    if (!report.getIncomplete(stage).isEmpty()) {
+                        throw new IllegalStateException(String.format("native %s did not finish, not registering", stage));
+                    }
+                }
+                irodsExecutor.submit(registerToIRODSRunnable);
+            }
+        }, nativeStages.toArray(new String[0]));
 
-            SaveFlagstatAttributesRunnable saveFlagstatAttributeRunnable = new SaveFlagstatAttributesRunnable(
-                    getWorkflowBeanService().getMaPSeqDAOBeanService(), getWorkflowRunAttempt());
-            es.submit(saveFlagstatAttributeRunnable);
+        ExecutorService es = Executors.newCachedThreadPool();
+        try {
+            // no cap of its own, every sample gives up by its own deadline in each stage
+            graph.execute(es).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("post-run tasks did not complete", e.getCause());
+        } finally {
+            // nothing of the harvest may still be running once postRun returns
+            es.shutdownNow();
+            try {
+                if (!es.awaitTermination(1L, TimeUnit.MINUTES)) {
+                    logger.warn("post-run tasks did not stop");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            irodsExecutor.shutdown();
+        }
+        logger.info("post-run task durations (ms): {}", graph.getDurations());
 
-            SaveMarkDuplicatesAttributesRunnable saveMarkDuplicatesAttributesRunnable = new SaveMarkDuplicatesAttributesRunnable(
-                    getWorkflowBeanService().getMaPSeqDAOBeanService(), getWorkflowRunAttempt());
-            es.submit(saveMarkDuplicatesAttributesRunnable);
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        for (Map.Entry<String, Long> entry : graph.getDurations().entrySet()) {
+            metrics.recordPostRunStage(entry.getKey(), entry.getValue());
+        }
+        if (getWorkflowRunAttempt().getDequeued() != null) {
+            metrics.getDequeueToDone().record(System.currentTimeMillis() - getWorkflowRunAttempt().getDequeued().getTime());
+        }
 
-            SaveDepthOfCoverageAttributesRunnable saveDepthOfCoverageAttributesRunnable = new SaveDepthOfCoverageAttributesRunnable(
-                    getWorkflowBeanService().getMaPSeqDAOBeanService(), getWorkflowRunAttempt());
-            es.submit(saveDepthOfCoverageAttributesRunnable);
+        if (!report.isComplete()) {
+            logger.warn("QC attributes not saved for all samples: {}", report.toString());
+        }
+        if (!saveQualityControlAttributesRunnable.getSidecarFailures().isEmpty()) {
+            logger.warn("ic_snps sidecar files not written for samples: {}", saveQualityControlAttributesRunnable.getSidecarFailures());
+        }
 
-            es.shutdown();
-            es.awaitTermination(1L, TimeUnit.HOURS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        for (String stage : nativeStages) {
+            Set<Long> incomplete = report.getIncomplete(stage);
+            if (!incomplete.isEmpty()) {
+                throw new WorkflowException(String.format("native %s failed or timed out for samples %s, rerun with %s=false", stage,
+                        incomplete, "flagstat".equals(stage) ? "nativeFlagstat" : "nativeDepthOfCoverage"));
+            }
+        }
+
+        // samples the harvest was stopped before reaching are neither failed nor timed out, but their QC attributes are missing
+        Set<Long> unfinished = report.getUnfinished();
+        if (!nativeStages.isEmpty() && !unfinished.isEmpty()) {
+            throw new WorkflowException(String.format("QC harvest did not finish samples %s", unfinished));
         }
     }
 }
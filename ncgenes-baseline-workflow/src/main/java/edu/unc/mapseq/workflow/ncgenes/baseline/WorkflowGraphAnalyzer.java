@@ -0,0 +1,87 @@
+package edu.unc.mapseq.workflow.ncgenes.baseline;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.traverse.TopologicalOrderIterator;
+
+public class WorkflowGraphAnalyzer<V, E> {
+
+    private final DirectedGraph<V, E> graph;
+
+    public WorkflowGraphAnalyzer(DirectedGraph<V, E> graph) {
+        super();
+        this.graph = graph;
+    }
+
+    // every job weighs the same, so this is the longest chain of jobs
+    public List<V> getCriticalPath() {
+        return getCriticalPath(Collections.<V, Long> emptyMap(), 1L);
+    }
+
+    // longest weighted path, jobs without a weight count as defaultWeight
+    public List<V> getCriticalPath(Map<V, Long> weights, long defaultWeight) {
+        Map<V, Long> finish = new HashMap<V, Long>();
+        Map<V, V> previous = new HashMap<V, V>();
+        V last = computeFinish(weights, defaultWeight, finish, previous);
+
+        LinkedList<V> path = new LinkedList<V>();
+        for (V vertex = last; vertex != null; vertex = previous.get(vertex)) {
+            path.addFirst(vertex);
+        }
+        return path;
+    }
+
+    // end to end time with unlimited slots, the length of the weighted critical path
+    public long getMakespan(Map<V, Long> weights, long defaultWeight) {
+        Map<V, Long> finish = new HashMap<V, Long>();
+        V last = computeFinish(weights, defaultWeight, finish, new HashMap<V, V>());
+        return last != null ? finish.get(last) : 0L;
+    }
+
+    // most jobs sharing a depth, i.e. how many slots the graph can fill at once
+    public int getMaximumWidth() {
+        Map<V, Long> finish = new HashMap<V, Long>();
+        computeFinish(Collections.<V, Long> emptyMap(), 1L, finish, new HashMap<V, V>());
+        Map<Long, Integer> widths = new HashMap<Long, Integer>();
+        int maximumWidth = 0;
+        for (Long depth : finish.values()) {
+            Integer width = widths.get(depth);
+            width = width != null ? width + 1 : 1;
+            widths.put(depth, width);
+            maximumWidth = Math.max(maximumWidth, width);
+        }
+        return maximumWidth;
+    }
+
+    private V computeFinish(Map<V, Long> weights, long defaultWeight, Map<V, Long> finish, Map<V, V> previous) {
+        V last = null;
+        TopologicalOrderIterator<V, E> iter = new TopologicalOrderIterator<V, E>(graph);
+        while (iter.hasNext()) {
+            V vertex = iter.next();
+            long start = 0L;
+            for (E edge : graph.incomingEdgesOf(vertex)) {
+                V source = graph.getEdgeSource(edge);
+                if (finish.get(source) > start) {
+                    start = finish.get(source);
+                    previous.put(vertex, source);
+                }
+            }
+            Long weight = weights.get(vertex);
+            finish.put(vertex, start + (weight != null ? weight : defaultWeight));
+            if (last == null || finish.get(vertex) > finish.get(last)) {
+                last = vertex;
+            }
+        }
+        return last;
+    }
+
+    public DirectedGraph<V, E> getGraph() {
+        return graph;
+    }
+
+}
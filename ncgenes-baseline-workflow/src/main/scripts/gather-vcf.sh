@@ -0,0 +1,37 @@
+#!/bin/bash
+# concatenates the per shard genotyper vcfs, in the order given, into one vcf with the first shard's header
+# usage: gather-vcf.sh --output <vcf> --metricsOutput <metrics> [--input <shard vcf> --metrics <shard metrics>]...
+
+set -euo pipefail
+
+OUTPUT=""
+METRICS_OUTPUT=""
+INPUTS=()
+METRICS=()
+
+while [ $# -gt 0 ]; do
+    case "$1" in
+        --output) OUTPUT="$2"; shift 2 ;;
+        --metricsOutput) METRICS_OUTPUT="$2"; shift 2 ;;
+        --input) INPUTS+=("$2"); shift 2 ;;
+        --metrics) METRICS+=("$2"); shift 2 ;;
+        *) echo "unknown argument: $1" >&2; exit 1 ;;
+    esac
+done
+
+if [ -z "$OUTPUT" ] || [ -z "$METRICS_OUTPUT" ] || [ ${#INPUTS[@]} -eq 0 ]; then
+    echo "usage: $0 --output <vcf> --metricsOutput <metrics> --input <shard vcf> [--input <shard vcf>]..." >&2
+    exit 1
+fi
+
+# written next to the output & moved into place, so a failed gather never leaves a partial vcf behind
+TMP_OUTPUT="$OUTPUT.tmp"
+grep '^#' "${INPUTS[0]}" > "$TMP_OUTPUT"
+for INPUT in "${INPUTS[@]}"; do
+    # a shard without a call is fine, grep exits 1, a shard that can't be read isn't
+    grep -v '^#' "$INPUT" >> "$TMP_OUTPUT" || [ $? -eq 1 ]
+done
+mv "$TMP_OUTPUT" "$OUTPUT"
+
+cat "${METRICS[@]}" > "$METRICS_OUTPUT.tmp"
+mv "$METRICS_OUTPUT.tmp" "$METRICS_OUTPUT"
@@ -0,0 +1,36 @@
+#!/bin/bash
+# splits a fastq, plain or gzipped, into the gzipped chunks given, read i going to chunk i % n
+# R1 & R2 split into the same number of chunks stay paired, chunk k of R1 holding the mates of chunk k of R2
+# usage: split-fastq.sh --input <fastq> --output <chunk> [--output <chunk>]...
+
+set -euo pipefail
+
+INPUT=""
+OUTPUTS=()
+
+while [ $# -gt 0 ]; do
+    case "$1" in
+        --input) INPUT="$2"; shift 2 ;;
+        --output) OUTPUTS+=("$2"); shift 2 ;;
+        *) echo "unknown argument: $1" >&2; exit 1 ;;
+    esac
+done
+
+if [ -z "$INPUT" ] || [ ${#OUTPUTS[@]} -eq 0 ]; then
+    echo "usage: $0 --input <fastq> --output <chunk> [--output <chunk>]..." >&2
+    exit 1
+fi
+
+# every chunk is declared to the dag, so every chunk exists even when there are fewer reads than chunks
+for OUTPUT in "${OUTPUTS[@]}"; do
+    gzip -c < /dev/null > "$OUTPUT.tmp"
+done
+
+zcat -f "$INPUT" | awk -v outputs="$(printf '%s\n' "${OUTPUTS[@]}")" '
+    BEGIN { n = split(outputs, files, "\n") }
+    { print | ("gzip -c > \"" files[int((NR - 1) / 4) % n + 1] ".tmp\"") }
+'
+
+for OUTPUT in "${OUTPUTS[@]}"; do
+    mv "$OUTPUT.tmp" "$OUTPUT"
+done
@@ -0,0 +1,94 @@
+package edu.unc.mapseq.workflow.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.workflow.ncgenes.baseline.IntervalListScatter;
+
+public class IntervalListScatterTest {
+
+    private File createIntervalList(File directory, int... lengths) throws IOException {
+        StringBuilder sb = new StringBuilder("@HD\tVN:1.0\tSO:coordinate\n@SQ\tSN:1\tLN:249250621\n");
+        int start = 1;
+        for (int i = 0; i < lengths.length; i++) {
+            sb.append(String.format("1\t%d\t%d\t+\ttarget_%d\n", start, start + lengths[i] - 1, i));
+            start += lengths[i] + 100;
+        }
+        File intervalList = new File(directory, "capture.interval_list");
+        Files.write(intervalList.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return intervalList;
+    }
+
+    private void delete(File directory) {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testPartitionIsBalancedByBases() throws IOException {
+        File directory = Files.createTempDirectory("scatter").toFile();
+        try {
+            File intervalList = createIntervalList(directory, 100, 100, 100, 100, 400, 100, 100, 100, 100);
+            IntervalListScatter scatter = new IntervalListScatter(intervalList);
+            assertEquals(1200L, scatter.getTotalBases());
+
+            List<List<String>> shards = scatter.partition(3);
+            assertEquals(3, shards.size());
+            assertEquals(4, shards.get(0).size());
+            assertEquals(1, shards.get(1).size());
+            assertEquals(4, shards.get(2).size());
+            assertTrue(shards.get(1).get(0).endsWith("target_4"));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testNoEmptyShards() throws IOException {
+        File directory = Files.createTempDirectory("scatter").toFile();
+        try {
+            IntervalListScatter scatter = new IntervalListScatter(createIntervalList(directory, 1000, 10, 10));
+            List<List<String>> shards = scatter.partition(3);
+            assertEquals(3, shards.size());
+            for (List<String> shard : shards) {
+                assertEquals(1, shard.size());
+            }
+            assertEquals(2, scatter.partition(2).size());
+            assertEquals(3, scatter.partition(8).size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testScatterKeepsHeaderAndOrder() throws IOException {
+        File directory = Files.createTempDirectory("scatter").toFile();
+        try {
+            IntervalListScatter scatter = new IntervalListScatter(createIntervalList(directory, 50, 50, 50, 50));
+            List<File> shardFiles = scatter.scatter(2, directory, "sample.recal");
+            assertEquals(Arrays.asList(new File(directory, "sample.recal.shard-01.interval_list"),
+                    new File(directory, "sample.recal.shard-02.interval_list")), shardFiles);
+
+            List<String> lines = Files.readAllLines(shardFiles.get(1).toPath(), StandardCharsets.UTF_8);
+            assertEquals(4, lines.size());
+            assertTrue(lines.get(0).startsWith("@HD"));
+            assertTrue(lines.get(1).startsWith("@SQ"));
+            assertTrue(lines.get(2).endsWith("target_2"));
+            assertTrue(lines.get(3).endsWith("target_3"));
+        } finally {
+            delete(directory);
+        }
+    }
+
+}
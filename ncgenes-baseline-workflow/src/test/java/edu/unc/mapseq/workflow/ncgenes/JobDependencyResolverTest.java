@@ -0,0 +1,195 @@
+package edu.unc.mapseq.workflow.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jgrapht.DirectedGraph;
+import org.junit.Test;
+import org.renci.jlrm.condor.CondorJob;
+import org.renci.jlrm.condor.CondorJobBuilder;
+import org.renci.jlrm.condor.CondorJobEdge;
+
+import edu.unc.mapseq.dao.model.Flowcell;
+import edu.unc.mapseq.dao.model.Sample;
+import edu.unc.mapseq.dao.model.Study;
+import edu.unc.mapseq.workflow.WorkflowException;
+import edu.unc.mapseq.workflow.ncgenes.baseline.JobDependencyResolver;
+import edu.unc.mapseq.workflow.ncgenes.baseline.NCGenesBaselineGraphBuilder;
+import edu.unc.mapseq.workflow.ncgenes.baseline.WorkflowGraphAnalyzer;
+
+public class JobDependencyResolverTest {
+
+    private final File directory = new File(System.getProperty("java.io.tmpdir"), String.format("NCG_00007-%d", System.nanoTime()));
+
+    private File file(String name) {
+        return new File(directory, name);
+    }
+
+    private CondorJob job(String name) {
+        return new CondorJobBuilder().name(name).build();
+    }
+
+    private NCGenesBaselineGraphBuilder createGraphBuilder() {
+        NCGenesBaselineGraphBuilder graphBuilder = new NCGenesBaselineGraphBuilder(1L);
+        graphBuilder.setSiteName("Hatteras");
+        graphBuilder.setReferenceSequence("$NCGENES_REFERENCES_DIRECTORY/BUILD.37.1/bwa061sam0118/BUILD.37.1.sorted.shortid.fa");
+        graphBuilder.setKnownVCF("$NCGENES_RESOURCES_DIRECTORY/gatk/bundle/1.2/b37/dbsnp_132.b37.renci.shortid.vcf");
+        graphBuilder.setIcSNPIntervalList("$NCGENES_RESOURCES_DIRECTORY/ncgenes/ic_snp_v2.list");
+        String intervalList = "$NCGENES_RESOURCES_DIRECTORY/intervals/agilent_v4_capture_region_pm_75.shortid.interval_list";
+        graphBuilder.setFlagstatIntervalList(intervalList);
+        graphBuilder.setDepthOfCoverageIntervalList(intervalList);
+        graphBuilder.setUnifiedGenotyperIntervalList(intervalList);
+        graphBuilder.setReadGroupPlatform("ILLUMINA");
+        graphBuilder.setReadGroupPlatformUnit("Illumina HiSeq 2000");
+        graphBuilder.setScriptsDirectory("$NCGENES_RESOURCES_DIRECTORY/ncgenes/scripts");
+        graphBuilder.setDryRun(true);
+        return graphBuilder;
+    }
+
+    // the graph createGraph builds for one sample, without the native flagstat/coverage & scatter options
+    private DirectedGraph<CondorJob, CondorJobEdge> createSampleGraph() throws WorkflowException {
+        return createSampleGraph(createGraphBuilder(), file("NCG_00007_L001_R1.fastq.gz"), file("NCG_00007_L001_R2.fastq.gz"));
+    }
+
+    private DirectedGraph<CondorJob, CondorJobEdge> createSampleGraph(NCGenesBaselineGraphBuilder graphBuilder, File r1, File r2)
+            throws WorkflowException {
+        Flowcell flowcell = new Flowcell("140205_UNC17-D00216_0141_BH8F37ADXX");
+        Sample sample = new Sample("NCG_00007");
+        sample.setId(1L);
+        sample.setLaneIndex(1);
+        sample.setBarcode("ATCACG");
+        sample.setStudy(new Study("NCGenes"));
+        sample.setFlowcell(flowcell);
+
+        graphBuilder.addSample(sample, directory, r1, r2);
+        return graphBuilder.build();
+    }
+
+    private int countJobs(DirectedGraph<CondorJob, CondorJobEdge> graph, String prefix) {
+        int ret = 0;
+        for (CondorJob job : graph.vertexSet()) {
+            if (job.getName().startsWith(prefix)) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    private boolean containsJob(List<CondorJob> jobs, String prefix) {
+        for (CondorJob job : jobs) {
+            if (job.getName().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testCriticalPathLength() throws WorkflowException {
+        DirectedGraph<CondorJob, CondorJobEdge> graph = createSampleGraph();
+        assertEquals(25, graph.vertexSet().size());
+
+        List<CondorJob> criticalPath = new WorkflowGraphAnalyzer<CondorJob, CondorJobEdge>(graph).getCriticalPath();
+        // with the ordering edges, FastQC, both flagstats & depth of coverage made this 21 jobs long
+        assertEquals(17, criticalPath.size());
+        assertEquals("BWAAlignCLI_4", criticalPath.get(0).getName());
+        assertEquals("FilterVariantCLI_25", criticalPath.get(criticalPath.size() - 1).getName());
+        assertFalse(containsJob(criticalPath, "FastQCCLI"));
+        assertFalse(containsJob(criticalPath, "SAMToolsFlagstatCLI"));
+        assertFalse(containsJob(criticalPath, "GATKFlagStatCLI"));
+        assertFalse(containsJob(criticalPath, "GATKDepthOfCoverageCLI"));
+    }
+
+    @Test
+    public void testOnlyProducerConsumerEdges() throws WorkflowException {
+        DirectedGraph<CondorJob, CondorJobEdge> graph = createSampleGraph();
+        for (CondorJob job : graph.vertexSet()) {
+            if (job.getName().startsWith("FastQCCLI") || job.getName().startsWith("WriteVCFHeaderCLI")) {
+                assertEquals(0, graph.inDegreeOf(job));
+                assertEquals(0, graph.outDegreeOf(job));
+            }
+            if (job.getName().startsWith("GATKUnifiedGenotyperCLI")) {
+                // the recalibration for the bam & its index
+                assertEquals(2, graph.inDegreeOf(job));
+            }
+        }
+    }
+
+    @Test
+    public void testWeightedCriticalPath() throws WorkflowException {
+        DirectedGraph<CondorJob, CondorJobEdge> graph = createSampleGraph();
+        Map<CondorJob, Long> weights = new HashMap<CondorJob, Long>();
+        for (CondorJob job : graph.vertexSet()) {
+            if (job.getName().startsWith("GATKDepthOfCoverageCLI")) {
+                weights.put(job, 1000L);
+            }
+        }
+        List<CondorJob> criticalPath = new WorkflowGraphAnalyzer<CondorJob, CondorJobEdge>(graph).getCriticalPath(weights, 1L);
+        assertTrue(containsJob(criticalPath, "GATKDepthOfCoverageCLI"));
+        assertEquals("GATKDepthOfCoverageCLI_20", criticalPath.get(criticalPath.size() - 1).getName());
+    }
+
+    @Test
+    public void testWidthAndMakespan() throws WorkflowException {
+        DirectedGraph<CondorJob, CondorJobEdge> graph = createSampleGraph();
+        WorkflowGraphAnalyzer<CondorJob, CondorJobEdge> analyzer = new WorkflowGraphAnalyzer<CondorJob, CondorJobEdge>(graph);
+        // the vcf header, both FastQCs & both BWA alns start together
+        assertEquals(5, analyzer.getMaximumWidth());
+        assertEquals(17L, analyzer.getMakespan(new HashMap<CondorJob, Long>(), 1L));
+        assertEquals(170L, analyzer.getMakespan(new HashMap<CondorJob, Long>(), 10L));
+    }
+
+    @Test
+    public void testDryRunWritesNothing() throws IOException, WorkflowException {
+        // a lane of 2.5 MB in chunks of 1 MB & an interval list in three shards
+        File r1 = File.createTempFile("NCG_00007_L001_R1", ".fastq.gz");
+        r1.deleteOnExit();
+        Files.write(r1.toPath(), new byte[5 * 512 * 1024]);
+        File r2 = File.createTempFile("NCG_00007_L001_R2", ".fastq.gz");
+        r2.deleteOnExit();
+        File intervalList = File.createTempFile("capture", ".interval_list");
+        intervalList.deleteOnExit();
+        String intervals = "@HD\tVN:1.0\n1\t100\t199\t+\t.\n1\t300\t399\t+\t.\n2\t100\t199\t+\t.\n";
+        Files.write(intervalList.toPath(), intervals.getBytes(StandardCharsets.US_ASCII));
+
+        NCGenesBaselineGraphBuilder graphBuilder = createGraphBuilder();
+        graphBuilder.setBwaChunkSize("1");
+        graphBuilder.setUnifiedGenotyperScatterCount("3");
+        graphBuilder.setUnifiedGenotyperIntervalList(intervalList.getAbsolutePath());
+        DirectedGraph<CondorJob, CondorJobEdge> graph = createSampleGraph(graphBuilder, r1, r2);
+
+        // split by two jobs at the head of the graph & merged into one sam before the read group is added
+        assertEquals(2, countJobs(graph, "SplitFastq"));
+        assertEquals(6, countJobs(graph, "BWAAlignCLI"));
+        assertEquals(1, countJobs(graph, "PicardMergeSAMCLI"));
+        assertEquals(1, countJobs(graph, "PicardAddOrReplaceReadGroupsCLI"));
+        assertEquals(3, countJobs(graph, "GATKUnifiedGenotyperCLI"));
+        // the shards are gathered into the one vcf the first filter reads, as when unscattered
+        assertEquals(1, countJobs(graph, "GatherVCF"));
+        assertEquals(2, countJobs(graph, "FilterVariantCLI"));
+        for (CondorJob job : graph.vertexSet()) {
+            if (job.getName().startsWith("GatherVCF")) {
+                assertEquals(3, graph.inDegreeOf(job));
+                assertEquals(1, graph.outDegreeOf(job));
+            }
+        }
+        assertFalse(directory.exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFileWithTwoProducers() {
+        JobDependencyResolver dependencies = new JobDependencyResolver();
+        dependencies.produces(job("SAMToolsIndexCLI_1"), file("NCG_00007.bai"));
+        dependencies.produces(job("SAMToolsIndexCLI_2"), file("NCG_00007.bai"));
+    }
+
+}
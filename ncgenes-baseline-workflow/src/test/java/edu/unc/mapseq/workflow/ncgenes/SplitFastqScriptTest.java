@@ -0,0 +1,129 @@
+package edu.unc.mapseq.workflow.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class SplitFastqScriptTest {
+
+    private final File script = new File("src/main/scripts/split-fastq.sh");
+
+    private void writeFastq(File fastq, int reads, String mate) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(fastq)), StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < reads; i++) {
+                writer.write(String.format("@read_%d/%s%nACGTACGT%n+%nIIIIIIII%n", i, mate));
+            }
+        }
+    }
+
+    private List<String> readNames(File fastq) throws IOException {
+        List<String> ret = new ArrayList<String>();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(new FileInputStream(fastq)), StandardCharsets.US_ASCII))) {
+            String line;
+            int i = 0;
+            while ((line = br.readLine()) != null) {
+                if (i++ % 4 == 0) {
+                    ret.add(line.substring(0, line.indexOf("/")));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private List<File> split(File fastq, File directory, String prefix, int chunks) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add("bash");
+        command.add(script.getAbsolutePath());
+        command.add("--input");
+        command.add(fastq.getAbsolutePath());
+        List<File> ret = new ArrayList<File>();
+        for (int i = 0; i < chunks; i++) {
+            File chunk = new File(directory, String.format("%s.chunk-%02d.fastq.gz", prefix, i + 1));
+            command.add("--output");
+            command.add(chunk.getAbsolutePath());
+            ret.add(chunk);
+        }
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        assertEquals(0, process.waitFor());
+        return ret;
+    }
+
+    private void delete(File directory) {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testReadsAreDealtAcrossEveryChunk() throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("split").toFile();
+        try {
+            File fastq = new File(directory, "NCG_00007_L001_R1.fastq.gz");
+            writeFastq(fastq, 8, "1");
+            List<File> chunks = split(fastq, directory, "NCG_00007_L001_R1", 3);
+            assertEquals(3, readNames(chunks.get(0)).size());
+            assertEquals(3, readNames(chunks.get(1)).size());
+            assertEquals(2, readNames(chunks.get(2)).size());
+
+            chunks = split(fastq, directory, "NCG_00007_L001_R1", 2);
+            assertEquals(4, readNames(chunks.get(0)).size());
+            assertEquals(4, readNames(chunks.get(1)).size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testMatesStayPaired() throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("split").toFile();
+        try {
+            File r1 = new File(directory, "NCG_00007_L001_R1.fastq.gz");
+            writeFastq(r1, 7, "1");
+            File r2 = new File(directory, "NCG_00007_L001_R2.fastq.gz");
+            writeFastq(r2, 7, "2");
+            List<File> r1Chunks = split(r1, directory, "NCG_00007_L001_R1", 3);
+            List<File> r2Chunks = split(r2, directory, "NCG_00007_L001_R2", 3);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(readNames(r1Chunks.get(i)), readNames(r2Chunks.get(i)));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testEveryChunkExists() throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("split").toFile();
+        try {
+            File fastq = new File(directory, "NCG_00007_L001_R1.fastq.gz");
+            writeFastq(fastq, 1, "1");
+            List<File> chunks = split(fastq, directory, "NCG_00007_L001_R1", 3);
+            assertEquals(1, readNames(chunks.get(0)).size());
+            for (File chunk : chunks.subList(1, 3)) {
+                assertTrue(chunk.exists());
+                assertEquals(0, readNames(chunk).size());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package edu.unc.mapseq.ws.ncgenes.baseline;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(name = "ConcordanceInfo", propOrder = {})
+@XmlRootElement(name = "concordanceInfo")
+public class ConcordanceInfo {
+
+    private Long sampleId;
+
+    private Long otherSampleId;
+
+    private Integer sitesCompared;
+
+    private Integer concordantSites;
+
+    // concordantSites / sitesCompared, null when no IC SNP was called in both samples
+    private Double concordance;
+
+    public ConcordanceInfo() {
+        super();
+    }
+
+    public Long getSampleId() {
+        return sampleId;
+    }
+
+    public void setSampleId(Long sampleId) {
+        this.sampleId = sampleId;
+    }
+
+    public Long getOtherSampleId() {
+        return otherSampleId;
+    }
+
+    public void setOtherSampleId(Long otherSampleId) {
+        this.otherSampleId = otherSampleId;
+    }
+
+    public Integer getSitesCompared() {
+        return sitesCompared;
+    }
+
+    public void setSitesCompared(Integer sitesCompared) {
+        this.sitesCompared = sitesCompared;
+    }
+
+    public Integer getConcordantSites() {
+        return concordantSites;
+    }
+
+    public void setConcordantSites(Integer concordantSites) {
+        this.concordantSites = concordantSites;
+    }
+
+    public Double getConcordance() {
+        return concordance;
+    }
+
+    public void setConcordance(Double concordance) {
+        this.concordance = concordance;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConcordanceInfo [sampleId=%s, otherSampleId=%s, sitesCompared=%s, concordantSites=%s, concordance=%s]",
+                sampleId, otherSampleId, sitesCompared, concordantSites, concordance);
+    }
+
+}
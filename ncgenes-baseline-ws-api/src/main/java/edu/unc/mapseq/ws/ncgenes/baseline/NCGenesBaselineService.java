@@ -1,5 +1,7 @@
 package edu.unc.mapseq.ws.ncgenes.baseline;
 
+import java.util.List;
+
 import javax.jws.WebMethod;
 import javax.jws.WebParam;
 import javax.jws.WebService;
@@ -8,10 +10,12 @@ import javax.jws.soap.SOAPBinding.Style;
 import javax.jws.soap.SOAPBinding.Use;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import javax.xml.ws.BindingType;
 
 import org.renci.vcf.VCFResult;
@@ -29,9 +33,35 @@ public interface NCGenesBaselineService {
     @WebMethod
     public QualityControlInfo lookupQuantificationResults(@PathParam("sampleId") @WebParam(name = "sampleId") Long sampleId);
 
+    // the batch lookups stream a JSON or XML array as results complete, so they are REST only; each result carries its sampleId
+    @POST
+    @Path("/lookupQuantificationResults")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @WebMethod(exclude = true)
+    public Response lookupQuantificationResultsBySampleIds(List<Long> sampleIds);
+
+    @GET
+    @Path("/lookupQuantificationResultsByFlowcell/{flowcell}")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @WebMethod(exclude = true)
+    public Response lookupQuantificationResultsByFlowcell(@PathParam("flowcell") String flowcell);
+
     @GET
     @Path("/lookupIdentityInfoFromVCF/{sampleId}")
     @WebMethod
     public VCFResult lookupIdentityInfoFromVCF(@PathParam("sampleId") @WebParam(name = "sampleId") Long sampleId);
 
+    @GET
+    @Path("/lookupConcordance/{sampleId}/{otherSampleId}")
+    @WebMethod
+    public ConcordanceInfo lookupConcordance(@PathParam("sampleId") @WebParam(name = "sampleId") Long sampleId,
+            @PathParam("otherSampleId") @WebParam(name = "otherSampleId") Long otherSampleId);
+
+    // the sample against every other sample on the flowcell, e.g. to find a swap within a run
+    @GET
+    @Path("/lookupConcordanceByFlowcell/{sampleId}/{flowcell}")
+    @WebMethod
+    public List<ConcordanceInfo> lookupConcordanceByFlowcell(@PathParam("sampleId") @WebParam(name = "sampleId") Long sampleId,
+            @PathParam("flowcell") @WebParam(name = "flowcell") String flowcell);
+
 }
@@ -13,6 +13,8 @@ import org.renci.vcf.VCFResult;
 @XmlRootElement(name = "qualityControlResults")
 public class QualityControlInfo {
 
+    private Long sampleId;
+
     private Integer passedReads;
 
     private Float aligned;
@@ -30,6 +32,14 @@ public class QualityControlInfo {
         super();
     }
 
+    public Long getSampleId() {
+        return sampleId;
+    }
+
+    public void setSampleId(Long sampleId) {
+        this.sampleId = sampleId;
+    }
+
     public Float getAligned() {
         return aligned;
     }
@@ -80,8 +90,8 @@ public class QualityControlInfo {
 
     @Override
     public String toString() {
-        return String.format("QualityControlInfo [passedReads=%s, aligned=%s, paired=%s, totalCoverage=%s, mean=%s]", passedReads, aligned,
-                paired, totalCoverage, mean);
+        return String.format("QualityControlInfo [sampleId=%s, passedReads=%s, aligned=%s, paired=%s, totalCoverage=%s, mean=%s]", sampleId,
+                passedReads, aligned, paired, totalCoverage, mean);
     }
 
 }
@@ -2,27 +2,50 @@ package edu.unc.mapseq.ws.ncgenes.baseline.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Providers;
+
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.renci.vcf.VCFParser;
 import org.renci.vcf.VCFResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.unc.mapseq.commons.ncgenes.baseline.DepthOfCoverageSummary;
+import edu.unc.mapseq.commons.ncgenes.baseline.DepthOfCoverageSummaryParser;
+import edu.unc.mapseq.commons.ncgenes.baseline.ICSNPFingerprint;
+import edu.unc.mapseq.commons.ncgenes.baseline.ICSNPFingerprint.Concordance;
+import edu.unc.mapseq.commons.ncgenes.baseline.ICSNPFingerprintStore;
+import edu.unc.mapseq.commons.ncgenes.baseline.ICSNPResultStore;
+import edu.unc.mapseq.dao.FlowcellDAO;
 import edu.unc.mapseq.dao.MaPSeqDAOException;
 import edu.unc.mapseq.dao.SampleDAO;
 import edu.unc.mapseq.dao.WorkflowDAO;
+import edu.unc.mapseq.dao.model.Attribute;
 import edu.unc.mapseq.dao.model.FileData;
+import edu.unc.mapseq.dao.model.Flowcell;
 import edu.unc.mapseq.dao.model.MimeType;
 import edu.unc.mapseq.dao.model.Sample;
 import edu.unc.mapseq.dao.model.Workflow;
 import edu.unc.mapseq.workflow.sequencing.SequencingWorkflowUtil;
+import edu.unc.mapseq.ws.ncgenes.baseline.ConcordanceInfo;
 import edu.unc.mapseq.ws.ncgenes.baseline.NCGenesBaselineService;
 import edu.unc.mapseq.ws.ncgenes.baseline.QualityControlInfo;
 
@@ -30,10 +53,43 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
 
     private static final Logger logger = LoggerFactory.getLogger(NCGenesBaselineServiceImpl.class);
 
+    private static final Pattern PERCENTAGE_PATTERN = Pattern.compile("^.+\\((.+)\\)");
+
     private SampleDAO sampleDAO;
 
     private WorkflowDAO workflowDAO;
 
+    private FlowcellDAO flowcellDAO;
+
+    private Integer batchThreads = 8;
+
+    private Integer fileIndexCacheSize = 5000;
+
+    private volatile Workflow workflow;
+
+    private final LinkedHashMap<Long, SampleFileIndex> fileIndexes = new LinkedHashMap<Long, SampleFileIndex>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SampleFileIndex> eldest) {
+            return size() > fileIndexCacheSize;
+        }
+
+    };
+
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Context
+    private Providers providers;
+
+    private SampleResultCache<QualityControlInfo> qualityControlCache = new SampleResultCache<QualityControlInfo>();
+
+    private SampleResultCache<VCFResult> identityCache = new SampleResultCache<VCFResult>();
+
+    private SampleResultCache<ICSNPFingerprint> fingerprintCache = new SampleResultCache<ICSNPFingerprint>();
+
     @Override
     public QualityControlInfo lookupQuantificationResults(Long sampleId) {
         logger.debug("ENTERING lookupQuantificationResults(Long)");
@@ -42,6 +98,11 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
             return null;
         }
 
+        QualityControlInfo ret = qualityControlCache.get(sampleId);
+        if (ret != null) {
+            return ret;
+        }
+
         Sample sample = null;
         try {
             sample = sampleDAO.findById(sampleId);
@@ -54,80 +115,121 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
             return null;
         }
 
+        return computeQuantificationResults(sample);
+    }
+
+    @Override
+    public Response lookupQuantificationResultsBySampleIds(List<Long> sampleIds) {
+        logger.debug("ENTERING lookupQuantificationResultsBySampleIds(List<Long>)");
+        List<Callable<QualityControlInfo>> lookups = new ArrayList<Callable<QualityControlInfo>>();
+        if (sampleIds != null) {
+            // the DAO has no multi-id finder, each id is resolved in its lookup so the queries run on the pool too
+            for (final Long sampleId : new LinkedHashSet<Long>(sampleIds)) {
+                lookups.add(new Callable<QualityControlInfo>() {
+                    @Override
+                    public QualityControlInfo call() throws Exception {
+                        return lookupQuantificationResults(sampleId);
+                    }
+                });
+            }
+        }
+        return stream(lookups);
+    }
+
+    @Override
+    public Response lookupQuantificationResultsByFlowcell(String flowcell) {
+        logger.debug("ENTERING lookupQuantificationResultsByFlowcell(String)");
+        List<Callable<QualityControlInfo>> lookups = new ArrayList<Callable<QualityControlInfo>>();
+        try {
+            List<Flowcell> flowcells = flowcellDAO.findByName(flowcell);
+            if (CollectionUtils.isEmpty(flowcells)) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            for (Flowcell fc : flowcells) {
+                List<Sample> samples = sampleDAO.findByFlowcellId(fc.getId());
+                if (CollectionUtils.isEmpty(samples)) {
+                    continue;
+                }
+                for (final Sample sample : samples) {
+                    lookups.add(new Callable<QualityControlInfo>() {
+                        @Override
+                        public QualityControlInfo call() throws Exception {
+                            QualityControlInfo ret = qualityControlCache.get(sample.getId());
+                            return ret != null ? ret : computeQuantificationResults(sample);
+                        }
+                    });
+                }
+            }
+        } catch (MaPSeqDAOException e) {
+            logger.error("Failed to find Samples", e);
+            return Response.serverError().build();
+        }
+        return stream(lookups);
+    }
+
+    private Response stream(List<Callable<QualityControlInfo>> lookups) {
+        MediaType mediaType = MediaType.APPLICATION_JSON_TYPE;
+        if (httpHeaders != null) {
+            for (MediaType acceptable : httpHeaders.getAcceptableMediaTypes()) {
+                if (acceptable.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                    break;
+                }
+                if (acceptable.isCompatible(MediaType.APPLICATION_XML_TYPE)) {
+                    mediaType = MediaType.APPLICATION_XML_TYPE;
+                    break;
+                }
+            }
+        }
+        return Response.ok(new QualityControlResultsStreamingOutput(lookups, batchThreads, mediaType, providers), mediaType).build();
+    }
+
+    private QualityControlInfo computeQuantificationResults(Sample sample) {
+        List<File> sources = new ArrayList<File>();
+        QualityControlInfo ret = findQuantificationResults(sample, sources);
+        // a partial result has no file to go stale with, the sample is likely still being processed
+        if (ret != null && ret.getPassedReads() != null && ret.getTotalCoverage() != null && ret.getIcSNPResultList() != null) {
+            qualityControlCache.put(sample.getId(), ret, sources);
+        }
+        return ret;
+    }
+
+    private QualityControlInfo findQuantificationResults(Sample sample, List<File> sources) {
         logger.debug(sample.toString());
 
         Set<FileData> sampleFileDataSet = sample.getFileDatas();
 
         QualityControlInfo ret = new QualityControlInfo();
+        ret.setSampleId(sample.getId());
+
+        // the QC harvest saves these as Sample attributes, the files are only read for samples it hasn't reached
+        boolean hasFlagstat = applyFlagstatAttributes(sample.getAttributes(), ret);
+        boolean hasCoverage = applyCoverageAttributes(sample.getAttributes(), ret);
 
         try {
 
             if (sampleFileDataSet != null) {
 
-                File flagstatFile = fileToFind(sample, MimeType.TEXT_STAT_SUMMARY, "samtools.flagstat");
+                SampleFileIndex fileIndex = findFileIndex(sample);
 
-                if (flagstatFile == null) {
-                    logger.error("flagstat file to process was still not found");
-                    return ret;
+                // the files are sources even when the attributes were used, a rerun rewrites them before the harvest saves again
+                File flagstatFile = fileIndex.find(MimeType.TEXT_STAT_SUMMARY, "samtools.flagstat");
+                if (flagstatFile != null && flagstatFile.exists()) {
+                    sources.add(flagstatFile);
                 }
 
-                logger.info("flagstat file is: {}", flagstatFile.getAbsolutePath());
-                if (flagstatFile.exists()) {
-                    List<String> lines = null;
-                    try {
-                        lines = FileUtils.readLines(flagstatFile);
-                    } catch (IOException e1) {
-                        e1.printStackTrace();
+                if (!hasFlagstat) {
+                    if (flagstatFile == null) {
+                        logger.error("flagstat file to process was still not found");
+                        return ret;
                     }
 
-                    if (lines != null) {
-                        for (String line : lines) {
-
-                            if (line.contains("in total")) {
-                                String value = line.substring(0, line.indexOf(" ")).trim();
-                                try {
-                                    ret.setPassedReads(Integer.valueOf(value));
-                                } catch (Exception e) {
-                                    logger.error("problem getting passedReads, value: {}", value);
-                                }
-                            }
-
-                            if (line.contains("mapped (")) {
-                                Pattern pattern = Pattern.compile("^.+\\((.+)\\)");
-                                Matcher matcher = pattern.matcher(line);
-                                if (matcher.matches()) {
-                                    String value = matcher.group(1);
-                                    value = value.substring(0, value.indexOf("%")).trim();
-                                    if (StringUtils.isNotEmpty(value)) {
-                                        try {
-                                            ret.setAligned(Float.valueOf(value));
-                                        } catch (Exception e) {
-                                            logger.error("problem getting mapped, value: {}", value);
-                                        }
-                                    }
-                                }
-                            }
-
-                            if (line.contains("properly paired (")) {
-                                Pattern pattern = Pattern.compile("^.+\\((.+)\\)");
-                                Matcher matcher = pattern.matcher(line);
-                                if (matcher.matches()) {
-                                    String value = matcher.group(1);
-                                    value = value.substring(0, value.indexOf("%"));
-                                    if (StringUtils.isNotEmpty(value)) {
-                                        try {
-                                            ret.setPaired(Float.valueOf(value));
-                                        } catch (Exception e) {
-                                            logger.error("problem getting paired, value: {}", value);
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                    logger.info("flagstat file is: {}", flagstatFile.getAbsolutePath());
+                    if (flagstatFile.exists()) {
+                        parseFlagstat(flagstatFile, ret);
                     }
                 }
 
-                File vcfFile = fileToFind(sample, MimeType.TEXT_VCF, "ic_snps.vcf");
+                File vcfFile = fileIndex.find(MimeType.TEXT_VCF, "ic_snps.vcf");
 
                 if (vcfFile == null) {
                     logger.error("vcf file to process was still not found");
@@ -137,28 +239,30 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
 
                 logger.info("vcfFile file is: {}", vcfFile.getAbsolutePath());
                 if (vcfFile.exists()) {
-                    VCFParser parser = VCFParser.getInstance();
-                    VCFResult results = parser.parse(vcfFile);
-                    ret.setIcSNPResultList(results);
+                    sources.add(vcfFile);
+                    ret.setIcSNPResultList(readICSNPResult(vcfFile));
                 }
 
-                File depthOfCoverageSummaryFile = fileToFind(sample, MimeType.TEXT_DEPTH_OF_COVERAGE_SUMMARY, "coverage.sample_summary");
-
-                if (depthOfCoverageSummaryFile == null) {
-                    logger.error("depthOfCoverageSummaryFile to process was still not found");
-                    logger.info(sample.toString());
-                    return ret;
+                File depthOfCoverageSummaryFile = fileIndex.find(MimeType.TEXT_DEPTH_OF_COVERAGE_SUMMARY, "coverage.sample_summary");
+                if (hasCoverage && depthOfCoverageSummaryFile != null && depthOfCoverageSummaryFile.exists()) {
+                    sources.add(depthOfCoverageSummaryFile);
                 }
 
-                logger.info("depthOfCoverageSummaryFile file is: {}", depthOfCoverageSummaryFile.getAbsolutePath());
+                if (!hasCoverage) {
+                    if (depthOfCoverageSummaryFile == null) {
+                        logger.error("depthOfCoverageSummaryFile to process was still not found");
+                        logger.info(sample.toString());
+                        return ret;
+                    }
+
+                    logger.info("depthOfCoverageSummaryFile file is: {}", depthOfCoverageSummaryFile.getAbsolutePath());
 
-                if (depthOfCoverageSummaryFile.exists()) {
-                    List<String> lines = FileUtils.readLines(depthOfCoverageSummaryFile);
-                    for (String line : lines) {
-                        if (line.contains("Total")) {
-                            String[] split = line.split("\t");
-                            ret.setTotalCoverage(Long.valueOf(split[1]));
-                            ret.setMean(Double.valueOf(split[2]));
+                    if (depthOfCoverageSummaryFile.exists()) {
+                        sources.add(depthOfCoverageSummaryFile);
+                        DepthOfCoverageSummary summary = new DepthOfCoverageSummaryParser().parseSampleSummary(depthOfCoverageSummaryFile);
+                        if (summary != null) {
+                            ret.setTotalCoverage(summary.getTotalCoverage());
+                            ret.setMean(summary.getMean());
                         }
                     }
                 }
@@ -171,35 +275,137 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
         return ret;
     }
 
-    private File fileToFind(Sample sample, MimeType mimeType, String suffix) throws MaPSeqDAOException {
-        Set<FileData> sampleFileDataSet = sample.getFileDatas();
+    private boolean applyFlagstatAttributes(Set<Attribute> attributeSet, QualityControlInfo info) {
+        String passedReads = findAttributeValue(attributeSet, "SAMToolsFlagstat.totalPassedReads");
+        String aligned = findAttributeValue(attributeSet, "SAMToolsFlagstat.aligned");
+        String paired = findAttributeValue(attributeSet, "SAMToolsFlagstat.paired");
+        if (!NumberUtils.isNumber(passedReads) || !NumberUtils.isNumber(aligned) || !NumberUtils.isNumber(paired)) {
+            return false;
+        }
+        info.setPassedReads(Integer.valueOf(passedReads));
+        info.setAligned(Float.valueOf(aligned));
+        info.setPaired(Float.valueOf(paired));
+        return true;
+    }
 
-        Workflow workflow = null;
-        List<Workflow> workflowList = workflowDAO.findByName("NCGenesBaseline");
-        if (CollectionUtils.isNotEmpty(workflowList)) {
-            workflow = workflowList.get(0);
+    private boolean applyCoverageAttributes(Set<Attribute> attributeSet, QualityControlInfo info) {
+        String totalCoverage = findAttributeValue(attributeSet, "GATKDepthOfCoverage.totalCoverage");
+        String mean = findAttributeValue(attributeSet, "GATKDepthOfCoverage.mean");
+        if (!NumberUtils.isDigits(totalCoverage) || !NumberUtils.isNumber(mean)) {
+            return false;
         }
+        info.setTotalCoverage(Long.valueOf(totalCoverage));
+        info.setMean(Double.valueOf(mean));
+        return true;
+    }
 
-        if (CollectionUtils.isNotEmpty(sampleFileDataSet)) {
-            for (FileData fileData : sampleFileDataSet) {
-                if (fileData.getName().endsWith(suffix) && mimeType.equals(fileData.getMimeType())) {
-                    return fileData.toFile();
-                }
+    private String findAttributeValue(Set<Attribute> attributeSet, String name) {
+        if (attributeSet == null) {
+            return null;
+        }
+        for (Attribute attribute : attributeSet) {
+            if (name.equals(attribute.getName())) {
+                return attribute.getValue();
             }
         }
+        return null;
+    }
 
-        File outputDirectory = SequencingWorkflowUtil.createOutputDirectory(sample, workflow);
-        if (outputDirectory.exists()) {
-            for (File file : outputDirectory.listFiles()) {
-                if (file.getName().endsWith(suffix)) {
-                    return file;
+    private void parseFlagstat(File flagstatFile, QualityControlInfo info) throws IOException {
+        for (String line : FileUtils.readLines(flagstatFile)) {
+
+            if (line.contains("in total")) {
+                String value = line.substring(0, line.indexOf(" ")).trim();
+                try {
+                    info.setPassedReads(Integer.valueOf(value));
+                } catch (Exception e) {
+                    logger.error("problem getting passedReads, value: {}", value);
+                }
+            }
+
+            if (line.contains("mapped (")) {
+                String value = parsePercentage(line);
+                if (StringUtils.isNotEmpty(value)) {
+                    try {
+                        info.setAligned(Float.valueOf(value));
+                    } catch (Exception e) {
+                        logger.error("problem getting mapped, value: {}", value);
+                    }
+                }
+            }
+
+            if (line.contains("properly paired (")) {
+                String value = parsePercentage(line);
+                if (StringUtils.isNotEmpty(value)) {
+                    try {
+                        info.setPaired(Float.valueOf(value));
+                    } catch (Exception e) {
+                        logger.error("problem getting paired, value: {}", value);
+                    }
                 }
             }
         }
+    }
 
+    private String parsePercentage(String line) {
+        Matcher matcher = PERCENTAGE_PATTERN.matcher(line);
+        if (matcher.matches()) {
+            String value = matcher.group(1);
+            return value.substring(0, value.indexOf("%")).trim();
+        }
         return null;
     }
 
+    // a missing or stale stored result is parsed from the VCF & stored for the next lookup
+    private VCFResult readICSNPResult(File vcfFile) {
+        try {
+            VCFResult result = ICSNPResultStore.read(vcfFile);
+            if (result != null) {
+                return result;
+            }
+        } catch (IOException e) {
+            logger.warn(e.getMessage(), e);
+        }
+        VCFResult result = VCFParser.getInstance().parse(vcfFile);
+        if (result != null) {
+            try {
+                ICSNPResultStore.write(vcfFile, result);
+            } catch (IOException e) {
+                logger.warn("Could not store IC SNP result: {}", e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    // an index is reused until the sample gains a FileData or its output directory changes
+    private SampleFileIndex findFileIndex(Sample sample) throws MaPSeqDAOException {
+        SampleFileIndex index = null;
+        synchronized (fileIndexes) {
+            index = fileIndexes.get(sample.getId());
+        }
+        if (index != null && index.isCurrent(sample.getFileDatas())) {
+            return index;
+        }
+        index = new SampleFileIndex(sample.getFileDatas(), SequencingWorkflowUtil.createOutputDirectory(sample, findWorkflow()));
+        synchronized (fileIndexes) {
+            fileIndexes.put(sample.getId(), index);
+        }
+        return index;
+    }
+
+    // the workflow never changes while the service is up, a failed lookup is retried on the next call
+    private Workflow findWorkflow() throws MaPSeqDAOException {
+        Workflow ret = workflow;
+        if (ret == null) {
+            List<Workflow> workflowList = workflowDAO.findByName("NCGenesBaseline");
+            if (CollectionUtils.isNotEmpty(workflowList)) {
+                ret = workflowList.get(0);
+                workflow = ret;
+            }
+        }
+        return ret;
+    }
+
     @Override
     public VCFResult lookupIdentityInfoFromVCF(Long sampleId) {
         logger.debug("ENTERING lookupIdentityInfoFromVCF(Long)");
@@ -208,6 +414,11 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
             return null;
         }
 
+        VCFResult ret = identityCache.get(sampleId);
+        if (ret != null) {
+            return ret;
+        }
+
         Sample sample = null;
         try {
             sample = sampleDAO.findById(sampleId);
@@ -222,19 +433,120 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
 
         Set<FileData> sampleFileDataSet = sample.getFileDatas();
 
-        VCFParser parser = VCFParser.getInstance();
-        VCFResult ret = null;
         if (sampleFileDataSet != null) {
             for (FileData fileData : sampleFileDataSet) {
                 if (MimeType.TEXT_VCF.equals(fileData.getMimeType()) && fileData.getName().endsWith(".ic_snps.vcf")) {
                     File icSNPVCFFile = new File(fileData.getPath(), fileData.getName());
                     logger.info("icSNPVCFFile file is: {}", icSNPVCFFile.getAbsolutePath());
                     if (icSNPVCFFile.exists()) {
-                        ret = parser.parse(icSNPVCFFile);
+                        ret = readICSNPResult(icSNPVCFFile);
+                        if (ret != null) {
+                            identityCache.put(sampleId, ret, Arrays.asList(icSNPVCFFile));
+                        }
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public ConcordanceInfo lookupConcordance(Long sampleId, Long otherSampleId) {
+        logger.debug("ENTERING lookupConcordance(Long, Long)");
+        if (sampleId == null || otherSampleId == null) {
+            logger.warn("sampleId is null");
+            return null;
+        }
+        try {
+            ICSNPFingerprint fingerprint = findFingerprint(sampleDAO.findById(sampleId));
+            ICSNPFingerprint otherFingerprint = findFingerprint(sampleDAO.findById(otherSampleId));
+            if (fingerprint == null || otherFingerprint == null) {
+                return null;
+            }
+            return toConcordanceInfo(sampleId, otherSampleId, fingerprint.compare(otherFingerprint));
+        } catch (MaPSeqDAOException e) {
+            logger.error("Failed to find Sample", e);
+        }
+        return null;
+    }
+
+    @Override
+    public List<ConcordanceInfo> lookupConcordanceByFlowcell(Long sampleId, String flowcell) {
+        logger.debug("ENTERING lookupConcordanceByFlowcell(Long, String)");
+        List<ConcordanceInfo> ret = new ArrayList<ConcordanceInfo>();
+        if (sampleId == null || StringUtils.isEmpty(flowcell)) {
+            logger.warn("sampleId or flowcell is empty");
+            return ret;
+        }
+        try {
+            ICSNPFingerprint fingerprint = findFingerprint(sampleDAO.findById(sampleId));
+            if (fingerprint == null) {
+                return ret;
+            }
+            List<Flowcell> flowcells = flowcellDAO.findByName(flowcell);
+            if (CollectionUtils.isEmpty(flowcells)) {
+                return ret;
+            }
+            for (Flowcell fc : flowcells) {
+                List<Sample> samples = sampleDAO.findByFlowcellId(fc.getId());
+                if (CollectionUtils.isEmpty(samples)) {
+                    continue;
+                }
+                for (Sample sample : samples) {
+                    if (sampleId.equals(sample.getId())) {
+                        continue;
                     }
+                    ICSNPFingerprint otherFingerprint = findFingerprint(sample);
+                    if (otherFingerprint != null) {
+                        ret.add(toConcordanceInfo(sampleId, sample.getId(), fingerprint.compare(otherFingerprint)));
+                    }
+                }
+            }
+        } catch (MaPSeqDAOException e) {
+            logger.error("Failed to find Samples", e);
+        }
+        return ret;
+    }
+
+    private ConcordanceInfo toConcordanceInfo(Long sampleId, Long otherSampleId, Concordance concordance) {
+        ConcordanceInfo ret = new ConcordanceInfo();
+        ret.setSampleId(sampleId);
+        ret.setOtherSampleId(otherSampleId);
+        ret.setSitesCompared(concordance.getSitesCompared());
+        ret.setConcordantSites(concordance.getConcordantSites());
+        ret.setConcordance(concordance.getConcordance());
+        return ret;
+    }
+
+    // the stored fingerprint next to the ic_snps VCF, written here for samples the harvest hasn't reached
+    private ICSNPFingerprint findFingerprint(Sample sample) throws MaPSeqDAOException {
+        if (sample == null) {
+            return null;
+        }
+        ICSNPFingerprint ret = fingerprintCache.get(sample.getId());
+        if (ret != null) {
+            return ret;
+        }
+        File vcfFile = findFileIndex(sample).find(MimeType.TEXT_VCF, "ic_snps.vcf");
+        if (vcfFile == null || !vcfFile.exists()) {
+            logger.warn("No ic_snps vcf for Sample: {}", sample.getId());
+            return null;
+        }
+        try {
+            ret = ICSNPFingerprintStore.read(vcfFile);
+            if (ret == null) {
+                ret = ICSNPFingerprint.parse(vcfFile);
+                try {
+                    ICSNPFingerprintStore.write(vcfFile, ret);
+                } catch (IOException e) {
+                    logger.warn("Could not store IC SNP fingerprint: {}", e.getMessage());
                 }
             }
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            return null;
         }
+        fingerprintCache.put(sample.getId(), ret, Arrays.asList(vcfFile));
         return ret;
     }
 
@@ -246,6 +558,54 @@ public class NCGenesBaselineServiceImpl implements NCGenesBaselineService {
         this.sampleDAO = sampleDAO;
     }
 
+    public SampleResultCache<QualityControlInfo> getQualityControlCache() {
+        return qualityControlCache;
+    }
+
+    public void setQualityControlCache(SampleResultCache<QualityControlInfo> qualityControlCache) {
+        this.qualityControlCache = qualityControlCache;
+    }
+
+    public SampleResultCache<ICSNPFingerprint> getFingerprintCache() {
+        return fingerprintCache;
+    }
+
+    public void setFingerprintCache(SampleResultCache<ICSNPFingerprint> fingerprintCache) {
+        this.fingerprintCache = fingerprintCache;
+    }
+
+    public SampleResultCache<VCFResult> getIdentityCache() {
+        return identityCache;
+    }
+
+    public void setIdentityCache(SampleResultCache<VCFResult> identityCache) {
+        this.identityCache = identityCache;
+    }
+
+    public FlowcellDAO getFlowcellDAO() {
+        return flowcellDAO;
+    }
+
+    public void setFlowcellDAO(FlowcellDAO flowcellDAO) {
+        this.flowcellDAO = flowcellDAO;
+    }
+
+    public Integer getBatchThreads() {
+        return batchThreads;
+    }
+
+    public void setBatchThreads(Integer batchThreads) {
+        this.batchThreads = batchThreads;
+    }
+
+    public Integer getFileIndexCacheSize() {
+        return fileIndexCacheSize;
+    }
+
+    public void setFileIndexCacheSize(Integer fileIndexCacheSize) {
+        this.fileIndexCacheSize = fileIndexCacheSize;
+    }
+
     public WorkflowDAO getWorkflowDAO() {
         return workflowDAO;
     }
@@ -0,0 +1,198 @@
+package edu.unc.mapseq.ws.ncgenes.baseline.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.unc.mapseq.ws.ncgenes.baseline.QualityControlInfo;
+
+// writes each result as soon as its lookup finishes, so the client isn't waiting on the slowest sample of the batch
+public class QualityControlResultsStreamingOutput implements StreamingOutput {
+
+    private static final Logger logger = LoggerFactory.getLogger(QualityControlResultsStreamingOutput.class);
+
+    private final List<Callable<QualityControlInfo>> lookups;
+
+    private final int threads;
+
+    private final MediaType mediaType;
+
+    private final Providers providers;
+
+    public QualityControlResultsStreamingOutput(List<Callable<QualityControlInfo>> lookups, int threads, MediaType mediaType,
+            Providers providers) {
+        super();
+        this.lookups = lookups;
+        this.threads = threads;
+        this.mediaType = mediaType;
+        this.providers = providers;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        ResultWriter writer = MediaType.APPLICATION_XML_TYPE.isCompatible(mediaType) ? new XMLResultWriter(output)
+                : new JSONResultWriter(output);
+        writer.start();
+
+        if (lookups.isEmpty()) {
+            writer.end();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, lookups.size())));
+        try {
+            CompletionService<QualityControlInfo> completionService = new ExecutorCompletionService<QualityControlInfo>(executor);
+            for (Callable<QualityControlInfo> lookup : lookups) {
+                completionService.submit(lookup);
+            }
+            for (int i = 0; i < lookups.size(); i++) {
+                QualityControlInfo info = null;
+                try {
+                    info = completionService.take().get();
+                } catch (ExecutionException e) {
+                    // one bad sample shouldn't cost the client the rest of the batch, it is simply left out
+                    logger.error("Failed to lookup QualityControlInfo", e.getCause());
+                }
+                if (info != null) {
+                    writer.write(info);
+                    output.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            // the client may have gone away mid stream, the lookups still queued aren't worth finishing
+            executor.shutdownNow();
+        }
+
+        writer.end();
+    }
+
+    interface ResultWriter {
+
+        public void start() throws IOException;
+
+        public void write(QualityControlInfo info) throws IOException;
+
+        public void end() throws IOException;
+
+    }
+
+    // the JSON provider configured for the service writes each element, so the array matches the single lookup's format
+    class JSONResultWriter implements ResultWriter {
+
+        private final OutputStream output;
+
+        private final MessageBodyWriter<QualityControlInfo> messageBodyWriter;
+
+        private boolean first = true;
+
+        public JSONResultWriter(OutputStream output) {
+            super();
+            // providers close the stream they are handed, the array isn't finished yet
+            this.output = new FilterOutputStream(output) {
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+
+            };
+            this.messageBodyWriter = providers.getMessageBodyWriter(QualityControlInfo.class, QualityControlInfo.class,
+                    new Annotation[0], MediaType.APPLICATION_JSON_TYPE);
+            if (this.messageBodyWriter == null) {
+                throw new WebApplicationException("No JSON provider for QualityControlInfo");
+            }
+        }
+
+        @Override
+        public void start() throws IOException {
+            output.write('[');
+        }
+
+        @Override
+        public void write(QualityControlInfo info) throws IOException {
+            if (!first) {
+                output.write(',');
+            }
+            first = false;
+            messageBodyWriter.writeTo(info, QualityControlInfo.class, QualityControlInfo.class, new Annotation[0],
+                    MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<String, Object>(), output);
+        }
+
+        @Override
+        public void end() throws IOException {
+            output.write(']');
+            output.flush();
+        }
+
+    }
+
+    class XMLResultWriter implements ResultWriter {
+
+        private final OutputStream output;
+
+        private final Marshaller marshaller;
+
+        public XMLResultWriter(OutputStream output) {
+            super();
+            this.output = output;
+            try {
+                this.marshaller = JAXBContext.newInstance(QualityControlInfo.class).createMarshaller();
+                this.marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            } catch (JAXBException e) {
+                throw new WebApplicationException(e);
+            }
+        }
+
+        @Override
+        public void start() throws IOException {
+            output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><qualityControlResultsList>".getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void write(QualityControlInfo info) throws IOException {
+            try {
+                marshaller.marshal(info, output);
+            } catch (JAXBException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            output.write("</qualityControlResultsList>".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package edu.unc.mapseq.ws.ncgenes.baseline.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.unc.mapseq.dao.model.FileData;
+import edu.unc.mapseq.dao.model.MimeType;
+
+// a sample's files by name suffix, from its FileData & a single listing of its output directory
+public class SampleFileIndex {
+
+    private final List<FileData> fileDatas;
+
+    private final File outputDirectory;
+
+    private final long directoryLastModified;
+
+    private final String[] directoryNames;
+
+    private final Map<String, File> directoryFiles = new HashMap<String, File>();
+
+    public SampleFileIndex(Collection<FileData> fileDatas, File outputDirectory) {
+        super();
+        this.fileDatas = fileDatas != null ? new ArrayList<FileData>(fileDatas) : new ArrayList<FileData>();
+        this.outputDirectory = outputDirectory;
+        // read before the listing, a file added in between then shows up as a change on the next lookup
+        this.directoryLastModified = outputDirectory.lastModified();
+        String[] names = outputDirectory.list();
+        this.directoryNames = names != null ? names : new String[0];
+    }
+
+    // one stat of the directory, adding or removing a file changes its mtime
+    public boolean isCurrent(Collection<FileData> fileDatas) {
+        int fileDataCount = fileDatas != null ? fileDatas.size() : 0;
+        return fileDataCount == this.fileDatas.size() && outputDirectory.lastModified() == directoryLastModified;
+    }
+
+    // a registered FileData wins over a file that is only in the output directory
+    public File find(MimeType mimeType, String suffix) {
+        for (FileData fileData : fileDatas) {
+            if (fileData.getName().endsWith(suffix) && mimeType.equals(fileData.getMimeType())) {
+                return fileData.toFile();
+            }
+        }
+        return findInOutputDirectory(suffix);
+    }
+
+    public synchronized File findInOutputDirectory(String suffix) {
+        if (directoryFiles.containsKey(suffix)) {
+            return directoryFiles.get(suffix);
+        }
+        File file = null;
+        for (String name : directoryNames) {
+            if (name.endsWith(suffix)) {
+                file = new File(outputDirectory, name);
+                break;
+            }
+        }
+        directoryFiles.put(suffix, file);
+        return file;
+    }
+
+    public File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+}
@@ -0,0 +1,207 @@
+package edu.unc.mapseq.ws.ncgenes.baseline.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// results by sampleId, an entry is only served while the files it was computed from keep their size & mtime
+public class SampleResultCache<V> implements SampleResultCacheMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SampleResultCache.class);
+
+    private Integer maxSize = 1000;
+
+    private String objectName;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LinkedHashMap<Long, Entry<V>> entries = new LinkedHashMap<Long, Entry<V>>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+    };
+
+    public SampleResultCache() {
+        super();
+    }
+
+    public void register() throws Exception {
+        logger.info("ENTERING register()");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(objectName);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    public void unregister() throws Exception {
+        logger.info("ENTERING unregister()");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(objectName);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    public V get(Long sampleId) {
+        Entry<V> entry = null;
+        synchronized (entries) {
+            entry = entries.get(sampleId);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        // the stat happens outside the lock, a slow NFS mount only holds up this lookup
+        if (!entry.isCurrent()) {
+            synchronized (entries) {
+                entries.remove(sampleId, entry);
+            }
+            invalidations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.getValue();
+    }
+
+    public void put(Long sampleId, V value, List<File> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        Entry<V> entry = null;
+        try {
+            entry = new Entry<V>(value, files);
+        } catch (IOException e) {
+            logger.warn("not caching {}: {}", sampleId, e.getMessage());
+            return;
+        }
+        synchronized (entries) {
+            entries.put(sampleId, entry);
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public Integer getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    static class Entry<V> {
+
+        private final V value;
+
+        private final File[] files;
+
+        private final long[] sizes;
+
+        private final long[] lastModified;
+
+        public Entry(V value, List<File> files) throws IOException {
+            super();
+            this.value = value;
+            this.files = files.toArray(new File[files.size()]);
+            this.sizes = new long[this.files.length];
+            this.lastModified = new long[this.files.length];
+            for (int i = 0; i < this.files.length; i++) {
+                BasicFileAttributes attributes = Files.readAttributes(this.files[i].toPath(), BasicFileAttributes.class);
+                sizes[i] = attributes.size();
+                lastModified[i] = attributes.lastModifiedTime().toMillis();
+            }
+        }
+
+        // one stat per file, a file that has gone away invalidates the entry too
+        public boolean isCurrent() {
+            for (int i = 0; i < files.length; i++) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(files[i].toPath(), BasicFileAttributes.class);
+                    if (attributes.size() != sizes[i] || attributes.lastModifiedTime().toMillis() != lastModified[i]) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+    }
+
+}
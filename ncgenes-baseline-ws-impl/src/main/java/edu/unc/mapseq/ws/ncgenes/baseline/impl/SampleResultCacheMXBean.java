@@ -0,0 +1,19 @@
+package edu.unc.mapseq.ws.ncgenes.baseline.impl;
+
+public interface SampleResultCacheMXBean {
+
+    public long getHits();
+
+    public long getMisses();
+
+    public long getEvictions();
+
+    public long getInvalidations();
+
+    public int getSize();
+
+    public Integer getMaxSize();
+
+    public void clear();
+
+}
@@ -0,0 +1,49 @@
+package edu.unc.mapseq.ws.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.dao.model.FileData;
+import edu.unc.mapseq.ws.ncgenes.baseline.impl.SampleFileIndex;
+
+public class SampleFileIndexTest {
+
+    @Test
+    public void testOutputDirectory() throws IOException {
+        File outputDirectory = Files.createTempDirectory("NCGenesBaseline").toFile();
+        File flagstat = new File(outputDirectory, "sample.fixed-rg.deduped.realign.fixmate.recal.samtools.flagstat");
+        assertTrue(flagstat.createNewFile());
+        assertTrue(outputDirectory.setLastModified(outputDirectory.lastModified() - 60000L));
+
+        SampleFileIndex index = new SampleFileIndex(Collections.<FileData> emptySet(), outputDirectory);
+        assertEquals(flagstat, index.findInOutputDirectory("samtools.flagstat"));
+        assertTrue(index.findInOutputDirectory("ic_snps.vcf") == null);
+        assertTrue(index.isCurrent(Collections.<FileData> emptySet()));
+
+        // the listing isn't repeated, a new file is only seen once the directory mtime has moved
+        File vcf = new File(outputDirectory, "sample.fixed-rg.deduped.realign.fixmate.recal.ic_snps.vcf");
+        assertTrue(vcf.createNewFile());
+        assertTrue(outputDirectory.setLastModified(outputDirectory.lastModified() + 1000L));
+        assertTrue(index.findInOutputDirectory("ic_snps.vcf") == null);
+        assertTrue(!index.isCurrent(Collections.<FileData> emptySet()));
+
+        index = new SampleFileIndex(Collections.<FileData> emptySet(), outputDirectory);
+        assertEquals(vcf, index.findInOutputDirectory("ic_snps.vcf"));
+
+        assertTrue(vcf.delete());
+        assertTrue(flagstat.delete());
+        assertTrue(outputDirectory.delete());
+
+        index = new SampleFileIndex(null, outputDirectory);
+        assertTrue(index.findInOutputDirectory("samtools.flagstat") == null);
+        assertTrue(index.isCurrent(null));
+    }
+
+}
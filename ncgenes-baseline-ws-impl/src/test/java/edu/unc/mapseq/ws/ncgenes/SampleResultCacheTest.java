@@ -0,0 +1,65 @@
+package edu.unc.mapseq.ws.ncgenes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.unc.mapseq.ws.ncgenes.baseline.impl.SampleResultCache;
+
+public class SampleResultCacheTest {
+
+    @Test
+    public void testInvalidation() throws IOException {
+        File vcf = File.createTempFile("sample", ".ic_snps.vcf");
+        vcf.deleteOnExit();
+        Files.write(vcf.toPath(), "##fileformat=VCFv4.1\n".getBytes(StandardCharsets.US_ASCII));
+
+        SampleResultCache<String> cache = new SampleResultCache<String>();
+        assertTrue(cache.get(1L) == null);
+        cache.put(1L, "result", Arrays.asList(vcf));
+        assertEquals("result", cache.get(1L));
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+
+        // same size, new mtime
+        assertTrue(vcf.setLastModified(vcf.lastModified() - 60000L));
+        assertTrue(cache.get(1L) == null);
+        assertEquals(1L, cache.getInvalidations());
+        assertEquals(0, cache.getSize());
+
+        cache.put(1L, "result", Arrays.asList(vcf));
+        Files.write(vcf.toPath(), "##fileformat=VCFv4.2\n#CHROM\n".getBytes(StandardCharsets.US_ASCII));
+        vcf.setLastModified(vcf.lastModified() - 60000L);
+        assertTrue(cache.get(1L) == null);
+
+        cache.put(1L, "result", Arrays.asList(vcf));
+        assertTrue(vcf.delete());
+        assertTrue(cache.get(1L) == null);
+        assertEquals(3L, cache.getInvalidations());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        File vcf = File.createTempFile("sample", ".ic_snps.vcf");
+        vcf.deleteOnExit();
+
+        SampleResultCache<String> cache = new SampleResultCache<String>();
+        cache.setMaxSize(2);
+        cache.put(1L, "1", Arrays.asList(vcf));
+        cache.put(2L, "2", Arrays.asList(vcf));
+        cache.get(1L);
+        cache.put(3L, "3", Arrays.asList(vcf));
+        assertEquals(2, cache.getSize());
+        assertEquals(1L, cache.getEvictions());
+        assertEquals("1", cache.get(1L));
+        assertTrue(cache.get(2L) == null);
+    }
+
+}